@@ -156,9 +156,10 @@ public class MapDiagrammer {
                     for(int i = 0; i < mesh.getXDim(); i++) {
                         Point p = new Point(10 + (i * size * 3), 590 - (j * size * 3));
                         if(mesh.getIsFree(i, j, 0)) {
-                            if(map.containsValue(new MeshLocation(i, j, 0))) {
+                            MeshLocation loc = mesh.location(i, j, 0);
+                            if(map.containsValue(loc)) {
                                 for(Map.Entry<Integer, MeshLocation> e : map.entrySet()) {
-                                    if(e.getValue().equals(new MeshLocation(i, j, 0))) {
+                                    if(e.getValue().equals(loc)) {
                                         locations.put(e.getKey(), p);
                                         int[] neighbors = mppr.neighbors(e.getKey(), dim);
                                         for(int k = 1; k < 4; k++)
@@ -16,6 +16,9 @@
  */
 
 package mapping;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -253,27 +256,32 @@ public abstract class TaskMapper {
 		}
 		mesh = mL.getMesh();
 		Set<MeshEdge> edges = new HashSet<MeshEdge>();
-		//loop for generating list of the edges
-		//only the edges oriented upwards and to the right (in the job) to avoid double counting
-		for(int k = 0; k < mesh.getZDim(); k++) {
-			for(int j = 0; j < mesh.getYDim(); j++) {
-				for(int i = 0; i < mesh.getXDim(); i++) {
-					if(mesh.getIsFree(i, j, k)) {
-						if(map.containsValue(new MeshLocation(i, j, k))) {
-							for(Map.Entry<Integer, MeshLocation> e : map.entrySet()) {
-								if(e.getValue().equals(new MeshLocation(i, j, k))) {
-									if(e.getValue().x < (mesh.getXDim() - 1))
-										edges.add(new MeshEdge(e.getValue(), new MeshLocation(e.getValue().x + 1, e.getValue().y, e.getValue().z)));
-									if(e.getValue().y < (mesh.getYDim() - 1))
-										edges.add(new MeshEdge(e.getValue(), new MeshLocation(e.getValue().x, e.getValue().y + 1, e.getValue().z)));
-									if(e.getValue().z < (mesh.getZDim() - 1))
-										edges.add(new MeshEdge(e.getValue(), new MeshLocation(e.getValue().x, e.getValue().y, e.getValue().z + 1)));
-								}
-							}
-						}
-					}
-				}
+
+		//visit the job's free nodes in the order of a loop over z, then y,
+		//then x (a stable sort keeps map order for nodes used more than once)
+		ArrayList<MeshLocation> nodes = new ArrayList<MeshLocation>();
+		for(MeshLocation loc : map.values())
+			if(loc.x >= 0 && loc.x < mesh.getXDim() && loc.y >= 0 && loc.y < mesh.getYDim() &&
+					loc.z >= 0 && loc.z < mesh.getZDim() && mesh.getIsFree(loc.x, loc.y, loc.z))
+				nodes.add(loc);
+		Collections.sort(nodes, new Comparator<MeshLocation>() {
+			public int compare(MeshLocation a, MeshLocation b) {
+				if(a.z != b.z)
+					return a.z - b.z;
+				if(a.y != b.y)
+					return a.y - b.y;
+				return a.x - b.x;
 			}
+		});
+
+		//only the edges oriented upwards and to the right (in the job) to avoid double counting
+		for(MeshLocation loc : nodes) {
+			if(loc.x < (mesh.getXDim() - 1))
+				edges.add(new MeshEdge(loc, mesh.location(loc.x + 1, loc.y, loc.z)));
+			if(loc.y < (mesh.getYDim() - 1))
+				edges.add(new MeshEdge(loc, mesh.location(loc.x, loc.y + 1, loc.z)));
+			if(loc.z < (mesh.getZDim() - 1))
+				edges.add(new MeshEdge(loc, mesh.location(loc.x, loc.y, loc.z + 1)));
 		}
 		return edges;
 	}
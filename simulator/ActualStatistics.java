@@ -18,21 +18,32 @@ package simulator;
  *
  * ties file contains a line per allocation w/ >1 distinct allocation w/ same score
  *   (for NearestAllocator).  Format of line is #procs, tab, #ways it tied
+ *
+ * if "binary" is among the logs, the time, util, and wait logs are written
+ *   as columnar logs (see ColumnLog) named with an extra ".col"
+ *
+ * frag file (only for MBS allocators) has a line per job start or end with the
+ *   time, # free processors, # blocks split and merged so far, and for each
+ *   block size above the smallest, the % of free processors in smaller blocks
+ *
+ * if "summary" is among the logs, SummaryStatistics is used instead and no
+ *   log files are written
  */
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 
 import simulator.allocator.AllocInfo;
 import simulator.allocator.Allocator;
+import simulator.allocator.MBSAllocator;
 import simulator.allocator.MeshAllocInfo;
 import simulator.scheduler.Scheduler;
 
 public class ActualStatistics extends Statistics  {
 
-	private static String name;	//trace name for the machine-used to create an output file, i.e "name.stat"
+	private String name;	//trace name for the machine-used to create an output file, i.e "name.stat"
 	private Machine machine;
 	private long currentTime;
 	private int procsUsed;	    //Processors used at the current time
@@ -40,7 +51,23 @@ public class ActualStatistics extends Statistics  {
 	private boolean calcStrictFST=true;
 	private boolean calcRelaxedFST=true;
 	
-	private static HashMap<String,FileWriter> fileHandles = null;
+	private HashMap<String,LogWriter> fileHandles;
+
+	//logs written on every event (null if not recorded)
+	private LogWriter timeLog;
+	private LogWriter utilLog;
+	private LogWriter waitLog;
+	private LogWriter allocLog;
+	private LogWriter visualLog;
+	private LogWriter fragLog;
+
+	private MBSAllocator mbs;  //allocator whose free blocks are in frag log
+
+	//columnar logs used instead of the text ones for binary output
+	private ArrayList<ColumnLog.Writer> columnLogs;
+	private ColumnLog.Writer timeCols;
+	private ColumnLog.Writer utilCols;
+	private ColumnLog.Writer waitCols;
 
 	private static boolean record_util   = false; //Record utilization
 	private static boolean record_time   = true;  //Record times
@@ -48,6 +75,9 @@ public class ActualStatistics extends Statistics  {
 	private static boolean record_alloc  = false; //Record allocation info
 	private static boolean record_ties   = false; //Record tie info
 	private static boolean record_visual = false; //Record visual allocation info 
+	private static boolean record_frag   = false; //Record MBS fragmentation
+	private static boolean record_binary = false; //Write time, util, wait in binary
+	private static boolean record_summary = false; //Only print summary (no logs)
 
 	private int lastUtil;       //last observed utilization value
 	private long lastUtilTime;  //when it first reached this value (-1= no observations)
@@ -59,7 +89,7 @@ public class ActualStatistics extends Statistics  {
 	private int waitingJobs;	//current guess of what to record for that time
 	private int tempWaiting;    //actual number of waiting jobs right now
 
-	private static String fileHeader; //The commented out header for all log files
+	private String fileHeader; //The commented out header for all log files
 
 	static public String getOutputDirectory(){
 		String outputDirectory=System.getenv("SIMOUTPUT");
@@ -71,12 +101,19 @@ public class ActualStatistics extends Statistics  {
 
 	public ActualStatistics() { 
 		record_util = record_time = record_wait = record_alloc 
-				= record_ties = record_visual = false;
+				= record_ties = record_visual = record_frag = record_binary = record_summary = false;
 	}
 
 	public ActualStatistics(Machine mach, Scheduler sched, Allocator alloc,
 			String name, boolean accurateEsts) {
-		ActualStatistics.name = name.substring(Math.max(name.lastIndexOf("/")+1,0));	
+		this(mach, sched, alloc, name, name, accurateEsts);
+	}
+
+	public ActualStatistics(Machine mach, Scheduler sched, Allocator alloc,
+			String name, String logName, boolean accurateEsts) {
+		//logName is used to name the log files (differs from the trace
+		//name when several simulations of the same trace are run)
+		this.name = logName.substring(Math.max(logName.lastIndexOf("/")+1,0));
 		machine = mach;
 		currentTime = 0;
 		procsUsed = 0;
@@ -86,9 +123,8 @@ public class ActualStatistics extends Statistics  {
 		lastWaitTime = -1;
 		lastWaitJobs = -1;
 
-		if(fileHandles == null){
-			fileHandles = new HashMap<String,FileWriter>();
-		}
+		fileHandles = new HashMap<String,LogWriter>();
+		columnLogs = new ArrayList<ColumnLog.Writer>();
 
 		Date d = new Date();
 
@@ -104,44 +140,66 @@ public class ActualStatistics extends Statistics  {
 						"# [Allocator] \n"+alloc.getSetupInfo(true) + "\n";
 
 		//Initialize logs
-		if(record_time){
-			ActualStatistics.InitializeLog("time");
+		if(record_time && record_binary){
+			ArrayList<String> columns = new ArrayList<String>();
+			for(String col : new String[]{"job", "arrival", "start", "end", "run",
+					"wait", "response", "procs"})
+				columns.add(col);
+			if(calcStrictFST)
+				columns.add("strictFST");
+			if(calcRelaxedFST)
+				columns.add("relaxedFST");
+			timeCols = InitializeColumns("time", columns.toArray(new String[0]));
+		}else if(record_time){
+			timeLog = InitializeLog("time");
 			if(!calcStrictFST && !calcRelaxedFST){
-				ActualStatistics.AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\n",
+				AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\n",
 						"time");
 			}else if(!calcRelaxedFST && calcStrictFST){
-				ActualStatistics.AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\tStrictFST\n",
+				AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\tStrictFST\n",
 						"time");
 			}else if(!calcStrictFST && calcRelaxedFST){
-				ActualStatistics.AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\tRelaxedFST\n",
+				AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\tRelaxedFST\n",
 						"time");
 			}else if(calcStrictFST && calcRelaxedFST ){
-				ActualStatistics.AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\tS-FST\tR-FST\n",
+				AppendToLog("\n# Job \tArrival\tStart\tEnd\tRun\tWait\tResp.\tProcs\tS-FST\tR-FST\n",
 						"time");
 			}
 		}
-		if(record_util){
-			ActualStatistics.InitializeLog("util");
-			ActualStatistics.AppendToLog("\n# Time\tUtilization\n","util");
+		if(record_util && record_binary){
+			utilCols = InitializeColumns("util", new String[]{"time", "procs"});
+		}else if(record_util){
+			utilLog = InitializeLog("util");
+			AppendToLog("\n# Time\tUtilization\n","util");
 		}
-		if(record_wait){
-			ActualStatistics.InitializeLog("wait");
-			ActualStatistics.AppendToLog("\n# Time\tWaiting Jobs\n","wait");
+		if(record_wait && record_binary){
+			waitCols = InitializeColumns("wait", new String[]{"time", "jobs"});
+		}else if(record_wait){
+			waitLog = InitializeLog("wait");
+			AppendToLog("\n# Time\tWaiting Jobs\n","wait");
 		}
 		if(record_alloc){
-			ActualStatistics.InitializeLog("alloc");
-			ActualStatistics.AppendToLog("\n# Procs Needed\tActual Time\t Pairwise L1 Distance\n","alloc");
+			allocLog = InitializeLog("alloc");
+			AppendToLog("\n# Procs Needed\tActual Time\t Pairwise L1 Distance\n","alloc");
 		}
 		if(record_ties){
-			ActualStatistics.InitializeLog("ties");
-			ActualStatistics.AppendToLog("\n#Num procs\tways tied\n","ties");
+			InitializeLog("ties");
+			AppendToLog("\n#Num procs\tways tied\n","ties");
 		}
 		if(record_visual && machine instanceof Mesh){
 			Mesh mesh = (Mesh) machine;
-			ActualStatistics.InitializeLog("visual");
-			ActualStatistics.AppendToLog("MESH " + mesh.getXDim() + " " + mesh.getYDim() +
+			visualLog = InitializeLog("visual");
+			AppendToLog("MESH " + mesh.getXDim() + " " + mesh.getYDim() +
 					" "+ mesh.getZDim()+"\n\n","visual");
 		}
+		if(record_frag && alloc instanceof MBSAllocator){
+			mbs = (MBSAllocator) alloc;
+			fragLog = InitializeLog("frag");
+			fragLog.append("\n# Time\tFree\tSplits\tMerges");
+			for(int rank = 1; rank < mbs.numRanks(); rank++)
+				fragLog.append("\t%<").append(mbs.rankSize(rank));
+			fragLog.append('\n');
+		}
 	}
 
 	static public void SetupLogs(String[] list){
@@ -151,6 +209,9 @@ public class ActualStatistics extends Statistics  {
 		record_alloc=false;
 		record_ties=false;
 		record_visual=false;
+		record_frag=false;
+		record_binary=false;
+		record_summary=false;
 
 		for(String s : list){
 			if(s.equals("wait"))
@@ -165,6 +226,12 @@ public class ActualStatistics extends Statistics  {
 				record_ties=true;
 			else if(s.equals("visual"))
 				record_visual=true;
+			else if(s.equals("frag"))
+				record_frag=true;
+			else if(s.equals("binary"))
+				record_binary=true;
+			else if(s.equals("summary"))
+				record_summary=true;
 		}
 	}
 
@@ -172,23 +239,46 @@ public class ActualStatistics extends Statistics  {
 	Initialize the log file with specified extension.
 	Only call this after an instance of Statistics has been created.
 	 */
-	static private void InitializeLog(String extension){
+	private LogWriter InitializeLog(String extension){
 		String outputDirectory=ActualStatistics.getOutputDirectory();
 
 		try{
-			FileWriter rec = new FileWriter(outputDirectory + name + "." + extension,false);
-			ActualStatistics.fileHandles.put(extension,rec);
-			rec.write(ActualStatistics.fileHeader);
+			LogWriter rec = new LogWriter(outputDirectory + name + "." + extension);
+			fileHandles.put(extension,rec);
+			rec.append(fileHeader);
+			return rec;
 		}
 		catch(IOException e){
 			Main.error("Unable to initialize log file " +
 					outputDirectory + name + "." + extension);
 		}
+		return null;
+	}
+
+	/*
+	Initialize a columnar log for the log with specified extension.
+	 */
+	private ColumnLog.Writer InitializeColumns(String extension, String[] columns){
+		String fileName = ActualStatistics.getOutputDirectory() + name + "." +
+				extension + ColumnLog.EXTENSION;
+
+		try{
+			ColumnLog.Writer rec = new ColumnLog.Writer(fileName, columns,
+					machine.numProcs(), fileHeader);
+			columnLogs.add(rec);
+			return rec;
+		}
+		catch(IOException e){
+			Main.error("Unable to initialize log file " + fileName);
+		}
+		return null;
 	}
 
 	static public void writeTie(String message){
-		if(record_ties){
-			AppendToLog(message,"ties");
+		//written to the log of the simulation running on this thread
+		Statistics stats = Simulation.current().getStatistics();
+		if(record_ties && stats != null){
+			stats.AppendToLog(message,"ties");
 		}
 	}
 
@@ -196,24 +286,24 @@ public class ActualStatistics extends Statistics  {
 		return record_ties;
 	}
 
+	static public boolean recordingSummary() {  //whether to use SummaryStatistics
+		return record_summary;
+	}
+
 	public void writeVisual(String message){
 		if(record_visual && machine instanceof Mesh){
-			AppendToLog(message+"\n","visual");
+			visualLog.append(message).append('\n');
 		}
 	}
 
-	static public void AppendToLog(String message, String extension){
+	public void AppendToLog(String message, String extension){
 		String outputDirectory=ActualStatistics.getOutputDirectory();
 
-		FileWriter rec = ActualStatistics.fileHandles.get(extension);
+		LogWriter rec = fileHandles.get(extension);
 
-		try{
-			if(rec == null)
-				System.err.println("Uninitialized log: "+outputDirectory+name+"."+extension);
-			rec.write(message);
-		} catch(IOException e){
-			System.err.println("ERROR WRITING TO "+outputDirectory+name+"."+extension);
-		}
+		if(rec == null)
+			System.err.println("Uninitialized log: "+outputDirectory+name+"."+extension);
+		rec.append(message);
 
 	}
 
@@ -227,14 +317,10 @@ public class ActualStatistics extends Statistics  {
 		if(record_wait)
 			writeWaiting(-1);
 
-		for(FileWriter fw : ActualStatistics.fileHandles.values()){
-			try{
-				fw.close();
-			}
-			catch(IOException e){
-				System.err.println("Error closing log file");
-			}
-		}
+		for(LogWriter log : fileHandles.values())
+			log.close();
+		for(ColumnLog.Writer log : columnLogs)
+			log.close();
 	}
 
 	//jobStarts() is called every time a job starts
@@ -256,6 +342,9 @@ public class ActualStatistics extends Statistics  {
 		if(record_wait)
 			writeWaiting(time);
 
+		if(fragLog != null)
+			writeFrag(time);
+
 		currentTime = time;
 	}
 
@@ -289,6 +378,9 @@ public class ActualStatistics extends Statistics  {
 		if(record_util)        //Write processor utilization over time to file
 			writeUtil(time);
 
+		if(fragLog != null)
+			writeFrag(time);
+
 		currentTime = time;   //Update current time
 	}
 
@@ -305,8 +397,11 @@ public class ActualStatistics extends Statistics  {
 		if(lastUtilTime == time) {  //update record of utilization for this time
 			lastUtil = procsUsed;
 		} else {  //actually record the previous utilization
-			ActualStatistics.AppendToLog(lastUtilTime + "\t" +    //Event time
-					lastUtil + "\n","util");	       //Procs used
+			if(utilCols != null)
+				utilCols.put(lastUtilTime).put(lastUtil);
+			else
+				utilLog.append(lastUtilTime).append('\t')  //Event time
+					.append(lastUtil).append('\n');      //Procs used
 			lastUtil = procsUsed;
 			lastUtilTime = time;
 		}
@@ -320,58 +415,30 @@ public class ActualStatistics extends Statistics  {
 		long startTime = allocInfo.job.getStartTime();
 		int procsneeded = allocInfo.job.getProcsNeeded();
 		
-
-		if(calcStrictFST && calcRelaxedFST){
-			long strictFST= allocInfo.job.getStrictFST();
-			long relaxedFST= allocInfo.job.getRelaxedFST();
-			ActualStatistics.AppendToLog(
-					allocInfo.job.getJobNum() + "\t" +  //Job Num
-							arrival + "\t" +			  //Arrival time
-							startTime + "\t" +		  //Start time(currentTime)
-							time + "\t" +                       //End time
-							runtime+ "\t" +                     //Run time
-							(startTime - arrival) + "\t" +      //Wait time
-							(time - arrival) + "\t" +           //Response time
-							procsneeded+ "\t" +                     //Processors needed
-							strictFST+ "\t" +                     //Strict FST time
-							relaxedFST + "\n","time");	          //Relaxed FST time
-		}else if(calcStrictFST && !calcRelaxedFST){
-			long strictFST= allocInfo.job.getStrictFST();
-			ActualStatistics.AppendToLog(
-					allocInfo.job.getJobNum() + "\t" +  //Job Num
-							arrival + "\t" +			  //Arrival time
-							startTime + "\t" +		  //Start time(currentTime)
-							time + "\t" +                       //End time
-							runtime+ "\t" +                     //Run time
-							(startTime - arrival) + "\t" +      //Wait time
-							(time - arrival) + "\t" +           //Response time
-							procsneeded+ "\t" +                   //Processors needed  
-							strictFST + "\n","time");	          //StrictFST time
-		}else if(!calcStrictFST && calcRelaxedFST){
-			long relaxedFST= allocInfo.job.getRelaxedFST();
-			ActualStatistics.AppendToLog(
-					allocInfo.job.getJobNum() + "\t" +  //Job Num
-							arrival + "\t" +			  //Arrival time
-							startTime + "\t" +		  //Start time(currentTime)
-							time + "\t" +                       //End time
-							runtime+ "\t" +                     //Run time
-							(startTime - arrival) + "\t" +      //Wait time
-							(time - arrival) + "\t" +           //Response time
-							procsneeded+ "\t" +                 //Processors needed    
-							relaxedFST + "\n","time");	       //fst time   
-			
-		}else if(!calcStrictFST && !calcRelaxedFST){
-			ActualStatistics.AppendToLog(
-					allocInfo.job.getJobNum() + "\t" +  //Job Num
-							arrival + "\t" +			  //Arrival time
-							startTime + "\t" +		  //Start time(currentTime)
-							time + "\t" +                       //End time
-							runtime+ "\t" +                     //Run time
-							(startTime - arrival) + "\t" +      //Wait time
-							(time - arrival) + "\t" +           //Response time
-							procsneeded+ "\n","time");	          //Processors needed
-
+		if(timeCols != null) {
+			timeCols.put(allocInfo.job.getJobNum()).put(arrival).put(startTime)
+					.put(time).put(runtime).put(startTime - arrival)
+					.put(time - arrival).put(procsneeded);
+			if(calcStrictFST)
+				timeCols.put(allocInfo.job.getStrictFST());
+			if(calcRelaxedFST)
+				timeCols.put(allocInfo.job.getRelaxedFST());
+			return;
 		}
+
+		timeLog.append(allocInfo.job.getJobNum()).append('\t')  //Job Num
+				.append(arrival).append('\t')                 //Arrival time
+				.append(startTime).append('\t')               //Start time(currentTime)
+				.append(time).append('\t')                    //End time
+				.append(runtime).append('\t')                 //Run time
+				.append(startTime - arrival).append('\t')     //Wait time
+				.append(time - arrival).append('\t')          //Response time
+				.append(procsneeded);                         //Processors needed
+		if(calcStrictFST)
+			timeLog.append('\t').append(allocInfo.job.getStrictFST());   //Strict FST time
+		if(calcRelaxedFST)
+			timeLog.append('\t').append(allocInfo.job.getRelaxedFST());  //Relaxed FST time
+		timeLog.append('\n');
 	}
 
 	private void writeWaiting(long time) {
@@ -388,9 +455,13 @@ public class ActualStatistics extends Statistics  {
 			waitingJobs = tempWaiting;
 			return;
 		} else {  //actually record the previous # waiting jobs
-			if (lastWaitJobs != waitingJobs)
-				ActualStatistics.AppendToLog( lastWaitTime + "\t" +    //Event time
-						waitingJobs + "\n","wait");//Procs used
+			if (lastWaitJobs != waitingJobs) {
+				if(waitCols != null)
+					waitCols.put(lastWaitTime).put(waitingJobs);
+				else
+					waitLog.append(lastWaitTime).append('\t')  //Event time
+							.append(waitingJobs).append('\n');   //Waiting jobs
+			}
 
 			lastWaitJobs = waitingJobs;
 			lastWaitTime = time;
@@ -403,10 +474,32 @@ public class ActualStatistics extends Statistics  {
 
 		MeshAllocInfo mai = (MeshAllocInfo)allocInfo;
 
-		ActualStatistics.AppendToLog(mai.job.getProcsNeeded() + "\t" +
-				mai.job.getActualTime() + "\t" +
-				Mesh.pairwiseL1Distance(mai.processors) + 
-				"\n","alloc");
+		allocLog.append(mai.job.getProcsNeeded()).append('\t')
+				.append(mai.job.getActualTime()).append('\t')
+				.append(Mesh.pairwiseL1Distance(mai.processors)).append('\n');
+	}
+
+	private void writeFrag(long time) {
+		//records how the MBS allocator's free processors are split into blocks
+
+		long free = 0;
+		for(int rank = 0; rank < mbs.numRanks(); rank++)
+			free += (long) mbs.numFreeBlocks(rank) * mbs.rankSize(rank);
+
+		fragLog.append(time).append('\t')
+				.append(free).append('\t')
+				.append(mbs.getSplits()).append('\t')
+				.append(mbs.getMerges());
+		long smaller = 0;  //free processors in blocks smaller than this rank's
+		for(int rank = 1; rank < mbs.numRanks(); rank++) {
+			smaller += (long) mbs.numFreeBlocks(rank-1) * mbs.rankSize(rank-1);
+			fragLog.append('\t');
+			if(free == 0)
+				fragLog.append(0);
+			else
+				fragLog.append(String.valueOf(Math.round(1000.0 * smaller / free) / 10.0));
+		}
+		fragLog.append('\n');
 	}
 
 	public void jobArrives(long time) {      //called when a job has arrived
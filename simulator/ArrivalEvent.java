@@ -13,7 +13,6 @@
 
 package simulator;
 
-import java.util.PriorityQueue;
 
 import simulator.allocator.Allocator;
 import simulator.scheduler.Scheduler;
@@ -42,9 +41,11 @@ public class ArrivalEvent extends Event {
 	}
 
 	public void happen(Machine mach, Allocator alloc, Scheduler sched,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		sched.jobArrives(arrivingJob, time);
+		long start = Metrics.start();
 		stats.jobArrives(time);
+		Metrics.stop(Metrics.STATS, start);
 		happenHelper(mach, alloc, sched, events, stats);
 	}
 	
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Feeds job arrivals into the event queue as the simulation reaches
+ * them rather than all at once, so the queue only holds the running
+ * jobs' events plus one pending arrival.
+ *
+ * The next arrival is always in the queue, which keeps same-time
+ * checks such as the one in Event.happenHelper seeing what they would
+ * if every arrival had been queued up front.  Jobs must come in order
+ * of arrival time (as they do in trace files).
+ */
+
+package simulator;
+
+import java.util.Iterator;
+
+public class ArrivalStream {
+
+	private Iterator<Job> jobs;     //jobs not yet put into the queue
+	private Machine machine;        //machine they must fit on
+	private ArrivalEvent pending;   //arrival in the queue (null if none)
+
+	public ArrivalStream(Iterator<Job> jobs, Machine machine) {
+		this.jobs = jobs;
+		this.machine = machine;
+		pending = null;
+	}
+
+	public static Iterator<Job> copiesOf(Iterable<Job> templates) {
+		//returns iterator giving copies of the jobs, so several
+		//simulations can run the same jobs without sharing them
+		final Iterator<Job> it = templates.iterator();
+		return new Iterator<Job>() {
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+			public Job next() {
+				return it.next().copy();
+			}
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	public void start(EventQueue events) {
+		//put the first arrival into the queue
+		feed(events);
+	}
+
+	public void eventRemoved(Event e, EventQueue events) {
+		//called with each event taken from the queue
+		//replaces the pending arrival once it is removed
+		if(e == pending)
+			feed(events);
+	}
+
+	private void feed(EventQueue events) {
+		if(!jobs.hasNext()) {
+			pending = null;
+			return;
+		}
+		Job j = jobs.next();
+		Main.checkJobFits(j, machine);
+		if(pending != null && j.getArrivalTime() < pending.getTime())
+			Main.error("Job " + j.getJobNum() + " arrives at " + j.getArrivalTime() +
+					", before the previous job (" + pending.getTime() +
+					"); trace must be sorted by arrival time");
+		pending = new ArrivalEvent(j);
+		events.add(pending);
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Compact binary version of a trace.  Reading one avoids the per-line
+ * Scanner parsing of the text traces; the file is memory mapped and
+ * each job is built directly from its columns when it is asked for.
+ * Use TraceConverter to create these files.
+ *
+ * Format (all values big-endian):
+ *   int   MAGIC
+ *   int   VERSION
+ *   int   flags (HAS_DIMS set if jobs are given as x-y-z shapes)
+ *   int   n, the number of jobs
+ * followed by one column after another, each with n entries:
+ *   long  arrival time
+ *   int   processors needed  (if HAS_DIMS, instead 3 columns: x, y, z)
+ *   long  actual running time
+ *   long  estimated running time (-1 if none given)
+ */
+
+package simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import mapping.TaskMapper;
+
+public class BinaryTrace {
+
+	public static final int MAGIC = 0x50524d54;  //"PRMT"
+	public static final int VERSION = 1;
+	public static final int HAS_DIMS = 1;
+
+	private static final int HEADER_SIZE = 16;
+
+	public static boolean isBinaryTrace(File file) {
+		//whether file starts like a binary trace
+		if(file.length() < HEADER_SIZE)
+			return false;
+		try {
+			FileInputStream in = new FileInputStream(file);
+			byte[] start = new byte[4];
+			int read = in.read(start);
+			in.close();
+			return (read == 4) &&
+					(((start[0] & 0xff) << 24 | (start[1] & 0xff) << 16 |
+							(start[2] & 0xff) << 8 | (start[3] & 0xff)) == MAGIC);
+		} catch(IOException e) {
+			return false;
+		}
+	}
+
+	private RandomAccessFile raf;
+	private MappedByteBuffer buf;
+	private boolean hasDims;      //whether jobs are stored as x-y-z shapes
+	private int n;                //number of jobs
+
+	//offsets of each column
+	private int arrivalCol;
+	private int procsCol;
+	private int actualCol;
+	private int estCol;
+
+	public BinaryTrace(File file) {
+		//opens (memory maps) a binary trace
+		try {
+			raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel();
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if(buf.getInt(0) != MAGIC)
+				Main.error(file + " is not a binary trace");
+			if(buf.getInt(4) != VERSION)
+				Main.error(file + " has unsupported binary trace version " + buf.getInt(4));
+			hasDims = (buf.getInt(8) & HAS_DIMS) != 0;
+			n = buf.getInt(12);
+
+			long expected = HEADER_SIZE + (long)n * (hasDims ? 36 : 28);
+			if(channel.size() != expected)
+				Main.error(file + " is truncated or corrupt (" + channel.size() +
+						" bytes; expected " + expected + ")");
+		} catch(IOException e) {
+			Main.error("Unable to read binary trace " + file + ": " + e.getMessage());
+		}
+
+		arrivalCol = HEADER_SIZE;
+		procsCol = arrivalCol + 8*n;
+		actualCol = procsCol + (hasDims ? 12 : 4)*n;
+		estCol = actualCol + 8*n;
+	}
+
+	public int size() {
+		return n;
+	}
+
+	public boolean hasDims() {
+		return hasDims;
+	}
+
+	public Job getJob(int i, boolean jobsHaveDim, boolean accurateEsts, TaskMapper map) {
+		//returns a new job for the ith entry of the trace
+		//jobsHaveDim says whether to create a ContiguousJob
+
+		long arrival = buf.getLong(arrivalCol + 8*i);
+		long actual = buf.getLong(actualCol + 8*i);
+		long est = buf.getLong(estCol + 8*i);
+		if(accurateEsts)
+			est = actual;
+		if(hasDims) {
+			int x = buf.getInt(procsCol + 4*i);
+			int y = buf.getInt(procsCol + 4*(n+i));
+			int z = buf.getInt(procsCol + 4*(2*n+i));
+			if(jobsHaveDim)
+				return new ContiguousJob(arrival, x, y, z, actual, est, map);
+			return new Job(arrival, x*y*z, actual, est, map);
+		}
+		if(jobsHaveDim)
+			Main.error("Contiguous allocation needs job dimensions, which this trace" +
+					" does not have");
+		return new Job(arrival, buf.getInt(procsCol + 4*i), actual, est, map);
+	}
+
+	public void close() {
+		try {
+			raf.close();
+		} catch(IOException e) {
+			Main.warning("Error closing binary trace");
+		}
+	}
+
+	/**
+	 * Collects jobs and writes them out as a binary trace.
+	 * Jobs are buffered in primitive arrays since the file is columnar.
+	 */
+	public static class Writer {
+
+		private boolean hasDims;
+		private int n = 0;
+		private long[] arrival = new long[1024];
+		private int[] procs = new int[3*1024];   //x,y,z interleaved if hasDims
+		private long[] actual = new long[1024];
+		private long[] est = new long[1024];
+
+		public Writer(boolean hasDims) {
+			this.hasDims = hasDims;
+		}
+
+		public int size() {
+			return n;
+		}
+
+		public void add(long arrivalTime, int procsNeeded, long actualTime, long estTime) {
+			if(hasDims)
+				Main.ierror("BinaryTrace.Writer needs job dimensions");
+			grow();
+			procs[n] = procsNeeded;
+			finishAdd(arrivalTime, actualTime, estTime);
+		}
+
+		public void add(long arrivalTime, int x, int y, int z, long actualTime, long estTime) {
+			if(!hasDims)
+				Main.ierror("BinaryTrace.Writer was not set up for job dimensions");
+			grow();
+			procs[3*n] = x;
+			procs[3*n+1] = y;
+			procs[3*n+2] = z;
+			finishAdd(arrivalTime, actualTime, estTime);
+		}
+
+		private void finishAdd(long arrivalTime, long actualTime, long estTime) {
+			arrival[n] = arrivalTime;
+			actual[n] = actualTime;
+			est[n] = estTime;
+			n++;
+		}
+
+		private void grow() {
+			if(n < arrival.length)
+				return;
+			int newLength = 2*arrival.length;
+			arrival = Arrays.copyOf(arrival, newLength);
+			procs = Arrays.copyOf(procs, 3*newLength);
+			actual = Arrays.copyOf(actual, newLength);
+			est = Arrays.copyOf(est, newLength);
+		}
+
+		public void write(File file) throws IOException {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(hasDims ? HAS_DIMS : 0);
+			out.writeInt(n);
+			for(int i=0; i<n; i++)
+				out.writeLong(arrival[i]);
+			if(hasDims) {
+				for(int dim=0; dim<3; dim++)
+					for(int i=0; i<n; i++)
+						out.writeInt(procs[3*i+dim]);
+			} else {
+				for(int i=0; i<n; i++)
+					out.writeInt(procs[i]);
+			}
+			for(int i=0; i<n; i++)
+				out.writeLong(actual[i]);
+			for(int i=0; i<n; i++)
+				out.writeLong(est[i]);
+			out.close();
+		}
+	}
+}
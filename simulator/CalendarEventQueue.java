@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Event queue kept as a calendar queue (R. Brown, "Calendar Queues: A
+ * Fast O(1) Priority Queue Implementation for the Simulation Event Set
+ * Problem", CACM 31(10), 1988).
+ *
+ * Time is divided into intervals ("days") of length width and events
+ * are hashed by day into a circular array of buckets, like appointments
+ * on a calendar covering one "year" of days.  Each bucket is kept in
+ * order, so the next event is the first one in the current day's bucket
+ * unless that bucket only holds events from later years.  With a width
+ * close to the typical gap between events, each bucket holds few events
+ * and add and poll take O(1) expected time.
+ *
+ * The number of buckets tracks the number of events, and the width is
+ * re-estimated from the spacing of the earliest events when the bucket
+ * count changes or when the queue notices it is doing too much work
+ * per operation (because the events have spread out or bunched up).
+ */
+
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class CalendarEventQueue extends EventQueue {
+
+	private static final int MIN_BUCKETS = 16;
+	private static final int SAMPLE_SIZE = 25;   //# events used to pick width
+	private static final int WORK_LIMIT = 8;     //recalibrate if average work per
+	                                             //  operation exceeds this
+
+	private Event[][] buckets;   //events in each bucket, first event last
+	private int[] counts;        //# events in each bucket
+	private int mask;            //# buckets - 1 (# buckets is a power of 2)
+	private long width = 1;      //length of time for each bucket
+
+	private int size;            //# events in queue
+
+	//where the search for the next event starts; no event is before
+	//currentStart, which is the start of a day mapping to bucket current
+	private int current;
+	private long currentStart;
+
+	//to detect a poorly chosen width:
+	private long ops;            //# operations since last recalibration
+	private long work;           //# buckets scanned and events moved in them
+	private boolean resizing;    //whether in the middle of resize
+
+	public CalendarEventQueue() {
+		makeBuckets(MIN_BUCKETS);
+	}
+
+	public static CalendarEventQueue Make(ArrayList<String> params) {
+		Factory.argsAtLeast(0,params);
+		Factory.argsAtMost(0,params);
+		return new CalendarEventQueue();
+	}
+
+	public static String getParamHelp() {
+		return "\n\tCalendar queue (buckets sized to the spacing of events)";
+	}
+
+	public String getSetupInfo(boolean comment) {
+		String com;
+		if(comment) com="# ";
+		else com="";
+		return com+"Calendar event queue";
+	}
+
+	private void makeBuckets(int num) {
+		buckets = new Event[num][];
+		counts = new int[num];
+		mask = num - 1;
+	}
+
+	private int bucketOf(long time) {
+		return (int)(Math.floorDiv(time, width) & mask);
+	}
+
+	private void moveTo(long time) {
+		//make the search for the next event start at the given time
+		current = bucketOf(time);
+		currentStart = Math.floorDiv(time, width) * width;
+	}
+
+	public void add(Event e) {
+		if(size == 0 || e.getTime() < currentStart)
+			moveTo(e.getTime());
+		insert(e);
+		size++;
+		countOp();
+		if(size > 2 * (mask + 1))
+			resize(2 * (mask + 1));
+	}
+
+	private void insert(Event e) {
+		//put e in its bucket; events in a bucket are sorted w/ the first last
+
+		int b = bucketOf(e.getTime());
+		Event[] bucket = buckets[b];
+		int num = counts[b];
+		if(bucket == null) {
+			bucket = new Event[4];
+			buckets[b] = bucket;
+		} else if(num == bucket.length) {
+			Event[] bigger = new Event[2 * num];
+			System.arraycopy(bucket, 0, bigger, 0, num);
+			bucket = bigger;
+			buckets[b] = bucket;
+		}
+
+		//find position by binary search
+		int lo = 0;
+		int hi = num;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(bucket[mid].compareTo(e) > 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		System.arraycopy(bucket, lo, bucket, lo + 1, num - lo);
+		bucket[lo] = e;
+		counts[b] = num + 1;
+		work += num - lo;
+	}
+
+	private int locate() {
+		//returns bucket holding the next event (there must be one)
+		//moves current there along the way
+
+		for(int n = 0; n <= mask; n++) {
+			int num = counts[current];
+			if(num > 0 && buckets[current][num-1].getTime() - currentStart < width)
+				return current;
+			current = (current + 1) & mask;
+			currentStart += width;
+			work++;
+		}
+
+		//nothing in a whole year; find the first event directly
+		int first = -1;
+		for(int b = 0; b <= mask; b++) {
+			if(counts[b] > 0 && (first == -1 ||
+					buckets[b][counts[b]-1].compareTo(buckets[first][counts[first]-1]) < 0))
+				first = b;
+		}
+		work += mask + 1;
+		moveTo(buckets[first][counts[first]-1].getTime());
+		return first;
+	}
+
+	public Event poll() {
+		if(size == 0)
+			return null;
+		int b = locate();
+		int num = counts[b] - 1;
+		Event retVal = buckets[b][num];
+		buckets[b][num] = null;
+		counts[b] = num;
+		size--;
+		countOp();
+		if(size < (mask + 1) / 2 && mask + 1 > MIN_BUCKETS)
+			resize((mask + 1) / 2);
+		return retVal;
+	}
+
+	public Event peek() {
+		if(size == 0)
+			return null;
+		int b = locate();
+		return buckets[b][counts[b]-1];
+	}
+
+	public boolean remove(Event e) {
+		int b = bucketOf(e.getTime());
+		int num = counts[b];
+		for(int i = 0; i < num; i++) {
+			if(buckets[b][i] == e) {
+				System.arraycopy(buckets[b], i + 1, buckets[b], i, num - i - 1);
+				buckets[b][num-1] = null;
+				counts[b] = num - 1;
+				size--;
+				countOp();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		makeBuckets(MIN_BUCKETS);
+		size = 0;
+		ops = 0;
+		work = 0;
+	}
+
+	private void countOp() {
+		//notes an operation; recalibrates if they've been doing too much work
+		ops++;
+		if(ops >= 2 * (mask + 1) + 64) {
+			if(work > WORK_LIMIT * ops && !resizing)
+				resize(mask + 1);
+			ops = 0;
+			work = 0;
+		}
+	}
+
+	private void resize(int num) {
+		//rebuilds w/ num buckets and a new width
+
+		if(resizing)
+			return;
+		resizing = true;
+
+		//take the first few events to see how far apart they are
+		int numSample = Math.min(SAMPLE_SIZE, size);
+		Event[] sample = new Event[numSample];
+		for(int i = 0; i < numSample; i++)
+			sample[i] = poll();
+
+		if(numSample > 1) {
+			long span = sample[numSample-1].getTime() - sample[0].getTime();
+			if(span > 0) {
+				//average gap, ignoring gaps much bigger than average
+				double avg = (double)span / (numSample - 1);
+				long total = 0;
+				int gaps = 0;
+				for(int i = 1; i < numSample; i++) {
+					long gap = sample[i].getTime() - sample[i-1].getTime();
+					if(gap <= 2 * avg) {
+						total += gap;
+						gaps++;
+					}
+				}
+				width = Math.max(1, 3 * total / gaps);
+			}
+		}
+
+		//put everything into the new buckets
+		Event[][] oldBuckets = buckets;
+		int[] oldCounts = counts;
+		makeBuckets(num);
+		for(int b = 0; b < oldBuckets.length; b++)
+			for(int i = 0; i < oldCounts[b]; i++)
+				insert(oldBuckets[b][i]);
+		for(int i = 0; i < numSample; i++)
+			insert(sample[i]);
+		size += numSample;
+		if(numSample > 0)
+			moveTo(sample[0].getTime());
+
+		ops = 0;
+		work = 0;
+		resizing = false;
+	}
+
+	public Iterator<Event> iterator() {
+		return new Iterator<Event>() {
+			private int bucket = 0;
+			private int index = 0;
+
+			public boolean hasNext() {
+				while(bucket <= mask && index >= counts[bucket]) {
+					bucket++;
+					index = 0;
+				}
+				return bucket <= mask;
+			}
+
+			public Event next() {
+				if(!hasNext())
+					throw new NoSuchElementException();
+				return buckets[bucket][index++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
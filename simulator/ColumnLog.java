@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Binary columnar version of a log (written instead of the text .time,
+ * .util and .wait logs when "binary" is included in logs=).  Every value
+ * is a long; reading one avoids parsing text, and the file is memory
+ * mapped with each column gathered into an array.  LogSummary computes
+ * the usual metrics from these files.
+ *
+ * Format (all values big-endian):
+ *   int   MAGIC
+ *   int   VERSION
+ *   long  # processors in the machine
+ *   int   length of header text, followed by the text (UTF-8); this is
+ *           the "#" header of the text logs
+ *   int   c, the number of columns
+ *   c column names, each an int length followed by the name (UTF-8)
+ * followed by blocks (so the log can be written as the simulation runs):
+ *   int   r, the number of rows in the block (at most BLOCK_ROWS)
+ *   one column after another, each with r longs
+ */
+
+package simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class ColumnLog {
+
+	public static final int MAGIC = 0x50524d4c;  //"PRML"
+	public static final int VERSION = 1;
+	public static final int BLOCK_ROWS = 4096;
+
+	public static final String EXTENSION = ".col";  //added to log's usual extension
+
+	private String[] names;       //column names
+	private long[][] columns;     //values in each column
+	private int rows;
+	private long procs;           //# processors in machine
+	private String header;
+
+	public ColumnLog(File file) {
+		//reads a columnar log
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if(buf.getInt() != MAGIC)
+				Main.error(file + " is not a columnar log");
+			int version = buf.getInt();
+			if(version != VERSION)
+				Main.error(file + " has unsupported columnar log version " + version);
+			procs = buf.getLong();
+			header = getString(buf);
+			names = new String[buf.getInt()];
+			for(int c = 0; c < names.length; c++)
+				names[c] = getString(buf);
+
+			columns = new long[names.length][BLOCK_ROWS];
+			rows = 0;
+			while(buf.hasRemaining()) {
+				int num = buf.getInt();
+				if(num < 0 || (long)num * 8 * names.length > buf.remaining())
+					Main.error(file + " is truncated or corrupt");
+				if(rows + num > columns[0].length)
+					for(int c = 0; c < names.length; c++)
+						columns[c] = Arrays.copyOf(columns[c],
+								Math.max(rows + num, 2 * columns[c].length));
+				for(int c = 0; c < names.length; c++)
+					for(int i = 0; i < num; i++)
+						columns[c][rows + i] = buf.getLong();
+				rows += num;
+			}
+			raf.close();
+		} catch(IOException e) {
+			Main.error("Unable to read columnar log " + file + ": " + e.getMessage());
+		} catch(java.nio.BufferUnderflowException e) {
+			Main.error(file + " is truncated or corrupt");
+		}
+	}
+
+	private static String getString(MappedByteBuffer buf) {
+		byte[] bytes = new byte[buf.getInt()];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public int size() {
+		return rows;
+	}
+
+	public long getProcs() {
+		return procs;
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	public boolean hasColumn(String name) {
+		return Arrays.asList(names).contains(name);
+	}
+
+	public long[] getColumn(String name) {
+		//returns values of named column (array may be longer than size())
+		int c = Arrays.asList(names).indexOf(name);
+		if(c == -1)
+			Main.error("Columnar log has no column " + name);
+		return columns[c];
+	}
+
+	/**
+	 * Writes a columnar log as the simulation runs.  Values are given a
+	 * row at a time, in column order, with put; each block of rows is
+	 * written once it is full.
+	 */
+	public static class Writer {
+
+		private LogWriter out;
+		private long[][] columns;     //values in current block
+		private int rows = 0;         //# complete rows in current block
+		private int next = 0;         //column of next value
+
+		public Writer(String fileName, String[] names, long procs, String header)
+				throws IOException {
+			out = new LogWriter(fileName);
+			columns = new long[names.length][BLOCK_ROWS];
+
+			out.putInt(MAGIC).putInt(VERSION).putLong(procs);
+			putString(header);
+			out.putInt(names.length);
+			for(String name : names)
+				putString(name);
+		}
+
+		private void putString(String s) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.putInt(bytes.length).put(bytes);
+		}
+
+		public Writer put(long value) {
+			columns[next][rows] = value;
+			next++;
+			if(next == columns.length) {
+				next = 0;
+				rows++;
+				if(rows == BLOCK_ROWS)
+					writeBlock();
+			}
+			return this;
+		}
+
+		private void writeBlock() {
+			out.putInt(rows);
+			for(long[] column : columns)
+				for(int i = 0; i < rows; i++)
+					out.putLong(column[i]);
+			rows = 0;
+		}
+
+		public void close() {
+			if(next != 0)
+				Main.ierror("Columnar log closed in the middle of a row");
+			if(rows > 0)
+				writeBlock();
+			out.close();
+		}
+	}
+}
@@ -35,6 +35,13 @@ public class ContiguousJob extends Job {
 		initialize(x, y, z);
 	}
 
+	ContiguousJob(long ArrivalTime, int x, int y, int z,
+			long ActualRunningTime, long EstRunningTime, TaskMapper map) {
+		//used when reading binary traces
+		initialize(ArrivalTime, x * y * z, ActualRunningTime, EstRunningTime, map);
+		initialize(x, y, z);
+	}
+
 	private void initialize(int x, int y, int z) {
 		this.x = x;
 		this.y = y;
@@ -42,6 +49,17 @@ public class ContiguousJob extends Job {
 		original = new ThreeDimension(x, y, z);
 	}
 
+	protected ContiguousJob(ContiguousJob other) {
+		//copy constructor; the copy keeps other's job number
+		super(other);
+		initialize(other.original.getX(), other.original.getY(),
+				other.original.getZ());
+	}
+
+	public Job copy() {
+		return new ContiguousJob(this);
+	}
+
 	ContiguousJob(Scanner input, boolean accurateEsts, TaskMapper map) {
 		String line = input.nextLine();
 		Scanner lineScanner = new Scanner(line);
@@ -85,7 +103,8 @@ public class ContiguousJob extends Job {
 		for (int i = 1; i <= (x * y * z); i++) {
 			int left = (x * y * z) / i;
 			for (int j = 1; j <= left; j++) {
-				shapes.add(new ThreeDimension(i, j, ((x * y * z) / (j * i))));
+				if ((x * y * z) % (j * i) == 0)  //(only shapes w/ the job's size)
+					shapes.add(new ThreeDimension(i, j, ((x * y * z) / (j * i))));
 			}
 		}
 	}
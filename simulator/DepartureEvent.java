@@ -13,7 +13,6 @@
 
 package simulator;
 
-import java.util.PriorityQueue;
 import simulator.allocator.AllocInfo;
 import simulator.allocator.Allocator;
 import simulator.scheduler.Scheduler;
@@ -36,10 +35,12 @@ public class DepartureEvent extends Event {
 	}
 
 	public void happen(Machine mach, Allocator alloc, Scheduler sched,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		mach.deallocate(allocationInfo);
 		alloc.deallocate(allocationInfo);
+		long start = Metrics.start();
 		stats.jobFinishes(allocationInfo, getTime());
+		Metrics.stop(Metrics.STATS, start);
 		sched.jobFinishes(allocationInfo.job, getTime());
 		happenHelper(mach, alloc, sched, events, stats);
 	}
@@ -13,7 +13,6 @@
 
 package simulator;
 
-import java.util.PriorityQueue;
 import simulator.allocator.AllocInfo;
 import simulator.allocator.Allocator;
 import simulator.scheduler.Scheduler;
@@ -23,13 +22,11 @@ public abstract class Event implements Comparable<Event> {
 	protected long time;         //when the event occurs
 
 	private int eventNum;      //the event's unique number
-
-	private static int nextEventNum = 0;  //number to assign next Event
+	                           //(assigned by the current Simulation)
 
 	public Event(long Time) {
 		time = Time;
-		eventNum = nextEventNum;
-		nextEventNum++;
+		eventNum = Simulation.current().nextEventNum();
 	}
 
 	public long getTime() {
@@ -37,12 +34,13 @@ public abstract class Event implements Comparable<Event> {
 	}
 
 	public int compareTo(Event other) {
+		//(compares rather than subtracts since times can be far apart)
 		if(time == other.time) {
 			if(type() == other.type())
-				return (eventNum - other.eventNum);
-			return (type() - other.type());
+				return Integer.compare(eventNum, other.eventNum);
+			return Integer.compare(type(), other.type());
 		}
-		return (int)(time-other.time);
+		return Long.compare(time, other.time);
 	}
 
 	abstract public int type();  //returns code indicating type of event:
@@ -51,10 +49,10 @@ public abstract class Event implements Comparable<Event> {
 	public static final int TIMER = 2;
 
 	abstract public void happen(Machine mach, Allocator alloc, Scheduler sched, 
-			PriorityQueue<Event> events, Statistics stats);
+			EventQueue events, Statistics stats);
 
 	protected void happenHelper(Machine mach, Allocator alloc, Scheduler sched, 
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		//the commmon part of different subclass's happen methods;
 		//tries to start jobs if appropriate
 		
@@ -62,8 +60,11 @@ public abstract class Event implements Comparable<Event> {
 				(events.peek().getTime() != time)) {
 			AllocInfo allocInfo;
 			do {
+				long start = Metrics.start();
 				allocInfo = sched.tryToStart(alloc, time, mach, events, stats);
+				Metrics.stop(Metrics.TRY_TO_START, start);
 			} while(allocInfo != null);
+			Metrics.count(Metrics.STARTS_FAILED, 1);  //(the last call)
 		}
 	}
 
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * The queue of pending events for a simulation.  Events come out in the
+ * order given by Event.compareTo (time, then type, then the order they
+ * were made).  Iterating over the queue visits every event but not in
+ * any particular order.
+ *
+ * Subclasses are created through Main's event queue factory so the
+ * implementation can be chosen on the command line.
+ */
+
+package simulator;
+
+public abstract class EventQueue implements Iterable<Event>, HasSetupInfo {
+
+	public abstract void add(Event e);
+
+	public abstract Event poll();
+	//removes and returns the first event (null if there are none)
+
+	public abstract Event peek();
+	//returns the first event without removing it (null if there are none)
+
+	public abstract boolean remove(Event e);
+	//removes the given event; returns whether it was in the queue
+
+	public abstract int size();
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public abstract void clear();
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Computes fair start times (FSTs) by "side simulations": when a job
+ * arrives, a copy of the scheduler is run on a SimpleMachine holding
+ * the jobs already in the system, and the new job (the probe) gets the
+ * time it starts there.  For the strict FST, the probe arrives right
+ * away; for the relaxed FST, it arrives once no other jobs are waiting.
+ *
+ * The state a side simulation starts from is taken once per arrival as
+ * a Snapshot: the number of free processors and the pending departures,
+ * sorted.  The snapshot is only read, so the strict and relaxed side
+ * simulations share it; each one keeps the departures of jobs it starts
+ * in a queue of its own and merges the two.  A side simulation ends as
+ * soon as the probe starts since nothing after that changes its FST, so
+ * later departures are never replayed.
+ *
+ * Each side simulation runs in a Simulation of its own (see
+ * Simulation.sideSimulation) and leaves the jobs unchanged except for
+ * setting the probe's FST.  With more than one thread (setThreads) and a
+ * scheduler whose copies are independent of it, the side simulations
+ * for each arrival are therefore handed to a pool of threads while the
+ * main simulation continues; it only waits for a job's FSTs when the job
+ * finishes (so they are known when its line of the time log is written).
+ */
+
+package simulator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import simulator.allocator.AllocInfo;
+import simulator.allocator.SimpleAllocator;
+import simulator.scheduler.CopyableScheduler;
+import simulator.scheduler.Scheduler;
+
+public class FSTEstimator {
+
+	private static final boolean debug = false;
+
+	//most arrivals whose side simulations can be waiting in the pool
+	//  per thread (to bound the memory used by their snapshots)
+	private static final int MAX_PENDING_PER_THREAD = 64;
+
+	private static int threads = 1;          //# threads for side simulations
+	private static ForkJoinPool pool = null; //(made when first needed)
+
+	private boolean strict;        //which FSTs to compute
+	private boolean relaxed;
+	private boolean parallel;      //whether using the pool
+
+	//side simulations given to the pool that may not be done, in order
+	//  of arrival and by probe job
+	private ArrayDeque<Arrival> pending = new ArrayDeque<Arrival>();
+	private HashMap<Job,Arrival> pendingByJob = new HashMap<Job,Arrival>();
+
+	public static void setThreads(int num) {
+		//sets # threads used for side simulations (1 to run them in the
+		//  main simulation's thread)
+		if(num < 1)
+			Main.error("Number of FST threads must be positive");
+		threads = num;
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if(pool == null)
+			pool = new ForkJoinPool(threads);
+		return pool;
+	}
+
+	public FSTEstimator(Scheduler sched, boolean strict, boolean relaxed) {
+		//prepares to compute FSTs for the simulation using sched
+		if(!(sched instanceof CopyableScheduler))
+			Main.error("Fair start times need a scheduler that can be copied");
+		this.strict = strict;
+		this.relaxed = relaxed;
+		parallel = (threads > 1) && ((CopyableScheduler)sched).copiesAreIndependent();
+	}
+
+	/**
+	 * State of the simulation when a job arrives.
+	 */
+	public static class Snapshot {
+
+		private int numProcs;         //size of the machine
+		private int numFree;          //# free processors
+		private Event[] departures;   //pending departures, in order
+
+		public Snapshot(Machine mach, EventQueue events) {
+			numProcs = mach.numProcs();
+			numFree = mach.numFreeProcessors();
+
+			int num = 0;
+			departures = new Event[events.size()];
+			for(Event ev : events)
+				if(ev instanceof DepartureEvent)
+					departures[num++] = ev;
+			departures = Arrays.copyOf(departures, num);
+			Arrays.sort(departures);
+		}
+	}
+
+	public void jobArrives(Machine mach, Scheduler sched, EventQueue events,
+			Event e, boolean beginWithStart) {
+		//computes (or starts computing) the FSTs of job arriving in event e
+		//beginWithStart says whether to start jobs before the arrival
+		//  (needed when the arrival is at the same time as the last event,
+		//  which didn't try to start jobs)
+
+		Snapshot snapshot = new Snapshot(mach, events);
+		if(!parallel) {
+			if(strict)
+				new SideSimulation(sched, snapshot, e, false, false).run();
+			if(relaxed)
+				new SideSimulation(sched, snapshot, e, true, beginWithStart).run();
+			return;
+		}
+
+		Arrival a = new Arrival(e.getJob(),
+				strict ? new SideSimulation(sched, snapshot, e, false, false) : null,
+				relaxed ? new SideSimulation(sched, snapshot, e, true, beginWithStart) : null);
+		while(pending.size() >= MAX_PENDING_PER_THREAD * threads)
+			finish(pending.peekFirst());
+		pending.addLast(a);
+		pendingByJob.put(a.probe, a);
+		getPool().execute(a);
+	}
+
+	public void jobFinishes(Job j) {
+		//waits until FSTs of j are known
+		Arrival a = pendingByJob.get(j);
+		if(a != null)
+			finish(a);
+	}
+
+	public void done() {
+		//waits for all FSTs to be known
+		while(!pending.isEmpty())
+			finish(pending.peekFirst());
+	}
+
+	private void finish(Arrival a) {
+		a.join();
+		pending.remove(a);
+		pendingByJob.remove(a.probe);
+	}
+
+	private static class Arrival extends RecursiveAction {
+		//the side simulations for one arrival, run by the pool
+
+		private static final long serialVersionUID = 1L;  //(never serialized)
+		private Job probe;
+		private SideSimulation strict;    //(either may be null)
+		private SideSimulation relaxed;
+
+		public Arrival(Job probe, SideSimulation strict, SideSimulation relaxed) {
+			this.probe = probe;
+			this.strict = strict;
+			this.relaxed = relaxed;
+		}
+
+		protected void compute() {
+			if(strict != null)
+				strict.run();
+			if(relaxed != null)
+				relaxed.run();
+			strict = relaxed = null;  //(done with their copies)
+		}
+	}
+
+	private static class SideSimulation {
+		//the side simulation for one FST of one job
+
+		private Simulation sim;
+		private SimpleMachine machine;
+		private Scheduler sched;        //copy of the real scheduler
+		private Snapshot snapshot;
+		private Event arrival;          //arrival of probe job
+		private boolean relaxed;
+		private boolean beginWithStart;
+
+		private int nextDeparture = 0;  //first departure of snapshot not yet used
+		private EventQueue added = new HeapEventQueue();  //events added by this
+		                                                  //  side simulation
+
+		public SideSimulation(Scheduler scheduler, Snapshot snapshot, Event arrival,
+				boolean relaxed, boolean beginWithStart) {
+			//copies the scheduler now so it can run later
+
+			this.snapshot = snapshot;
+			this.arrival = arrival;
+			this.relaxed = relaxed;
+			this.beginWithStart = beginWithStart;
+
+			machine = new SimpleMachine(snapshot.numProcs);
+			machine.numAvail = snapshot.numFree;
+			sim = Simulation.current().sideSimulation(machine);
+			Simulation previous = Simulation.setCurrent(sim);  //(so copy sees machine)
+			sched = ((CopyableScheduler)scheduler).copy();
+			Simulation.setCurrent(previous);
+		}
+
+		private Event peek() {
+			//returns next event of side simulation (null if none)
+			Event fromSnapshot = (nextDeparture < snapshot.departures.length) ?
+					snapshot.departures[nextDeparture] : null;
+			Event fromAdded = added.peek();
+			if(fromSnapshot == null)
+				return fromAdded;
+			if(fromAdded == null || fromSnapshot.compareTo(fromAdded) < 0)
+				return fromSnapshot;
+			return fromAdded;
+		}
+
+		private Event poll() {
+			//removes and returns next event of side simulation (null if none)
+			Event retVal = peek();
+			if(retVal != null && nextDeparture < snapshot.departures.length &&
+					retVal == snapshot.departures[nextDeparture])
+				nextDeparture++;
+			else
+				added.poll();
+			return retVal;
+		}
+
+		private boolean isEmpty() {
+			return nextDeparture == snapshot.departures.length && added.isEmpty();
+		}
+
+		public void run() {
+			//sets strict or relaxed FST of the probe
+
+			Simulation previous = Simulation.setCurrent(sim);
+			SimpleAllocator duplicateAlloc = new SimpleAllocator(machine);
+			Statistics stats = new Statistics();
+
+			Job probe = arrival.getJob();
+			long currentTime = arrival.getTime();
+			if(debug)
+				System.out.println("Cloned Event called for job: " + probe.getJobNum());
+			EventQueue temp = new HeapEventQueue();  //to look at new departureEvents
+			boolean wasInitiallyWaiting = sched.hasJobsWaiting();
+			boolean alreadyAdded = false;
+			if(beginWithStart) {  //Start Jobs immediately
+				AllocInfo allocInfo = null;
+				do {
+					allocInfo = sched.tryToStart(duplicateAlloc, arrival.getTime(), machine, added, stats);
+				} while(allocInfo != null);
+				if(relaxed && wasInitiallyWaiting) {
+					if(!sched.hasJobsWaiting()) {
+						added.add(arrival);
+						alreadyAdded = true;
+					}
+				}
+			}
+
+			if(!relaxed || !wasInitiallyWaiting) {
+				added.add(arrival);
+				alreadyAdded = true;
+			}
+			if(isEmpty() && wasInitiallyWaiting && relaxed) {
+				sched.tryToStart(duplicateAlloc, arrival.getTime(), machine, added, stats);
+				if(!sched.hasJobsWaiting()) {
+					added.add(arrival);
+					alreadyAdded = true;
+				}
+			}
+
+			while(!isEmpty()) {
+				Event e2 = poll();  //remove first event
+				currentTime = e2.getTime();
+				temp.clear();
+				Event copied = null;
+				Event next = peek();
+				if((next != null) && (next.getTime() == e2.getTime())) {
+					//next event at same time; tell happen so it waits to start jobs
+					copied = next;
+					temp.add(copied);
+				}
+				e2.happen(machine, duplicateAlloc, sched, temp, stats);
+
+				//anything else in temp is the departure of a job that just started
+				for(Event e3 : temp) {
+					if(e3 != copied) {
+						added.add(e3);
+						if(!(e3 instanceof DepartureEvent))
+							Main.ierror("happen added a non-DepartureEvent");
+					}
+				}
+				if(!sched.hasJobsWaiting() && !alreadyAdded && relaxed) {
+					added.add(new ArrivalEvent(probe, currentTime));
+					alreadyAdded = true;
+				}
+
+				if(sim.getStartTime(probe) != -1)
+					break;  //later events can't change when it started
+			}
+
+			long start = sim.getStartTime(probe);
+			if(start == -1)
+				Main.ierror("Job " + probe.getJobNum() + " never started in side simulation");
+			if(relaxed)
+				probe.setRelaxedFST(start);
+			else
+				probe.setStrictFST(start);
+
+			Simulation.setCurrent(previous);
+			if(debug)
+				System.out.println("Cloned Event finished ");
+		}
+	}
+}
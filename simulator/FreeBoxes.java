@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * The maximal free boxes of a Mesh: the boxes of free processors that
+ * cannot be extended in any direction without including a busy one
+ * (the maximal empty rectangles of 2D placement, in 3D).  Every free box
+ * is inside one of them, so they tell whether a job of a given shape
+ * fits, and where, without looking at the processors.
+ *
+ * The Mesh keeps them up to date as processors are allocated and
+ * deallocated once they have been asked for (see Mesh.getFreeBoxes).
+ * When a box becomes busy, each maximal box it overlaps is replaced by
+ * its parts on each side of it (those that are still maximal).  When a
+ * box becomes free, the maximal boxes overlapping it are found by
+ * growing from it (finding the free run along z from each line of
+ * processors at most once for each starting height), and the old ones
+ * inside them are dropped.
+ *
+ * Keeping them up to date costs more than the contiguous allocators'
+ * scans of the mesh for the meshes and traces we have tried, so those
+ * only use them when given the "boxes" option.
+ */
+
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class FreeBoxes {
+
+	/**
+	 * A box of processors; the bounds are inclusive.  (Never modified,
+	 * so copies of the index share them.)
+	 */
+	private static class Box {
+		final int x0, y0, z0;
+		final int x1, y1, z1;
+
+		Box(int x0, int y0, int z0, int x1, int y1, int z1) {
+			this.x0 = x0;
+			this.y0 = y0;
+			this.z0 = z0;
+			this.x1 = x1;
+			this.y1 = y1;
+			this.z1 = z1;
+		}
+
+		boolean fits(int xlen, int ylen, int zlen) {
+			//whether a box of the given size fits inside this one
+			return (x1 - x0 + 1 >= xlen) && (y1 - y0 + 1 >= ylen) &&
+					(z1 - z0 + 1 >= zlen);
+		}
+
+		boolean intersects(Box other) {
+			return (x0 <= other.x1) && (other.x0 <= x1) &&
+					(y0 <= other.y1) && (other.y0 <= y1) &&
+					(z0 <= other.z1) && (other.z0 <= z1);
+		}
+
+		boolean touches(Box other) {
+			//whether other intersects this box or is next to it
+			return (x0 <= other.x1 + 1) && (other.x0 <= x1 + 1) &&
+					(y0 <= other.y1 + 1) && (other.y0 <= y1 + 1) &&
+					(z0 <= other.z1 + 1) && (other.z0 <= z1 + 1);
+		}
+
+		boolean contains(Box other) {
+			return (x0 <= other.x0) && (other.x1 <= x1) &&
+					(y0 <= other.y0) && (other.y1 <= y1) &&
+					(z0 <= other.z0) && (other.z1 <= z1);
+		}
+
+		void addPieces(Box hole, ArrayList<Box> pieces) {
+			//adds to pieces the parts of this box on each side of hole
+			//(a box inside this one avoids hole iff it is in one of them)
+			if(x0 < hole.x0)
+				pieces.add(new Box(x0, y0, z0, hole.x0 - 1, y1, z1));
+			if(hole.x1 < x1)
+				pieces.add(new Box(hole.x1 + 1, y0, z0, x1, y1, z1));
+			if(y0 < hole.y0)
+				pieces.add(new Box(x0, y0, z0, x1, hole.y0 - 1, z1));
+			if(hole.y1 < y1)
+				pieces.add(new Box(x0, hole.y1 + 1, z0, x1, y1, z1));
+			if(z0 < hole.z0)
+				pieces.add(new Box(x0, y0, z0, x1, y1, hole.z0 - 1));
+			if(hole.z1 < z1)
+				pieces.add(new Box(x0, y0, hole.z1 + 1, x1, y1, z1));
+		}
+
+		int sideOf(Box hole) {
+			//returns which side of hole this box (one of the pieces made
+			//  by addPieces) is on, numbered in the order they are added
+			if(x1 < hole.x0)
+				return 0;
+			if(hole.x1 < x0)
+				return 1;
+			if(y1 < hole.y0)
+				return 2;
+			if(hole.y1 < y0)
+				return 3;
+			if(z1 < hole.z0)
+				return 4;
+			return 5;
+		}
+	}
+
+	private Mesh mesh;             //mesh whose free boxes these are
+	private ArrayList<Box> boxes;  //the maximal free boxes (in no order)
+
+	//# free processors in a row from each line of processors along z
+	//  (at x*ydim+y) starting at z coordinate lineZ; entries are only
+	//  valid if lineStamp matches stamp (so they can be dropped when
+	//  lineZ changes w/o clearing)
+	private int[] lineRun = null;
+	private int[] lineStamp = null;
+	private int stamp = 0;
+	private int lineZ;
+
+	FreeBoxes(Mesh mesh) {
+		//finds the maximal free boxes of mesh
+		this.mesh = mesh;
+		boxes = new ArrayList<Box>();
+		boxes.add(new Box(0, 0, 0, mesh.getXDim() - 1, mesh.getYDim() - 1,
+				mesh.getZDim() - 1));
+		for(int i = mesh.nextUsed(0); i != -1; i = mesh.nextUsed(i+1)) {
+			int x = mesh.xOf(i);
+			int y = mesh.yOf(i);
+			int z = mesh.zOf(i);
+			occupy(x, y, z, x, y, z);
+		}
+	}
+
+	FreeBoxes(FreeBoxes other, Mesh mesh) {
+		//copy of other for mesh (a copy of other's mesh)
+		this.mesh = mesh;
+		boxes = new ArrayList<Box>(other.boxes);
+	}
+
+	public int size() {
+		//returns # maximal free boxes
+		return boxes.size();
+	}
+
+	public MeshLocation firstFit(int xlen, int ylen, int zlen) {
+		//returns the first corner (ordered by z, then y, then x) at which
+		//  a box of the given size is free; null if there is none
+		//(a box fits in a maximal one iff its corner does, so it is the
+		//  first corner of a maximal box it fits in)
+		Box first = null;
+		for(Box b : boxes)
+			if(b.fits(xlen, ylen, zlen) && (first == null || b.z0 < first.z0 ||
+					(b.z0 == first.z0 && (b.y0 < first.y0 ||
+							(b.y0 == first.y0 && b.x0 < first.x0)))))
+				first = b;
+		if(first == null)
+			return null;
+		return mesh.location(first.x0, first.y0, first.z0);
+	}
+
+	public boolean fitsAvoiding(int xlen, int ylen, int zlen,
+			int x, int y, int z, int holeXLen, int holeYLen, int holeZLen) {
+		//returns whether a box of size xlen x ylen x zlen is free without
+		//  using the box at corner (x,y,z) of size holeXLen x holeYLen x holeZLen
+		Box hole = new Box(x, y, z, x + holeXLen - 1, y + holeYLen - 1,
+				z + holeZLen - 1);
+		ArrayList<Box> pieces = new ArrayList<Box>(6);
+		for(Box b : boxes) {
+			if(!b.fits(xlen, ylen, zlen))
+				continue;
+			if(!b.intersects(hole))
+				return true;
+			pieces.clear();
+			b.addPieces(hole, pieces);
+			for(Box p : pieces)
+				if(p.fits(xlen, ylen, zlen))
+					return true;
+		}
+		return false;
+	}
+
+	void occupy(int x0, int y0, int z0, int x1, int y1, int z1) {
+		//updates boxes after the (previously free) box with the given
+		//  bounds becomes busy
+
+		Box busy = new Box(x0, y0, z0, x1, y1, z1);
+		ArrayList<Box> kept = new ArrayList<Box>(boxes.size());
+		ArrayList<Box> pieces = new ArrayList<Box>();
+		for(Box b : boxes) {
+			if(b.intersects(busy))
+				b.addPieces(busy, pieces);
+			else
+				kept.add(b);
+		}
+
+		//a piece is maximal unless it is inside another maximal box
+		//(each piece crosses the busy box's range in the directions other
+		//  than its side, so it can only be inside pieces on the same side)
+		int numKept = kept.size();
+		int[] sides = new int[pieces.size()];
+		for(int i = 0; i < pieces.size(); i++)
+			sides[i] = pieces.get(i).sideOf(busy);
+		for(int i = 0; i < pieces.size(); i++) {
+			Box p = pieces.get(i);
+			boolean maximal = true;
+			for(int j = 0; maximal && j < numKept; j++)
+				maximal = !kept.get(j).contains(p);
+			for(int j = 0; maximal && j < pieces.size(); j++)
+				if(j != i && sides[j] == sides[i]) {
+					//(of equal pieces, keep only the first)
+					Box q = pieces.get(j);
+					maximal = !q.contains(p) || (j > i && p.contains(q));
+				}
+			if(maximal)
+				kept.add(p);
+		}
+		boxes = kept;
+	}
+
+	void release(int x0, int y0, int z0, int x1, int y1, int z1) {
+		//updates boxes after the (previously busy) box with the given
+		//  bounds becomes free (in mesh)
+
+		//find maximal boxes overlapping it: for each range of y and z
+		//  overlapping it, those made of the runs of x where the whole
+		//  rectangle is free that overlap it and can't grow in y or z
+		//A side of such a box is at the edge of the mesh, the freed box,
+		//  or a side of an old maximal box next to or overlapping the
+		//  freed one (one holding its part next to the busy processor
+		//  stopping it on the freed box's side of it), so only those are
+		//  tried.
+		//Ranges are tried from smallest to largest so the search can stop
+		//  once they are too large to be free.
+		Box freed = new Box(x0, y0, z0, x1, y1, z1);
+		ArrayList<Box> found = new ArrayList<Box>();
+		int xdim = mesh.getXDim();
+		int ydim = mesh.getYDim();
+		int zdim = mesh.getZDim();
+		boolean[] isYLo = new boolean[ydim];   //possible sides of new boxes
+		boolean[] isYHi = new boolean[ydim];
+		boolean[] isZLo = new boolean[zdim];
+		boolean[] isZHi = new boolean[zdim];
+		boolean[] ok = new boolean[xdim];
+		isYLo[0] = isYLo[y0] = isZLo[0] = isZLo[z0] = true;
+		isYHi[ydim - 1] = isYHi[y1] = isZHi[zdim - 1] = isZHi[z1] = true;
+		for(Box b : boxes)
+			if(b.touches(freed)) {
+				isYLo[b.y0] = isYHi[b.y1] = true;
+				isZLo[b.z0] = isZHi[b.z1] = true;
+			}
+
+		for(int zlo = z1; zlo >= 0; zlo--) {
+			if(!isZLo[zlo])
+				continue;
+			setLines(zlo);
+			if(zlo < z0 && !anyLineFree(x0, x1, y0, y1, z0 - zlo + 1))
+				break;  //(lower starts won't work either)
+			for(int zhi = Math.max(zlo, z0); zhi < zdim; zhi++) {
+				if(!isZHi[zhi])
+					continue;
+				int zlen = zhi - zlo + 1;
+				if(!anyLineFree(x0, x1, y0, y1, zlen))
+					break;  //(larger ranges of z won't either)
+				//for each y start, grow the range upward keeping which x
+				//  have all lines in it free (in ok, from lo to hi: the runs
+				//  of them overlapping the freed box; others are stale)
+				for(int ylo = y1; ylo >= 0; ylo--) {
+					if(!isYLo[ylo])
+						continue;
+					Arrays.fill(ok, true);
+					int lo = 0;
+					int hi = xdim - 1;
+					boolean stop = false;  //(whether lower starts won't work)
+					for(int yhi = ylo; yhi < ydim; yhi++) {
+						int first = -1;
+						int last = -1;
+						for(int x = Math.max(lo, x0); x <= Math.min(hi, x1); x++) {
+							ok[x] = ok[x] && (run(x, yhi) >= zlen);
+							if(ok[x]) {
+								if(first == -1)
+									first = x;
+								last = x;
+							}
+						}
+						if(first == -1) {
+							stop = (yhi <= y0);
+							break;  //(larger ranges of y won't work either)
+						}
+						//(only the runs reaching past the freed box are extended;
+						//  the rest of the old window is dropped)
+						while(first > lo && ok[first - 1] && run(first - 1, yhi) >= zlen)
+							first--;
+						while(last < hi && ok[last + 1] && run(last + 1, yhi) >= zlen)
+							last++;
+						lo = first;
+						hi = last;
+						if(yhi < y0 || !isYHi[yhi])
+							continue;
+
+						int ylen = yhi - ylo + 1;
+						int x = lo;
+						while(x <= hi) {
+							if(!ok[x]) {
+								x++;
+								continue;
+							}
+							int xlo = x;
+							while(x < hi && ok[x + 1])
+								x++;
+							int xhi = x;
+							int xlen = xhi - xlo + 1;
+							if((ylo == 0 || !linesFree(xlo, xhi, ylo - 1, ylo - 1, zlen)) &&
+									(yhi == ydim - 1 || !linesFree(xlo, xhi, yhi + 1, yhi + 1, zlen)) &&
+									(zhi == zdim - 1 || !linesFree(xlo, xhi, ylo, yhi, zlen + 1)) &&
+									(zlo == 0 || !mesh.isFreeBox(xlo, ylo, zlo - 1, xlen, ylen, 1)))
+								found.add(new Box(xlo, ylo, zlo, xhi, yhi, zhi));
+							x = xhi + 1;
+						}
+					}
+					if(stop)
+						break;
+				}
+			}
+		}
+
+		//old boxes stay maximal unless they are inside one of these
+		//(which they can only be if they were stopped by the freed box)
+		int numFound = found.size();
+		for(Box b : boxes) {
+			boolean maximal = true;
+			if(b.touches(freed))
+				for(int j = 0; maximal && j < numFound; j++)
+					maximal = !found.get(j).contains(b);
+			if(maximal)
+				found.add(b);
+		}
+		boxes = found;
+	}
+
+	private void setLines(int z) {
+		//makes line checks below be for lines starting at z coordinate z
+		if(lineRun == null) {
+			lineRun = new int[mesh.getXDim() * mesh.getYDim()];
+			lineStamp = new int[lineRun.length];
+		}
+		if(++stamp == 0) {  //(wrapped around; old entries could match)
+			Arrays.fill(lineStamp, 0);
+			stamp = 1;
+		}
+		lineZ = z;
+	}
+
+	private int run(int x, int y) {
+		//returns # free processors in a row from (x,y,lineZ) going up in z
+		//  (asking the mesh only the first time for each lineZ)
+		int index = x * mesh.getYDim() + y;
+		if(lineStamp[index] != stamp) {
+			lineRun[index] = mesh.freeLength(x, y, lineZ);
+			lineStamp[index] = stamp;
+		}
+		return lineRun[index];
+	}
+
+	private boolean linesFree(int xlo, int xhi, int ylo, int yhi, int zlen) {
+		//returns whether the lines w/ x in xlo..xhi and y in ylo..yhi are
+		//  all free for zlen processors
+		for(int x = xlo; x <= xhi; x++)
+			for(int y = ylo; y <= yhi; y++)
+				if(run(x, y) < zlen)
+					return false;
+		return true;
+	}
+
+	private boolean anyLineFree(int x0, int x1, int y0, int y1, int zlen) {
+		//returns whether, for some x in x0..x1 and y in y0..y1, the line
+		//  is free for zlen processors (as it must be for a free box w/
+		//  that height overlapping x0..x1 and y0..y1)
+		for(int x = x0; x <= x1; x++)
+			for(int y = y0; y <= y1; y++)
+				if(run(x, y) >= zlen)
+					return true;
+		return false;
+	}
+}
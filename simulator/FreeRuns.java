@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * The runs of free processors of a Mesh along a linear order of its
+ * processors (as used by the linear allocators): the maximal sets of
+ * free processors with consecutive ranks in the order.
+ *
+ * The Mesh keeps them up to date as processors are allocated and
+ * deallocated once they have been asked for (see Mesh.getFreeRuns).
+ * Processors given in order of rank are handled a stretch at a time,
+ * which only changes the run around them (and those beside it).  Each
+ * run is recorded at its first and last rank, in a tree giving the
+ * longest run starting in each range of ranks (to find the first run
+ * of a given length) and in a set ordered by length (to find the
+ * shortest one), so finding a run or updating one takes logarithmic
+ * time.
+ */
+
+package simulator;
+
+import java.util.TreeSet;
+
+public class FreeRuns {
+
+	private Mesh mesh;
+	private int n;           //# processors
+
+	private int[] rank;      //rank of each processor (by index)
+
+	private long[] free;     //bit r is set iff processor w/ rank r is free
+	private int[] runLength; //length of run starting at each rank (0 if none)
+	private int[] runStart;  //start of run ending at each rank (only valid there)
+
+	//longest run starting in each range of ranks, as a binary tree in an
+	//  array: node 1 is the root, the children of node i are 2i and 2i+1,
+	//  and leaves + r is the leaf for rank r
+	private int[] longest;
+	private int leaves;      //# leaves (a power of 2 at least n)
+
+	private TreeSet<Long> bySize;  //runs as (length << 32) | start
+
+	public FreeRuns(Mesh mesh, int[] rank) {
+		//makes the runs of the mesh's free processors along the order
+		//  giving each processor (by index) the rank in rank
+
+		this.mesh = mesh;
+		this.rank = rank;
+		n = rank.length;
+		int[] byRank = new int[n];  //index of the processor w/ each rank
+		for(int i=0; i<n; i++)
+			byRank[rank[i]] = i;
+
+		free = new long[(n + 63) >>> 6];
+		runLength = new int[n];
+		runStart = new int[n];
+		leaves = 1;
+		while(leaves < n)
+			leaves *= 2;
+		longest = new int[2 * leaves];
+		bySize = new TreeSet<Long>();
+
+		int start = -1;  //start of run being found (-1 if none)
+		for(int r=0; r<n; r++) {
+			if(mesh.getIsFree(byRank[r])) {
+				free[r >>> 6] |= 1L << r;
+				if(start == -1)
+					start = r;
+			} else if(start != -1) {
+				addRun(start, r-1);
+				start = -1;
+			}
+		}
+		if(start != -1)
+			addRun(start, n-1);
+	}
+
+	public FreeRuns(FreeRuns other, Mesh mesh) {
+		//copy of other for a copy of its mesh
+		this.mesh = mesh;
+		n = other.n;
+		rank = other.rank;  //(never modified, so shared)
+		free = other.free.clone();
+		runLength = other.runLength.clone();
+		runStart = other.runStart.clone();
+		longest = other.longest.clone();
+		leaves = other.leaves;
+		bySize = new TreeSet<Long>(other.bySize);
+	}
+
+	public int[] getRanks() {
+		return rank;
+	}
+
+	public boolean isFree(int r) {
+		//whether processor w/ given rank is free
+		return (free[r >>> 6] & (1L << r)) != 0;
+	}
+
+	public int firstFit(int num) {
+		//returns start of the first run of at least num processors
+		//  (-1 if none)
+		return firstStartFrom(0, num);
+	}
+
+	public int bestFit(int num) {
+		//returns start of the shortest run of at least num processors
+		//  (the first of them if several are equally short; -1 if none)
+		Long run = bySize.ceiling((long) num << 32);
+		if(run == null)
+			return -1;
+		return (int) run.longValue();
+	}
+
+	public int nextFree(int from) {
+		//returns the first rank >= from whose processor is free (-1 if none)
+		if(from >= n)
+			return -1;
+		if(isFree(from))
+			return from;
+		return firstStartFrom(from, 1);
+	}
+
+	public void occupy(MeshLocation[] procs) {
+		//records that the (free) processors in procs are now busy
+		int i = 0;
+		while(i < procs.length) {
+			int from = rank[mesh.indexOf(procs[i])];
+			int to = from;  //(each stretch of consecutive ranks at once)
+			for(i++; i < procs.length && rank[mesh.indexOf(procs[i])] == to + 1; i++)
+				to++;
+			occupy(from, to);
+		}
+	}
+
+	public void release(MeshLocation[] procs) {
+		//records that the (busy) processors in procs are now free
+		int i = 0;
+		while(i < procs.length) {
+			int from = rank[mesh.indexOf(procs[i])];
+			int to = from;
+			for(i++; i < procs.length && rank[mesh.indexOf(procs[i])] == to + 1; i++)
+				to++;
+			release(from, to);
+		}
+	}
+
+	private void occupy(int from, int to) {
+		//processors w/ ranks from to to (all in one run) become busy
+		int start = lastStartUpTo(from);
+		int end = start + runLength[start] - 1;
+		removeRun(start);
+		if(start < from)
+			addRun(start, from-1);
+		if(to < end)
+			addRun(to+1, end);
+		for(int r=from; r<=to; r++)
+			free[r >>> 6] &= ~(1L << r);
+	}
+
+	private void release(int from, int to) {
+		//processors w/ ranks from to to (all busy) become free
+		int start = from;
+		int end = to;
+		if(from > 0 && isFree(from-1)) {  //join run ending just before
+			start = runStart[from-1];
+			removeRun(start);
+		}
+		if(to < n-1 && isFree(to+1)) {    //and the one starting just after
+			end = to + runLength[to+1];
+			removeRun(to+1);
+		}
+		for(int r=from; r<=to; r++)
+			free[r >>> 6] |= 1L << r;
+		addRun(start, end);
+	}
+
+	private void addRun(int start, int end) {
+		runLength[start] = end - start + 1;
+		runStart[end] = start;
+		setLongest(start, end - start + 1);
+		bySize.add(((long) (end - start + 1) << 32) | start);
+	}
+
+	private void removeRun(int start) {
+		bySize.remove(((long) runLength[start] << 32) | start);
+		setLongest(start, 0);
+		runLength[start] = 0;
+	}
+
+	private void setLongest(int r, int length) {
+		int node = leaves + r;
+		longest[node] = length;
+		for(node >>= 1; node >= 1; node >>= 1)
+			longest[node] = Math.max(longest[2*node], longest[2*node+1]);
+	}
+
+	private int firstStartFrom(int from, int num) {
+		//returns first rank >= from starting a run of at least num (-1 if none)
+		int node = leaves + from;
+		if(longest[node] >= num)
+			return from;
+		//go up until a subtree to the right has one
+		while(true) {
+			if(node == 1)
+				return -1;
+			if((node & 1) == 0 && longest[node+1] >= num) {
+				node++;
+				break;
+			}
+			node >>= 1;
+		}
+		//then down to its first one
+		while(node < leaves)
+			node = (longest[2*node] >= num) ? 2*node : 2*node+1;
+		return node - leaves;
+	}
+
+	private int lastStartUpTo(int to) {
+		//returns last rank <= to starting a run (-1 if none)
+		int node = leaves + to;
+		if(longest[node] > 0)
+			return to;
+		while(true) {
+			if(node == 1)
+				return -1;
+			if((node & 1) == 1 && longest[node-1] > 0) {
+				node--;
+				break;
+			}
+			node >>= 1;
+		}
+		while(node < leaves)
+			node = (longest[2*node+1] > 0) ? 2*node+1 : 2*node;
+		return node - leaves;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Event queue kept as a binary heap (java.util.PriorityQueue).  Takes
+ * O(log n) time per operation regardless of how events are spread out.
+ */
+
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+public class HeapEventQueue extends EventQueue {
+
+	private PriorityQueue<Event> heap = new PriorityQueue<Event>();
+
+	public static HeapEventQueue Make(ArrayList<String> params) {
+		Factory.argsAtLeast(0,params);
+		Factory.argsAtMost(0,params);
+		return new HeapEventQueue();
+	}
+
+	public static String getParamHelp() {
+		return "\n\tBinary heap";
+	}
+
+	public String getSetupInfo(boolean comment) {
+		String com;
+		if(comment) com="# ";
+		else com="";
+		return com+"Heap event queue";
+	}
+
+	public void add(Event e) {
+		heap.add(e);
+	}
+
+	public Event poll() {
+		return heap.poll();
+	}
+
+	public Event peek() {
+		return heap.peek();
+	}
+
+	public boolean remove(Event e) {
+		return heap.remove(e);
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	public void clear() {
+		heap.clear();
+	}
+
+	public Iterator<Event> iterator() {
+		return heap.iterator();
+	}
+}
@@ -0,0 +1,126 @@
+package simulator.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.Job;
+import simulator.Mesh;
+import simulator.MeshLocation;
+import simulator.allocator.MeshAllocInfo;
+
+public class TestBusyCounts{
+
+    //# busy processors in the box w/ corner (x,y,z) and given size, counted one by one
+    private static int numBusy(Mesh mesh, int x, int y, int z, int xlen, int ylen, int zlen){
+        int count = 0;
+        for(int i = x; i < x + xlen; i++)
+            for(int j = y; j < y + ylen; j++)
+                for(int k = z; k < z + zlen; k++)
+                    if(!mesh.getIsFree(i, j, k))
+                        count++;
+        return count;
+    }
+
+    //largest x of a busy processor in the box (-1 if none), found by looking at each
+    private static int lastBusyX(Mesh mesh, int x, int y, int z, int xlen, int ylen, int zlen){
+        for(int i = x + xlen - 1; i >= x; i--)
+            for(int j = y; j < y + ylen; j++)
+                for(int k = z; k < z + zlen; k++)
+                    if(!mesh.getIsFree(i, j, k))
+                        return i;
+        return -1;
+    }
+
+    private static void check(Mesh mesh, Random random){
+        //(the first boxes after a change are scanned; later ones use the counts)
+        for(int i = 0; i < 40; i++){
+            int x = random.nextInt(mesh.getXDim());
+            int y = random.nextInt(mesh.getYDim());
+            int z = random.nextInt(mesh.getZDim());
+            int xlen = 1 + random.nextInt(mesh.getXDim() - x);
+            int ylen = 1 + random.nextInt(mesh.getYDim() - y);
+            int zlen = 1 + random.nextInt(mesh.getZDim() - z);
+            int busy = numBusy(mesh, x, y, z, xlen, ylen, zlen);
+            assertEquals(lastBusyX(mesh, x, y, z, xlen, ylen, zlen),
+                         mesh.lastBusyX(x, y, z, xlen, ylen, zlen));
+            assertEquals(busy, mesh.numBusy(x, y, z, xlen, ylen, zlen));
+            assertEquals(busy == 0, mesh.isFreeBox(x, y, z, xlen, ylen, zlen));
+        }
+        int all = numBusy(mesh, 0, 0, 0, mesh.getXDim(), mesh.getYDim(), mesh.getZDim());
+        assertEquals(all, mesh.numBusy(0, 0, 0, mesh.getXDim(), mesh.getYDim(), mesh.getZDim()));
+        assertEquals(mesh.getMachSize() - all, mesh.numFreeProcessors());
+    }
+
+    private static MeshAllocInfo randomAlloc(Mesh mesh, Random random){
+        //a free box or scattered free processors
+        ArrayList<MeshLocation> procs = new ArrayList<MeshLocation>();
+        int xlen = 1 + random.nextInt(mesh.getXDim());
+        int ylen = 1 + random.nextInt(mesh.getYDim());
+        int zlen = 1 + random.nextInt(mesh.getZDim());
+        int x = random.nextInt(mesh.getXDim() - xlen + 1);
+        int y = random.nextInt(mesh.getYDim() - ylen + 1);
+        int z = random.nextInt(mesh.getZDim() - zlen + 1);
+        if(random.nextBoolean() && numBusy(mesh, x, y, z, xlen, ylen, zlen) == 0){
+            for(int i = x; i < x + xlen; i++)
+                for(int j = y; j < y + ylen; j++)
+                    for(int k = z; k < z + zlen; k++)
+                        procs.add(mesh.location(i, j, k));
+        } else {
+            for(MeshLocation loc : mesh.freeProcessors())
+                if(random.nextInt(4) == 0)
+                    procs.add(loc);
+        }
+        if(procs.isEmpty())
+            return null;
+        MeshAllocInfo info = new MeshAllocInfo(new Job(0, procs.size(), 1, 1));
+        for(int i = 0; i < procs.size(); i++)
+            info.processors[i] = procs.get(i);
+        return info;
+    }
+
+    private static void randomSteps(Mesh mesh, ArrayList<MeshAllocInfo> running,
+                                    Random random, int steps){
+        for(int step = 0; step < steps; step++){
+            if(!running.isEmpty() && random.nextInt(3) == 0){
+                mesh.deallocate(running.remove(random.nextInt(running.size())));
+            } else {
+                MeshAllocInfo info = randomAlloc(mesh, random);
+                if(info == null)
+                    continue;
+                mesh.allocate(info);
+                running.add(info);
+            }
+            check(mesh, random);
+        }
+    }
+
+    @Test
+    public void testAllocateAndDeallocate(){
+        Random random = new Random(11);
+        for(int trial = 0; trial < 30; trial++){
+            Mesh mesh = new Mesh(1 + random.nextInt(9), 1 + random.nextInt(9), 1 + random.nextInt(4));
+            check(mesh, random);
+            randomSteps(mesh, new ArrayList<MeshAllocInfo>(), random, 60);
+        }
+    }
+
+    @Test
+    public void testCopies(){
+        //copies share the counts until one of them changes
+        Random random = new Random(12);
+        for(int trial = 0; trial < 20; trial++){
+            Mesh mesh = new Mesh(1 + random.nextInt(9), 1 + random.nextInt(9), 1 + random.nextInt(4));
+            ArrayList<MeshAllocInfo> running = new ArrayList<MeshAllocInfo>();
+            randomSteps(mesh, running, random, 20);
+            Mesh copy = new Mesh(mesh);
+            check(copy, random);
+            randomSteps(copy, new ArrayList<MeshAllocInfo>(running), random, 20);
+            check(mesh, random);
+            randomSteps(mesh, running, random, 20);
+        }
+    }
+}
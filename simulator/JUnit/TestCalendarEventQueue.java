@@ -0,0 +1,154 @@
+package simulator.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.ArrivalEvent;
+import simulator.CalendarEventQueue;
+import simulator.DepartureEvent;
+import simulator.Event;
+import simulator.Job;
+import simulator.scheduler.TimerEvent;
+
+public class TestCalendarEventQueue{
+
+    private CalendarEventQueue queue;
+    private PriorityQueue<Event> expected;
+    private ArrayList<Event> made;  //every event made (some gone)
+    private long now;               //time of the last event polled
+    private Random random;
+
+    //an event of random type (so equal times are ordered by type, then by when made)
+    private Event makeEvent(long time){
+        Event e;
+        switch(random.nextInt(3)){
+        case 0:
+            e = new DepartureEvent(time, null);
+            break;
+        case 1:
+            e = new ArrivalEvent(new Job(time, 1, 1, 1), time);
+            break;
+        default:
+            e = new TimerEvent(time, null, null);
+        }
+        made.add(e);
+        return e;
+    }
+
+    private void check(){
+        assertEquals(expected.size(), queue.size());
+        assertEquals(expected.isEmpty(), queue.isEmpty());
+        assertEquals(expected.peek(), queue.peek());
+    }
+
+    private void checkContents(){
+        HashSet<Event> inQueue = new HashSet<Event>();
+        for(Event e : queue)
+            inQueue.add(e);
+        assertEquals(queue.size(), inQueue.size());
+        assertEquals(new HashSet<Event>(expected), inQueue);
+    }
+
+    private void add(long time){
+        Event e = makeEvent(time);
+        queue.add(e);
+        expected.add(e);
+    }
+
+    private void poll(){
+        Event e = expected.poll();
+        assertEquals(e, queue.poll());
+        if(e != null)
+            now = e.getTime();
+    }
+
+    private void remove(){
+        if(made.isEmpty())
+            return;
+        Event e = made.get(random.nextInt(made.size()));  //(may be gone already)
+        assertEquals(expected.remove(e), queue.remove(e));
+    }
+
+    //random operations until there are about target events; gaps between
+    //  event times are up to maxGap (0 gives all events at the same time)
+    private void phase(int target, long maxGap, int steps){
+        for(int step = 0; step < steps; step++){
+            int op = random.nextInt(10);
+            boolean grow = queue.size() < target;
+            if(op < (grow ? 6 : 3)){
+                long time = now + ((maxGap == 0) ? 0 : (long)(random.nextDouble() * maxGap));
+                if(random.nextInt(20) == 0)
+                    time = now + random.nextInt(3);  //(ties w/ nearby events)
+                else if(random.nextInt(50) == 0)
+                    time = Math.max(0, now - random.nextInt(1000));  //(before events polled)
+                add(time);
+            } else if(op < 9){
+                poll();
+            } else {
+                remove();
+            }
+            check();
+            if(step % 200 == 0)
+                checkContents();
+        }
+    }
+
+    @Test
+    public void testAgainstPriorityQueue(){
+        random = new Random(9);
+        for(int trial = 0; trial < 5; trial++){
+            queue = new CalendarEventQueue();
+            expected = new PriorityQueue<Event>();
+            made = new ArrayList<Event>();
+            now = 0;
+
+            //grows past several doublings, w/ the spacing of events
+            //  changing (so it recalibrates), then shrinks back down
+            phase(50, 10, 500);
+            phase(3000, 1000, 8000);
+            phase(3000, 5, 4000);
+            phase(3000, 1000000, 4000);
+            phase(5, 100, 8000);
+            phase(100, 0, 600);  //(all at once)
+            phase(0, 50, 2000);
+            while(!expected.isEmpty())
+                poll();
+            check();
+            checkContents();
+
+            //and reused after clear
+            phase(200, 30, 600);
+            queue.clear();
+            expected.clear();
+            made.clear();
+            check();
+            phase(200, 30, 600);
+            checkContents();
+        }
+    }
+
+    @Test
+    public void testEqualTimes(){
+        //many events at a few times, so buckets hold long runs of ties
+        random = new Random(10);
+        queue = new CalendarEventQueue();
+        expected = new PriorityQueue<Event>();
+        made = new ArrayList<Event>();
+        for(int i = 0; i < 2000; i++)
+            add(100 * random.nextInt(4));
+        for(int i = 0; i < 200; i++)
+            remove();
+        check();
+        checkContents();
+        while(!expected.isEmpty()){
+            poll();
+            check();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package simulator.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.FreeBoxes;
+import simulator.Job;
+import simulator.Mesh;
+import simulator.MeshLocation;
+import simulator.allocator.MeshAllocInfo;
+
+public class TestFreeBoxes{
+
+    //whether every processor of the box with corner (x,y,z) and the given size is free
+    private static boolean isFree(Mesh mesh, int x, int y, int z, int xlen, int ylen, int zlen){
+        if(x < 0 || y < 0 || z < 0 || x + xlen > mesh.getXDim() ||
+           y + ylen > mesh.getYDim() || z + zlen > mesh.getZDim())
+            return false;
+        for(int i = x; i < x + xlen; i++)
+            for(int j = y; j < y + ylen; j++)
+                for(int k = z; k < z + zlen; k++)
+                    if(!mesh.getIsFree(i, j, k))
+                        return false;
+        return true;
+    }
+
+    //# maximal free boxes, found by trying every box
+    private static int countMaximal(Mesh mesh){
+        int count = 0;
+        for(int x = 0; x < mesh.getXDim(); x++)
+            for(int y = 0; y < mesh.getYDim(); y++)
+                for(int z = 0; z < mesh.getZDim(); z++)
+                    for(int xl = 1; x + xl <= mesh.getXDim(); xl++)
+                        for(int yl = 1; y + yl <= mesh.getYDim(); yl++)
+                            for(int zl = 1; z + zl <= mesh.getZDim(); zl++){
+                                if(!isFree(mesh, x, y, z, xl, yl, zl))
+                                    continue;
+                                if(isFree(mesh, x-1, y, z, 1, yl, zl) ||
+                                   isFree(mesh, x+xl, y, z, 1, yl, zl) ||
+                                   isFree(mesh, x, y-1, z, xl, 1, zl) ||
+                                   isFree(mesh, x, y+yl, z, xl, 1, zl) ||
+                                   isFree(mesh, x, y, z-1, xl, yl, 1) ||
+                                   isFree(mesh, x, y, z+zl, xl, yl, 1))
+                                    continue;
+                                count++;
+                            }
+        return count;
+    }
+
+    //first free corner for a box of the given size (by z, then y, then x), found by trying each
+    private static MeshLocation firstFit(Mesh mesh, int xlen, int ylen, int zlen){
+        for(int z = 0; z < mesh.getZDim(); z++)
+            for(int y = 0; y < mesh.getYDim(); y++)
+                for(int x = 0; x < mesh.getXDim(); x++)
+                    if(isFree(mesh, x, y, z, xlen, ylen, zlen))
+                        return new MeshLocation(x, y, z);
+        return null;
+    }
+
+    //whether a box of the given size is free somewhere without overlapping the hole
+    private static boolean fitsAvoiding(Mesh mesh, int xlen, int ylen, int zlen,
+                                        int hx, int hy, int hz, int hxl, int hyl, int hzl){
+        for(int z = 0; z < mesh.getZDim(); z++)
+            for(int y = 0; y < mesh.getYDim(); y++)
+                for(int x = 0; x < mesh.getXDim(); x++){
+                    if(!isFree(mesh, x, y, z, xlen, ylen, zlen))
+                        continue;
+                    boolean overlaps = x < hx + hxl && hx < x + xlen &&
+                        y < hy + hyl && hy < y + ylen && z < hz + hzl && hz < z + zlen;
+                    if(!overlaps)
+                        return true;
+                }
+        return false;
+    }
+
+    private static void check(Mesh mesh, Random random){
+        FreeBoxes boxes = mesh.getFreeBoxes();
+        assertEquals(countMaximal(mesh), boxes.size());
+        for(int xl = 1; xl <= mesh.getXDim(); xl++)
+            for(int yl = 1; yl <= mesh.getYDim(); yl++)
+                for(int zl = 1; zl <= mesh.getZDim(); zl++)
+                    assertEquals(firstFit(mesh, xl, yl, zl), boxes.firstFit(xl, yl, zl));
+        for(int i = 0; i < 20; i++){
+            int xl = 1 + random.nextInt(mesh.getXDim());
+            int yl = 1 + random.nextInt(mesh.getYDim());
+            int zl = 1 + random.nextInt(mesh.getZDim());
+            int hx = random.nextInt(mesh.getXDim());
+            int hy = random.nextInt(mesh.getYDim());
+            int hz = random.nextInt(mesh.getZDim());
+            int hxl = 1 + random.nextInt(mesh.getXDim() - hx);
+            int hyl = 1 + random.nextInt(mesh.getYDim() - hy);
+            int hzl = 1 + random.nextInt(mesh.getZDim() - hz);
+            assertEquals(fitsAvoiding(mesh, xl, yl, zl, hx, hy, hz, hxl, hyl, hzl),
+                         boxes.fitsAvoiding(xl, yl, zl, hx, hy, hz, hxl, hyl, hzl));
+        }
+    }
+
+    private static MeshAllocInfo allocInfo(ArrayList<MeshLocation> procs){
+        MeshAllocInfo info = new MeshAllocInfo(new Job(0, procs.size(), 1, 1));
+        for(int i = 0; i < procs.size(); i++)
+            info.processors[i] = procs.get(i);
+        return info;
+    }
+
+    private static MeshAllocInfo randomAlloc(Mesh mesh, Random random){
+        //a free box (updated all at once) or scattered free processors (one at a time)
+        ArrayList<MeshLocation> procs = new ArrayList<MeshLocation>();
+        if(random.nextBoolean()){
+            int xl = 1 + random.nextInt(mesh.getXDim());
+            int yl = 1 + random.nextInt(mesh.getYDim());
+            int zl = 1 + random.nextInt(mesh.getZDim());
+            MeshLocation corner = firstFit(mesh, xl, yl, zl);
+            if(corner == null)
+                return null;
+            for(int x = corner.x; x < corner.x + xl; x++)
+                for(int y = corner.y; y < corner.y + yl; y++)
+                    for(int z = corner.z; z < corner.z + zl; z++)
+                        procs.add(new MeshLocation(x, y, z));
+        } else {
+            for(MeshLocation loc : mesh.freeProcessors())
+                if(random.nextInt(4) == 0)
+                    procs.add(loc);
+            if(procs.isEmpty())
+                return null;
+        }
+        return allocInfo(procs);
+    }
+
+    @Test
+    public void testFromPartlyBusyMesh(){
+        Random random = new Random(1);
+        for(int trial = 0; trial < 50; trial++){
+            int xdim = 1 + random.nextInt(5);
+            int ydim = 1 + random.nextInt(5);
+            int zdim = 1 + random.nextInt(3);
+            boolean[][][] isFree = new boolean[xdim][ydim][zdim];
+            for(int x = 0; x < xdim; x++)
+                for(int y = 0; y < ydim; y++)
+                    for(int z = 0; z < zdim; z++)
+                        isFree[x][y][z] = random.nextInt(3) != 0;
+            check(new Mesh(isFree), random);
+        }
+    }
+
+    @Test
+    public void testOccupyAndRelease(){
+        Random random = new Random(2);
+        for(int trial = 0; trial < 10; trial++){
+            Mesh mesh = new Mesh(2 + random.nextInt(4), 2 + random.nextInt(4), 1 + random.nextInt(3));
+            mesh.getFreeBoxes();  //(so the mesh keeps it up to date)
+            ArrayList<MeshAllocInfo> running = new ArrayList<MeshAllocInfo>();
+            for(int step = 0; step < 60; step++){
+                if(!running.isEmpty() && random.nextInt(3) == 0){
+                    mesh.deallocate(running.remove(random.nextInt(running.size())));
+                } else {
+                    MeshAllocInfo info = randomAlloc(mesh, random);
+                    if(info == null)
+                        continue;
+                    mesh.allocate(info);
+                    running.add(info);
+                }
+                check(mesh, random);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package simulator.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.FreeRuns;
+import simulator.Job;
+import simulator.Mesh;
+import simulator.MeshLocation;
+import simulator.allocator.MeshAllocInfo;
+
+public class TestFreeRuns{
+
+    //the linear scans FreeRuns should agree with; free[r] says whether the processor w/ rank r is free
+
+    private static int firstFit(boolean[] free, int num){
+        int length = 0;
+        for(int r = 0; r < free.length; r++){
+            length = free[r] ? length + 1 : 0;
+            if(length == num)
+                return r - num + 1;
+        }
+        return -1;
+    }
+
+    private static int bestFit(boolean[] free, int num){
+        int best = -1;
+        int bestLength = Integer.MAX_VALUE;
+        int r = 0;
+        while(r < free.length){
+            if(!free[r]){
+                r++;
+                continue;
+            }
+            int start = r;
+            while(r < free.length && free[r])
+                r++;
+            if(r - start >= num && r - start < bestLength){
+                best = start;
+                bestLength = r - start;
+            }
+        }
+        return best;
+    }
+
+    private static int nextFree(boolean[] free, int from){
+        for(int r = from; r < free.length; r++)
+            if(free[r])
+                return r;
+        return -1;
+    }
+
+    private static void check(Mesh mesh, int[] rank, FreeRuns runs){
+        int n = rank.length;
+        boolean[] free = new boolean[n];
+        for(int i = 0; i < n; i++)
+            free[rank[i]] = mesh.getIsFree(i);
+        for(int r = 0; r < n; r++)
+            assertEquals(free[r], runs.isFree(r));
+        for(int num = 1; num <= n + 1; num++){
+            assertEquals(firstFit(free, num), runs.firstFit(num));
+            assertEquals(bestFit(free, num), runs.bestFit(num));
+        }
+        for(int from = 0; from <= n; from++)
+            assertEquals(nextFree(free, from), runs.nextFree(from));
+    }
+
+    private static MeshAllocInfo randomAlloc(Mesh mesh, int[] byRank, Random random){
+        //a stretch of consecutive ranks (if free) or scattered free processors
+        ArrayList<MeshLocation> procs = new ArrayList<MeshLocation>();
+        if(random.nextBoolean()){
+            int from = random.nextInt(byRank.length);
+            int to = Math.min(byRank.length, from + 1 + random.nextInt(6));
+            for(int r = from; r < to && mesh.getIsFree(byRank[r]); r++)
+                procs.add(mesh.location(byRank[r]));
+        } else {
+            for(MeshLocation loc : mesh.freeProcessors())
+                if(random.nextInt(5) == 0)
+                    procs.add(loc);
+            Collections.shuffle(procs, random);
+        }
+        if(procs.isEmpty())
+            return null;
+        MeshAllocInfo info = new MeshAllocInfo(new Job(0, procs.size(), 1, 1));
+        for(int i = 0; i < procs.size(); i++)
+            info.processors[i] = procs.get(i);
+        return info;
+    }
+
+    @Test
+    public void testAllocateAndDeallocate(){
+        Random random = new Random(3);
+        for(int trial = 0; trial < 20; trial++){
+            Mesh mesh = new Mesh(1 + random.nextInt(6), 1 + random.nextInt(6), 1 + random.nextInt(3));
+            int n = mesh.getXDim() * mesh.getYDim() * mesh.getZDim();
+
+            //random order of the processors (or the order of their indices)
+            ArrayList<Integer> order = new ArrayList<Integer>();
+            for(int i = 0; i < n; i++)
+                order.add(i);
+            if(trial % 4 != 0)
+                Collections.shuffle(order, random);
+            int[] rank = new int[n];
+            int[] byRank = new int[n];
+            for(int r = 0; r < n; r++){
+                rank[order.get(r)] = r;
+                byRank[r] = order.get(r);
+            }
+
+            //(made partway through so it starts from a partly busy mesh)
+            FreeRuns runs = null;
+            ArrayList<MeshAllocInfo> running = new ArrayList<MeshAllocInfo>();
+            for(int step = 0; step < 80; step++){
+                if(step == 10)
+                    runs = mesh.getFreeRuns(rank);
+                if(!running.isEmpty() && random.nextInt(3) == 0){
+                    mesh.deallocate(running.remove(random.nextInt(running.size())));
+                } else {
+                    MeshAllocInfo info = randomAlloc(mesh, byRank, random);
+                    if(info == null)
+                        continue;
+                    mesh.allocate(info);
+                    running.add(info);
+                }
+                if(runs != null)
+                    check(mesh, rank, runs);
+            }
+        }
+    }
+}
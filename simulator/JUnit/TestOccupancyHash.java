@@ -0,0 +1,114 @@
+package simulator.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.Job;
+import simulator.Mesh;
+import simulator.MeshLocation;
+import simulator.allocator.MeshAllocInfo;
+
+public class TestOccupancyHash{
+
+    //hash of a mesh made from scratch w/ the same processors free
+    private static long recomputed(Mesh mesh){
+        boolean[][][] isFree = new boolean[mesh.getXDim()][mesh.getYDim()][mesh.getZDim()];
+        for(int x = 0; x < mesh.getXDim(); x++)
+            for(int y = 0; y < mesh.getYDim(); y++)
+                for(int z = 0; z < mesh.getZDim(); z++)
+                    isFree[x][y][z] = mesh.getIsFree(x, y, z);
+        return new Mesh(isFree).getOccupancyHash();
+    }
+
+    //which processors are busy, as a string of 0s and 1s by index
+    private static String busy(Mesh mesh){
+        StringBuilder s = new StringBuilder();
+        for(int i = 0; i < mesh.getMachSize(); i++)
+            s.append(mesh.getIsFree(i) ? '0' : '1');
+        return s.toString();
+    }
+
+    private static MeshAllocInfo randomAlloc(Mesh mesh, Random random){
+        ArrayList<MeshLocation> procs = new ArrayList<MeshLocation>();
+        for(MeshLocation loc : mesh.freeProcessors())
+            if(random.nextInt(4) == 0)
+                procs.add(loc);
+        if(procs.isEmpty())
+            return null;
+        Collections.shuffle(procs, random);
+        MeshAllocInfo info = new MeshAllocInfo(new Job(0, procs.size(), 1, 1));
+        for(int i = 0; i < procs.size(); i++)
+            info.processors[i] = procs.get(i);
+        return info;
+    }
+
+    //does random allocations and deallocations, checking the hash after each
+    private static void randomSteps(Mesh mesh, ArrayList<MeshAllocInfo> running,
+                                    HashMap<Long,String> seen, Random random, int steps){
+        for(int step = 0; step < steps; step++){
+            if(!running.isEmpty() && random.nextInt(3) == 0){
+                mesh.deallocate(running.remove(random.nextInt(running.size())));
+            } else {
+                MeshAllocInfo info = randomAlloc(mesh, random);
+                if(info == null)
+                    continue;
+                mesh.allocate(info);
+                running.add(info);
+            }
+            long hash = mesh.getOccupancyHash();
+            assertEquals(recomputed(mesh), hash);
+            //(the same hash should mean the same busy processors)
+            String before = seen.put(hash, busy(mesh));
+            if(before != null)
+                assertEquals(before, busy(mesh));
+        }
+    }
+
+    @Test
+    public void testAllocateAndDeallocate(){
+        Random random = new Random(7);
+        for(int trial = 0; trial < 20; trial++){
+            Mesh mesh = new Mesh(1 + random.nextInt(8), 1 + random.nextInt(8), 1 + random.nextInt(3));
+            HashMap<Long,String> seen = new HashMap<Long,String>();
+            assertEquals(recomputed(mesh), mesh.getOccupancyHash());
+            ArrayList<MeshAllocInfo> running = new ArrayList<MeshAllocInfo>();
+            randomSteps(mesh, running, seen, random, 100);
+
+            //freeing everything gives back the empty mesh's hash
+            while(!running.isEmpty())
+                mesh.deallocate(running.remove(running.size() - 1));
+            Mesh empty = new Mesh(mesh.getXDim(), mesh.getYDim(), mesh.getZDim());
+            assertEquals(empty.getOccupancyHash(), mesh.getOccupancyHash());
+        }
+    }
+
+    @Test
+    public void testCopies(){
+        Random random = new Random(8);
+        for(int trial = 0; trial < 20; trial++){
+            Mesh mesh = new Mesh(1 + random.nextInt(8), 1 + random.nextInt(8), 1 + random.nextInt(3));
+            HashMap<Long,String> seen = new HashMap<Long,String>();
+            ArrayList<MeshAllocInfo> running = new ArrayList<MeshAllocInfo>();
+            randomSteps(mesh, running, seen, random, 30);
+
+            //a copy starts w/ the same hash and changes independently
+            Mesh copy = new Mesh(mesh);
+            long original = mesh.getOccupancyHash();
+            assertEquals(original, copy.getOccupancyHash());
+            ArrayList<MeshAllocInfo> copyRunning = new ArrayList<MeshAllocInfo>(running);
+            randomSteps(copy, copyRunning, seen, random, 30);
+            assertEquals(original, mesh.getOccupancyHash());
+            assertEquals(recomputed(mesh), mesh.getOccupancyHash());
+            randomSteps(mesh, running, seen, random, 30);
+
+            mesh.reset();
+            assertEquals(recomputed(mesh), mesh.getOccupancyHash());
+        }
+    }
+}
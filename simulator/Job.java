@@ -13,7 +13,6 @@
 
 package simulator;
 
-import java.util.PriorityQueue;
 import java.util.Scanner;
 
 import simulator.allocator.AllocInfo;
@@ -34,7 +33,7 @@ public class Job implements Comparable<Job> {
 	protected TaskMapper taskMap;
 
 	protected long jobNum;             //ID number unique to this job
-	private static long nextJobNum = 0;  //used setting jobNum
+	                                   //(assigned by the current Simulation)
 
 	public String toString() {
 		return "Job #" + jobNum + " (" + arrivalTime + ", " + 
@@ -63,6 +62,12 @@ public class Job implements Comparable<Job> {
 		initialize(ArrivalTime, ProcsNeeded, ActualRunningTime, EstRunningTime, null);
 	}
 
+	Job(long ArrivalTime, int ProcsNeeded, long ActualRunningTime,
+			long EstRunningTime, TaskMapper map){
+		//used when reading binary traces
+		initialize(ArrivalTime, ProcsNeeded, ActualRunningTime, EstRunningTime, map);
+	}
+
 	protected Job() {
 		//bogus constructor that creates uninitialized Job
 		//so subclasses can do something before calling initialize themselves
@@ -83,8 +88,25 @@ public class Job implements Comparable<Job> {
 		if(estRunningTime < actualRunningTime)
 			estRunningTime = actualRunningTime;
 
-		jobNum = nextJobNum;
-		nextJobNum++;
+		jobNum = Simulation.current().nextJobNum();
+	}
+
+	protected Job(Job other) {
+		//copy constructor; the copy keeps other's job number
+		//used to give each simulation of a sweep its own jobs
+
+		arrivalTime = other.arrivalTime;
+		procsNeeded = other.procsNeeded;
+		actualRunningTime = other.actualRunningTime;
+		estRunningTime = other.estRunningTime;
+		startTime = -1;
+		jobNum = other.jobNum;
+		taskMap = other.taskMap;
+	}
+
+	public Job copy() {
+		//returns a fresh (not started) copy of this job w/ same number
+		return new Job(this);
 	}
 
 	protected Job(Job other, long endsIn) {
@@ -98,8 +120,7 @@ public class Job implements Comparable<Job> {
 		estRunningTime = endsIn;
 		startTime = -1;   //to ensure that it doesn't appear in statistics
 		//	jobNum = other.jobNum;
-		jobNum = nextJobNum;
-		nextJobNum++;
+		jobNum = Simulation.current().nextDerivedJobNum();
 		taskMap = other.taskMap;
 	}
 	
@@ -147,25 +168,34 @@ public class Job implements Comparable<Job> {
 	}
 
 	public Event start(long time, Machine machine, AllocInfo allocInfo,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		return this.start(time, machine, allocInfo, events, stats, -1);
 	}
 
 	public Event start(long time, Machine machine, AllocInfo allocInfo,
-			PriorityQueue<Event> events, Statistics stats,
+			EventQueue events, Statistics stats,
 			long runFor) {
 		//runFor is max time to run the job (-1 means until completion)
 		//adds Timing or DepartureEvent to queue itself
-		if(startTime != -1)
+		Simulation sim = Simulation.current();
+		boolean side = sim.isSideSimulation();  //(if so, start time kept there)
+		if((side ? sim.getStartTime(this) : startTime) != -1)
 			return null;    //job already running
 		
 		//duration after effect of allocation:
 		long realDuration = getActualTime(allocInfo);
 
+		long metricsStart = Metrics.start();
 		machine.allocate(allocInfo);
+		Metrics.stop(Metrics.MACHINE_ALLOCATE, metricsStart);
 		
-		startTime = time; 		
+		if(side)
+			sim.setStartTime(this, time);
+		else
+			startTime = time; 		
+		metricsStart = Metrics.start();
 		stats.jobStarts(allocInfo, time);
+		Metrics.stop(Metrics.STATS, metricsStart);
 		Event retVal;
 		if((runFor == -1) || (runFor >= realDuration)) {
 			retVal = new DepartureEvent(time+realDuration, allocInfo);
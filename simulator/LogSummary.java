@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Summarizes the columnar logs of a simulation (see ColumnLog), working
+ * directly from the columns rather than parsing text logs.
+ *
+ * Usage: java simulator/LogSummary <log name> ...
+ *   where the log name is the path of the logs without extension (so
+ *   that <log name>.time.col, .util.col, and .wait.col are read if they
+ *   exist)
+ *
+ * From the time log: mean and percentiles of wait and response times,
+ *   mean bounded slowdown (response time over running time, with running
+ *   times below BSLD_BOUND treated as BSLD_BOUND and values below 1 as 1),
+ *   and, if fair start times were computed, the number of jobs starting
+ *   after their FST and the average amount by which jobs did so
+ * From the util log: the integral of processors used over time and the
+ *   utilization (fraction of the machine used between first and last
+ *   event)
+ * From the wait log: the time-weighted average number of waiting jobs
+ *   over the same span as the utilization (the wait log itself ends at
+ *   the last change in the number of waiting jobs, so the span is taken
+ *   from the util log or, without one, from the time log)
+ */
+
+package simulator;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LogSummary {
+
+	public static final long BSLD_BOUND = 10;  //(seconds)
+
+	private static void usage() {
+		System.out.println("Usage: java simulator/LogSummary <log name> ...\n" +
+				"\tlog name: path of the logs without extension (uses the\n" +
+				"\t  .time.col, .util.col, and .wait.col files that exist)");
+		System.exit(0);
+	}
+
+	public static long percentile(long[] sorted, int num, double p) {
+		//returns pth percentile of 1st num values of sorted array
+		//(nearest-rank method; p between 0 and 100)
+
+		int rank = (int)Math.ceil(p / 100 * num);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+	private static void summarizeTimes(long[] values, int num, String name,
+			LinkedHashMap<String,Double> results) {
+		//adds mean and percentiles of 1st num values to results
+
+		long[] sorted = Arrays.copyOf(values, num);
+		Arrays.sort(sorted);
+		double total = 0;
+		for(int i = 0; i < num; i++)
+			total += sorted[i];
+		results.put(name + " mean", total / num);
+		results.put(name + " median", (double)percentile(sorted, num, 50));
+		results.put(name + " p90", (double)percentile(sorted, num, 90));
+		results.put(name + " p99", (double)percentile(sorted, num, 99));
+		results.put(name + " max", (double)sorted[num-1]);
+	}
+
+	private static void summarizeFST(ColumnLog log, String column, String name,
+			LinkedHashMap<String,Double> results) {
+		//adds statistics of unfairness w.r.t. FST in given column
+		//(nothing if it wasn't computed, in which case it is all 0)
+
+		if(!log.hasColumn(column))
+			return;
+		long[] fst = log.getColumn(column);
+		long[] start = log.getColumn("start");
+		int num = log.size();
+
+		boolean computed = false;
+		int unfair = 0;
+		double totalMiss = 0;
+		for(int i = 0; i < num; i++) {
+			if(fst[i] != 0)
+				computed = true;
+			if(start[i] > fst[i]) {
+				unfair++;
+				totalMiss += start[i] - fst[i];
+			}
+		}
+		if(!computed)
+			return;
+		results.put(name + " unfair jobs", (double)unfair);
+		results.put(name + " mean unfairness", totalMiss / num);
+	}
+
+	public static void summarizeTime(ColumnLog log, LinkedHashMap<String,Double> results) {
+		int num = log.size();
+		results.put("jobs", (double)num);
+		if(num == 0)
+			return;
+
+		summarizeTimes(log.getColumn("wait"), num, "wait", results);
+		summarizeTimes(log.getColumn("response"), num, "response", results);
+
+		long[] response = log.getColumn("response");
+		long[] run = log.getColumn("run");
+		double total = 0;
+		for(int i = 0; i < num; i++)
+			total += Math.max(1.0, (double)response[i] / Math.max(run[i], BSLD_BOUND));
+		results.put("bounded slowdown mean", total / num);
+
+		summarizeFST(log, "strictFST", "strict FST", results);
+		summarizeFST(log, "relaxedFST", "relaxed FST", results);
+	}
+
+	private static double integral(long[] time, long[] value, int num) {
+		//returns integral of step function w/ given value from each time
+		//  until the next (ending at the last time)
+
+		double retVal = 0;
+		for(int i = 0; i + 1 < num; i++)
+			retVal += (double)value[i] * (time[i+1] - time[i]);
+		return retVal;
+	}
+
+	public static void summarizeUtil(ColumnLog log, LinkedHashMap<String,Double> results) {
+		int num = log.size();
+		if(num < 2)
+			return;
+		long[] time = log.getColumn("time");
+		double used = integral(time, log.getColumn("procs"), num);
+		long span = time[num-1] - time[0];
+		results.put("utilization integral", used);
+		if(span > 0)
+			results.put("utilization", used / ((double)log.getProcs() * span));
+	}
+
+	public static long[] simulationSpan(ColumnLog timeLog, ColumnLog utilLog) {
+		//returns times of first and last event of the simulation from the
+		//  util log or, without one, the time log (null if neither has any)
+
+		if(utilLog != null && utilLog.size() > 0) {
+			long[] time = utilLog.getColumn("time");
+			return new long[]{time[0], time[utilLog.size()-1]};
+		}
+		if(timeLog != null && timeLog.size() > 0) {
+			long[] arrival = timeLog.getColumn("arrival");
+			long[] end = timeLog.getColumn("end");
+			long first = arrival[0];
+			long last = end[0];
+			for(int i = 1; i < timeLog.size(); i++) {
+				first = Math.min(first, arrival[i]);
+				last = Math.max(last, end[i]);
+			}
+			return new long[]{first, last};
+		}
+		return null;
+	}
+
+	public static void summarizeWait(ColumnLog log, long[] span,
+			LinkedHashMap<String,Double> results) {
+		//span gives first and last event of the simulation (see
+		//  simulationSpan); if null, the wait log's own first and last times
+
+		int num = log.size();
+		if(num == 0)
+			return;
+		long[] time = log.getColumn("time");
+		long[] jobs = log.getColumn("jobs");
+		if(span == null)
+			span = new long[]{time[0], time[num-1]};
+		//(the last # waiting jobs lasts until the end of the simulation)
+		double total = integral(time, jobs, num) +
+				(double)jobs[num-1] * (span[1] - time[num-1]);
+		if(span[1] > span[0])
+			results.put("waiting jobs mean", total / (span[1] - span[0]));
+	}
+
+	public static LinkedHashMap<String,Double> summarize(String logName) {
+		//returns statistics (by name) from columnar logs w/ given name
+
+		LinkedHashMap<String,Double> results = new LinkedHashMap<String,Double>();
+		File time = new File(logName + ".time" + ColumnLog.EXTENSION);
+		File util = new File(logName + ".util" + ColumnLog.EXTENSION);
+		File wait = new File(logName + ".wait" + ColumnLog.EXTENSION);
+		if(!time.exists() && !util.exists() && !wait.exists())
+			Main.error("No columnar logs named " + logName);
+
+		ColumnLog timeLog = time.exists() ? new ColumnLog(time) : null;
+		ColumnLog utilLog = util.exists() ? new ColumnLog(util) : null;
+		if(timeLog != null)
+			summarizeTime(timeLog, results);
+		if(utilLog != null)
+			summarizeUtil(utilLog, results);
+		if(wait.exists())
+			summarizeWait(new ColumnLog(wait), simulationSpan(timeLog, utilLog), results);
+		return results;
+	}
+
+	public static void main(String[] args) {
+		if(args.length == 0)
+			usage();
+
+		for(String logName : args) {
+			System.out.println("# " + logName);
+			for(Map.Entry<String,Double> e : summarize(logName).entrySet()) {
+				double value = e.getValue();
+				if(value == Math.rint(value) && Math.abs(value) < 1e15)
+					System.out.println(e.getKey() + "\t" + (long)value);
+				else
+					System.out.println(e.getKey() + "\t" + value);
+			}
+		}
+	}
+}
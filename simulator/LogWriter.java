@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Writes one log file without making the simulation wait for the disk.
+ *
+ * Text and numbers are formatted straight into a byte buffer.  When the
+ * buffer fills, it is handed to a background thread (shared by all logs)
+ * that writes it through a FileChannel, and formatting continues in
+ * another buffer.  Each log has at most NUM_BUFFERS buffers; if the
+ * disk falls behind, appending waits for one to be written, so memory
+ * use is bounded.  close() writes what is left and waits until
+ * everything is on its way to the file.
+ *
+ * A LogWriter must only be used by one thread (the simulation's).
+ */
+
+package simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class LogWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int NUM_BUFFERS = 4;
+
+	private static class Chunk {
+		//a buffer waiting to be written
+		LogWriter log;
+		ByteBuffer data;
+		boolean last;    //whether log should be closed after writing it
+
+		Chunk(LogWriter log, ByteBuffer data, boolean last) {
+			this.log = log;
+			this.data = data;
+			this.last = last;
+		}
+	}
+
+	//chunks waiting for the writer thread (from all logs, in order given)
+	private static LinkedBlockingQueue<Chunk> pending = new LinkedBlockingQueue<Chunk>();
+	private static Thread writer = null;
+
+	private String fileName;
+	private FileChannel channel;
+	private ByteBuffer buf;          //buffer being filled
+	private int numBuffers = 1;      //# buffers made for this log
+	private ArrayBlockingQueue<ByteBuffer> free =  //written buffers to reuse
+			new ArrayBlockingQueue<ByteBuffer>(NUM_BUFFERS);
+	private CountDownLatch closed = new CountDownLatch(1);
+	private volatile IOException error = null;  //first failure writing
+
+	public LogWriter(String fileName) throws IOException {
+		this.fileName = fileName;
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		buf = ByteBuffer.allocate(BUFFER_SIZE);
+		startWriter();
+	}
+
+	private static synchronized void startWriter() {
+		if(writer != null)
+			return;
+		writer = new Thread("log writer") {
+			public void run() {
+				while(true) {
+					Chunk c;
+					try {
+						c = pending.take();
+					} catch(InterruptedException e) {
+						continue;
+					}
+					c.log.write(c.data, c.last);
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	private void write(ByteBuffer data, boolean last) {
+		//called on the writer thread
+
+		try {
+			while(data.hasRemaining())
+				channel.write(data);
+		} catch(IOException e) {
+			if(error == null)
+				error = e;
+		}
+		data.clear();
+		free.add(data);
+
+		if(last) {
+			try {
+				channel.close();
+			} catch(IOException e) {
+				if(error == null)
+					error = e;
+			}
+			closed.countDown();
+		}
+	}
+
+	private void send(boolean last) {
+		//hands the current buffer to the writer thread
+		//gets another one to fill unless last
+
+		buf.flip();
+		pending.add(new Chunk(this, buf, last));
+		buf = null;
+		if(last)
+			return;
+
+		buf = free.poll();
+		if(buf == null) {
+			if(numBuffers < NUM_BUFFERS) {
+				buf = ByteBuffer.allocate(BUFFER_SIZE);
+				numBuffers++;
+			} else {
+				while(buf == null) {
+					try {
+						buf = free.take();
+					} catch(InterruptedException e) {
+					}
+				}
+			}
+		}
+	}
+
+	public LogWriter append(char c) {
+		//(only for ASCII characters)
+		if(!buf.hasRemaining())
+			send(false);
+		buf.put((byte)c);
+		return this;
+	}
+
+	public LogWriter append(String s) {
+		int len = s.length();
+		for(int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			if(c >= 0x80)
+				return appendEncoded(s.substring(i));
+			if(!buf.hasRemaining())
+				send(false);
+			buf.put((byte)c);
+		}
+		return this;
+	}
+
+	private LogWriter appendEncoded(String s) {
+		//appends text that isn't all ASCII
+		return put(s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public LogWriter append(long v) {
+		if(v == Long.MIN_VALUE)
+			return append(Long.toString(v));
+		if(buf.remaining() < 20)  //room for any long
+			send(false);
+		if(v < 0) {
+			buf.put((byte)'-');
+			v = -v;
+		}
+
+		//write digits backwards, then move them into place
+		int start = buf.position();
+		do {
+			buf.put((byte)('0' + (v % 10)));
+			v /= 10;
+		} while(v != 0);
+		int end = buf.position() - 1;
+		while(start < end) {
+			byte tmp = buf.get(start);
+			buf.put(start, buf.get(end));
+			buf.put(end, tmp);
+			start++;
+			end--;
+		}
+		return this;
+	}
+
+	//binary output (big-endian, as for ByteBuffer)
+
+	public LogWriter putInt(int v) {
+		if(buf.remaining() < 4)
+			send(false);
+		buf.putInt(v);
+		return this;
+	}
+
+	public LogWriter putLong(long v) {
+		if(buf.remaining() < 8)
+			send(false);
+		buf.putLong(v);
+		return this;
+	}
+
+	public LogWriter put(byte[] bytes) {
+		int pos = 0;
+		while(pos < bytes.length) {
+			if(!buf.hasRemaining())
+				send(false);
+			int num = Math.min(buf.remaining(), bytes.length - pos);
+			buf.put(bytes, pos, num);
+			pos += num;
+		}
+		return this;
+	}
+
+	public void close() {
+		//writes everything appended and closes the file
+
+		if(buf == null)
+			return;  //already closed
+		send(true);
+		while(closed.getCount() > 0) {
+			try {
+				closed.await();
+			} catch(InterruptedException e) {
+			}
+		}
+		if(error != null)
+			System.err.println("ERROR WRITING TO " + fileName + " (" + error.getMessage() + ")");
+	}
+}
@@ -36,31 +36,38 @@ public class Main {
 	private static Factory<Allocator> allocatorFactory;
 	private static Factory<Comparator<Job>> comparatorFactory;
 	private static Factory<TaskMapper> taskMapFactory;
+	private static Factory<EventQueue> eventQueueFactory;
 
-	private static Machine machine;
-	private static Scheduler scheduler;
-	private static Allocator allocator;
+	//names of the objects to simulate (as given on command line)
+	private static String machineName = "simple[100]";
+	private static String schedulerName = "pqueue[fifo]";
+	private static String allocatorName = "simple";
+	private static String eventQueueName = "calendar";
 
 	private static TaskMapper taskMap = null;
 
+	//file listing the simulations to run in a parameter sweep (null if none)
+	private static String sweepFile = null;
+	private static int sweepThreads = Runtime.getRuntime().availableProcessors();
+
+	//The machine, scheduler, allocator, and clock belong to the
+	//Simulation current on this thread; the methods below forward to it
+	//so objects built by the factories can find them.
+
 	//cover and uncoverMachine used so TimedRunScheduler can pass a
 	//different machine to its base scheduler.  Would be better to
 	//implement as stack of machines or allow the machine to be passed
 	//into the factory
 	public static void coverMachine(Machine m) {
-		coveringMachine = m;
+		Simulation.current().coverMachine(m);
 	}
 
 	public static void uncoverMachine() {
-		coveringMachine = null;
+		Simulation.current().uncoverMachine();
 	}
 
-	private static Machine coveringMachine = null;
-
 	public static Machine getMachine() {
-		if(coveringMachine != null)
-			return coveringMachine;
-		return machine;
+		return Simulation.current().getMachine();
 	}
 
 	public static Factory<Machine> getMachineFactory(){
@@ -101,7 +108,16 @@ public class Main {
 
 		System.out.println("Usage: java Main [machine=<MachineName>] [scheduler=<SchedulerName>]"+
 				" [allocator=<AllocatorName>] trace=<file name>" +
-				" [-accurate] [logs=<Logs>]\n");
+				" [queue=<EventQueueName>] [-accurate] [-metrics] [logs=<Logs>]" +
+				" [fst=<strict,relaxed>] [fstthreads=<num>] [allocthreads=<num>]\n");
+
+		System.out.println("   or: java Main trace=<file name> sweep=<file name> [threads=<num>]"+
+				" [queue=<EventQueueName>] [-accurate] [-metrics] [logs=<Logs>]\n"+
+				"           [fst=<strict,relaxed>] [fstthreads=<num>] [allocthreads=<num>]");
+		System.out.println("       (runs each line of the sweep file, e.g."+
+				" \"machine=simple[100] scheduler=easy\", as its own simulation)\n");
+		System.out.println("   allocthreads: threads nearest allocators (e.g. MM, genAlg) use to"+
+				" score centers\n   (allocations are the same for any number)\n");
 
 		System.out.println("Machines:");
 		System.out.println(machineFactory.getList(true,0));
@@ -118,21 +134,27 @@ public class Main {
 		System.out.println("\nTask Mappers:");
 		System.out.println(taskMapFactory.getList(true,0));
 
+		System.out.println("\nEvent Queues:");
+		System.out.println(eventQueueFactory.getList(true,0));
+
 		System.out.println("\nLogs:");
-		System.out.println("util\ntime\nwait\nalloc\nties\nvisual\n");
+		System.out.println("util\ntime\nwait\nalloc\nties\nvisual\nfrag (free blocks of MBS allocators)\nbinary (time, util, and wait logs in columnar binary format)\n"+
+				"summary (no log files; prints a summary of each simulation)\n");
 
 		System.out.println("\nDefaults:\nMachine: simple[100]\nScheduler: pqueue[fifo]"+
-				"\nAllocator: simple\nLogs: time");
+				"\nAllocator: simple\nEvent Queue: calendar\nLogs: time");
 
 		System.exit(0);
 	}
 
-	private static void initialize() {
+	public static void initialize() {
+		//sets up the factories; called by main before anything else
 		machineFactory = new Factory<Machine>();
 		schedulerFactory = new Factory<Scheduler>();
 		allocatorFactory = new Factory<Allocator>();
 		comparatorFactory = new Factory<Comparator<Job>>();
 		taskMapFactory = new Factory<TaskMapper>();
+		eventQueueFactory = new Factory<EventQueue>();
 
 		machineFactory.registerClass("simple", SimpleMachine.class);
 		machineFactory.registerClass("mesh", Mesh.class);
@@ -140,6 +162,7 @@ public class Main {
 
 		schedulerFactory.registerClass("aggressive", AggressiveScheduler.class);
 		schedulerFactory.registerClass("easy", EASYScheduler.class);
+		schedulerFactory.registerClass("easyk", EASYKScheduler.class);
 		schedulerFactory.registerClass("cons", StatefulScheduler.class);
 		schedulerFactory.registerClass("pqueue", PQScheduler.class);
 		schedulerFactory.registerClass("timed", TimedRunScheduler.class);
@@ -159,6 +182,7 @@ public class Main {
 		allocatorFactory.registerClass("OldMC1x1", NearestAllocator.class);
 		allocatorFactory.registerClass("random", RandomAllocator.class);
 		allocatorFactory.registerClass("simple", SimpleAllocator.class);
+		allocatorFactory.registerClass("cached", CachingAllocator.class);
 		allocatorFactory.registerClass("MBS", MBSAllocator.class);
 		allocatorFactory.registerClass("OctetMBS", OctetMBSAllocator.class);
 		allocatorFactory.registerClass("GranularMBS", GranularMBSAllocator.class);
@@ -185,6 +209,9 @@ public class Main {
 		taskMapFactory.registerClass("ordered", OrderedTaskMapper.class);
 		taskMapFactory.registerClass("twoPG", TwoWayPGTaskMapper.class);
 		taskMapFactory.registerClass("geom", GeometricTaskMapper.class);
+
+		eventQueueFactory.registerClass("calendar", CalendarEventQueue.class);
+		eventQueueFactory.registerClass("heap", HeapEventQueue.class);
 	}
 
 	//Parse the argument list to create objects for this simulation
@@ -192,28 +219,47 @@ public class Main {
 	public static String parseArgs(String[] args) {
 		List<String> arglist = Arrays.asList(args);
 
-		String mach = "simple[100]";
-		String alloc = "simple";
-		String sched = "pqueue[fifo]";
 		String trace = "";
 		String map = "";
 
 		for(int i=0; i<arglist.size(); i++) {
 		    String s = arglist.get(i);
 			if(s.startsWith("machine=")) {
-				mach=s.substring(8);
+				machineName=s.substring(8);
 			} else if(s.startsWith("scheduler=")) {
-				sched=s.substring(10);
+				schedulerName=s.substring(10);
 			} else if(s.startsWith("allocator=")) {
-				alloc=s.substring(10);
+				allocatorName=s.substring(10);
+			} else if(s.startsWith("queue=")) {
+				eventQueueName=s.substring(6);
+			} else if(s.startsWith("sweep=")) {
+				sweepFile=s.substring(6);
+			} else if(s.startsWith("threads=")) {
+				sweepThreads=Integer.parseInt(s.substring(8));
 			} else if(s.startsWith("trace=")) {
 				trace=s.substring(6);
 			} else if(s.startsWith("mapper=")) {
 				map = s.substring(7);
+			} else if(s.startsWith("fst=")) {
+				for(String kind : s.substring(4).split(",")) {
+					if(kind.equals("strict"))
+						calcStrictFST = true;
+					else if(kind.equals("relaxed"))
+						calcRelaxedFST = true;
+					else
+						Main.error("Unknown kind of fair start time \"" + kind +
+								"\" (use strict and/or relaxed)");
+				}
+			} else if(s.startsWith("fstthreads=")) {
+				FSTEstimator.setThreads(Integer.parseInt(s.substring(11)));
+			} else if(s.startsWith("allocthreads=")) {
+				NearestAllocator.setThreads(Integer.parseInt(s.substring(13)));
 			} else if(s.contains("logs=") && s.substring(0,5).equals("logs=")) {
 				ActualStatistics.SetupLogs(s.substring(5).split(","));
 			} else if(s.equals("-accurate")) {
 				accurateEsts = true;
+			} else if(s.equals("-metrics")) {
+				Metrics.enable();
 			} else {
 				if(!s.equals("-h") && !s.equals("--help"))
 					System.err.println("Unknown command line option "+s);
@@ -225,50 +271,72 @@ public class Main {
 			Main.error("You must specify the input trace (trace=<trace name>). Use --help for usage");
 		}
 
-		System.out.println("#Machine: "+mach);
-		System.out.println("#Scheduler: "+sched);
-		System.out.println("#Allocator: "+alloc);
+		if(sweepFile == null) {
+			System.out.println("#Machine: "+machineName);
+			System.out.println("#Scheduler: "+schedulerName);
+			System.out.println("#Allocator: "+allocatorName);
+		}
 
-		
-		machine = machineFactory.Create(mach);
-		scheduler = schedulerFactory.Create(sched);
-		allocator = allocatorFactory.Create(alloc);
+		if(!map.equals("")){
+			System.out.println("#Task Mapper: " + map);
+			taskMap = taskMapFactory.Create(map);
+		}
+
+		return trace;
+	}
+
+	//Create the objects for one simulation and make it current on this thread
+	public static Simulation createSimulation(String mach, String sched, String alloc) {
+		Simulation sim = new Simulation();
+		Simulation.setCurrent(sim);
+
+		sim.setMachine(machineFactory.Create(mach));
+		Scheduler scheduler = schedulerFactory.Create(sched);
+		Allocator allocator = allocatorFactory.Create(alloc);
 		if(allocator instanceof ContiguousAllocator) {
 			//make sure scheduler can handle contiguous allocation
 			scheduler = scheduler.contiguousAllocVersion(allocator);
 			if(scheduler == null)
 				error("Cannot use scheduler \"" + sched + "\" with a contiguous allocator");
 		}
-		
+		sim.setScheduler(scheduler);
+		sim.setAllocator(allocator);
+
 		//TODO: If Fair Start Time is being computed, check (scheduler instanceof CopyableScheduler) and that machine is SimpleMachine
-		
-		if(!map.equals("")){
-			System.out.println("#Task Mapper: " + map);
-			taskMap = taskMapFactory.Create(map);
-		}
 
-		return trace;
+		return sim;
 	}
 
-	public static Scanner getInputScanner(String traceFileName) {
-		//returns Scanner from which to read input
+	//Create an event queue of the kind named on the command line
+	public static EventQueue createEventQueue() {
+		return eventQueueFactory.Create(eventQueueName);
+	}
 
-		Scanner retVal = null;
+	public static File getInputFile(String traceFileName) {
+		//returns the trace file to read
 
 		//first try to use SIMINPUTtraceFileName
 		String inputBase = System.getenv("SIMINPUT");
 		if(inputBase != null) {
-			try {
-				retVal = new Scanner(new File(inputBase+traceFileName));
+			File retVal = new File(inputBase+traceFileName);
+			if(retVal.isFile())
 				return retVal;
-			} catch(java.io.FileNotFoundException exc) {
-				//try without SIMINPUT (below)
-			}
+			//otherwise try without SIMINPUT (below)
 		}
 
 		//that didn't work so try it without SIMINPUT
+		File retVal = new File(traceFileName);
+		if(!retVal.isFile())
+			error("File not found: " + traceFileName);
+		return retVal;
+	}
+
+	public static Scanner getInputScanner(String traceFileName) {
+		//returns Scanner from which to read input
+
+		Scanner retVal = null;
 		try {
-			retVal = new Scanner(new File(traceFileName));
+			retVal = new Scanner(getInputFile(traceFileName));
 		} catch(java.io.FileNotFoundException exc) {
 			error("File not found: " + traceFileName);
 		}
@@ -281,7 +349,33 @@ public class Main {
 
 		String traceFileName = parseArgs(args);  //name of trace
 
-		PriorityQueue<Event> events = new PriorityQueue<Event>();
+		if(sweepFile != null) {
+			new ParameterSweep(traceFileName, sweepFile, sweepThreads).run();
+			return;
+		}
+
+		Simulation sim = createSimulation(machineName, schedulerName, allocatorName);
+		Machine machine = sim.getMachine();
+		Scheduler scheduler = sim.getScheduler();
+		Allocator allocator = sim.getAllocator();
+
+		TraceReader trace = new TraceReader(traceFileName,
+				allocator instanceof ContiguousAllocator, accurateEsts, taskMap);
+
+		EventQueue events = createEventQueue();
+
+		machine.reset();
+		scheduler.reset();
+		events.clear();
+			
+		runSim(sim, events, new ArrivalStream(trace, machine), traceFileName, traceFileName);
+		
+		allocator.done();
+	}
+
+	//Read all the jobs from a trace, skipping (with a warning) ones that are invalid
+	//jobsHaveDim says whether to read them as ContiguousJobs
+	public static ArrayList<Job> readTrace(String traceFileName, boolean jobsHaveDim) {
 
 		ArrayList<Job> jobs = new ArrayList<Job>();
 
@@ -289,51 +383,12 @@ public class Main {
 			System.err.println("Reading trace:");
 		}
 
-		Scanner input = getInputScanner(traceFileName);
+		TraceReader input = new TraceReader(traceFileName, jobsHaveDim, accurateEsts, taskMap);
 
-		boolean jobsHaveDim = allocator instanceof ContiguousAllocator;	
 		boolean sw=true; //Switch for progress reporting output
 		int prnum = 0;
 		while(input.hasNext()) {
-			Job j = null;
-			if(jobsHaveDim)
-				j = new ContiguousJob(input, accurateEsts, taskMap);
-			else 
-				j = new Job(input, accurateEsts, taskMap);
-
-			//check for invalid jobs
-			if (j.getProcsNeeded() <= 0) {
-				Main.warning("Job " + j.getJobNum() + " requests " + j.getProcsNeeded() +
-						" processors; ignoring it");
-				continue;
-			}
-			if (j.getActualTime() < 0){  //time 0 also a bit strange, but perhaps rounded down
-				Main.warning("Job " + j.getJobNum() + " has running time of " + j.getActualTime() +
-						"; ignoring it");
-				continue;
-			}
-			if(j.getProcsNeeded() > machine.numFreeProcessors())
-				Main.error("Job "+j.getJobNum()+" requires "+j.getProcsNeeded()+" processors but"+
-						" only "+machine.numFreeProcessors()+" are in the machine");
-
-			if(jobsHaveDim) {
-
-				ContiguousJob c = (ContiguousJob) j;
-				Mesh mach = (Mesh) machine;
-
-				if(c.getX() > mach.getXDim() 
-						|| c.getY() > mach.getYDim()
-						|| c.getZ() > mach.getZDim()) {
-					Main.error("Job " + c.getJobNum() + " requires " +
-							c.getX() + "x" + c.getY() + "x" + c.getZ() 
-							+ " processors but the " + "machine has " 
-							+ mach.getXDim() + "x" +
-							mach.getXDim() + "x" +
-							mach.getZDim() + " processors");
-				}
-			}
-			//otherwise, the job is valid
-			jobs.add(j);
+			jobs.add(input.next());
 			if(reportProgress && (prnum==0 || !input.hasNext())) {
 				//print the current number of jobs that have been read.
 				if(!sw){
@@ -351,163 +406,93 @@ public class Main {
 		}
 		if(reportProgress)
 			System.err.println("\nFinished.");
-		input.close();
 
-		machine.reset();
-		scheduler.reset();
-		events.clear();
-		for(Job j : jobs) {
-			ArrivalEvent ae = new ArrivalEvent(j);
-			events.add(ae);
-		}		
-			
-		runSim(machine, scheduler, allocator, events, traceFileName);
-		
-		allocator.done();
+		return jobs;
 	}
-	
-	static long currentTime;
 
-	public static long getCurTime(){
-		return currentTime;
-	}
-
-	private static void estimateFST(Machine mach, Allocator alloc, Scheduler scheduler,PriorityQueue<Event> events,
-			Event e, Statistics dummy, boolean relaxed, boolean beginWithStart,String traceName){
-		SimpleMachine machine=new SimpleMachine(mach.numProcs());
-		Main.coverMachine(machine);
-		machine.numAvail= mach.numFreeProcessors();
-		SimpleAllocator duplicateAlloc = new SimpleAllocator(machine);
-		Scheduler sched =  ((CopyableScheduler)scheduler).copy();
-		Statistics stats = new Statistics(mach, sched, alloc, traceName, accurateEsts);
-		
-		PriorityQueue<Event> duplicateEvents= new PriorityQueue<Event>();
-		long currentTime=e.getTime();
-		for(Event ev:events){
-			if (ev instanceof DepartureEvent){
-				duplicateEvents.add(ev);
-			}
-		}
-		if(debug)
-			System.out.println("Cloned Event called for job: "+e.getJob().getJobNum());
-		PriorityQueue<Event> temp = new PriorityQueue<Event>(); //create a new queue to look at departureEvents
-		LinkedList<Job> startedJobs = new LinkedList<Job>();  //list of jobs started inside simulation
-		boolean wasInitiallyWaiting=sched.hasJobsWaiting();
-		boolean alreadyAdded=false;
-		if(beginWithStart){ //Start Jobs immediately
-			AllocInfo allocInfo =null;
-			do{
-				 allocInfo = sched.tryToStart(duplicateAlloc, e.getTime(), machine, duplicateEvents, stats);
-				 if(allocInfo != null){
-						startedJobs.add(allocInfo.job);
-					}
-			}while(allocInfo != null);
-			if(relaxed && wasInitiallyWaiting){
-				if(!sched.hasJobsWaiting()){
-					duplicateEvents.add(e);
-					alreadyAdded=true;
-				}
+	//Make sure a job from the trace can run on the given machine
+	static void checkJobFits(Job j, Machine machine) {
+		if(j.getProcsNeeded() > machine.numProcs())
+			Main.error("Job "+j.getJobNum()+" requires "+j.getProcsNeeded()+" processors but"+
+					" only "+machine.numProcs()+" are in the machine");
+
+		if(j instanceof ContiguousJob) {
+
+			ContiguousJob c = (ContiguousJob) j;
+			Mesh mach = (Mesh) machine;
+
+			if(c.getX() > mach.getXDim() 
+					|| c.getY() > mach.getYDim()
+					|| c.getZ() > mach.getZDim()) {
+				Main.error("Job " + c.getJobNum() + " requires " +
+						c.getX() + "x" + c.getY() + "x" + c.getZ() 
+						+ " processors but the " + "machine has " 
+						+ mach.getXDim() + "x" +
+						mach.getXDim() + "x" +
+						mach.getZDim() + " processors");
 			}
 		}
-		
-		if(!relaxed || !wasInitiallyWaiting){
-			duplicateEvents.add(e);
-			alreadyAdded=true;
-		}
-		temp = new PriorityQueue<Event>(); //create a new queue to look at departureEvents
-		if(duplicateEvents.size()==0 && wasInitiallyWaiting && relaxed){
-			sched.tryToStart(duplicateAlloc, e.getTime(), machine, duplicateEvents, stats);
-			Event copied= duplicateEvents.peek();
-			temp.add(copied);
-			for(Event e3 : temp) {	
-				if(!(e3 instanceof DepartureEvent)) // check to see if the event to be added is an departureEvent
-					ierror("happen added a non-DepartureEvent");
-				startedJobs.add(e3.getJob()); 
-			}
-			if(relaxed && wasInitiallyWaiting){
-				if(!sched.hasJobsWaiting()){
-					duplicateEvents.add(e);
-					alreadyAdded=true;
-				}
-			}
+	}
 
-		}
-		
-		while(duplicateEvents.size() > 0) {	
-			Event e2 = duplicateEvents.poll();  //remove first event
-			currentTime=e2.getTime();
-			temp = new PriorityQueue<Event>(); //create a new queue to look at departureEvents
-			Event copied = null;
-			if((duplicateEvents.size() > 0) &&
-					(duplicateEvents.peek().getTime() == e2.getTime())) { //check to see if it happens at the same time
-				copied = duplicateEvents.peek();
-				temp.add(copied);
-			}
-			e2.happen(machine, duplicateAlloc, sched, temp, stats);
-			/*
-			 * iterate through the temp queue to find the newly added departure event
-			 * if we know that a new departure event has been added to the queue we 
-			 * know that the job has been started hence we can add to the linkedlist of
-			 * jobs that have started
-			 */
-			for(Event e3 : temp) {	
-				if(e3 != copied) { 	//avoid the same copied event
-					duplicateEvents.add(e3); //add the departure event
-					if(!(e3 instanceof DepartureEvent)) // check to see if the event to be added is an departureEvent
-						ierror("happen added a non-DepartureEvent");
-					startedJobs.add(e3.getJob()); 
-				}
-			}	
-			if(!sched.hasJobsWaiting() && !alreadyAdded && relaxed){
-				ArrivalEvent ae = new ArrivalEvent(e.getJob(),currentTime);
-				duplicateEvents.add(ae);
-				alreadyAdded=true;
-			}
-		}
-		
-		if(relaxed){
-			e.getJob().setRelaxedFST(e.getJob().getStartTime());
-		}else{
-			e.getJob().setStrictFST(e.getJob().getStartTime());
-		}
-		//reset the startTime of all the jobs that have been started in sideSimulation
-		for(Job j : startedJobs){
-			j.resetStartTime();
-		}
-		Main.uncoverMachine();
-		if(debug)
-			System.out.println("Cloned Event finished ");
+	public static long getCurTime(){
+		return Simulation.current().getCurrentTime();
 	}
-	
-	private static void runSim(Machine mach, Scheduler sched, Allocator alloc,
-			PriorityQueue<Event> events, String traceName)  {
-				
-		ActualStatistics stats = new ActualStatistics(mach, sched, alloc, traceName, accurateEsts);
+
+	//Run a simulation until its events run out
+	//arrivals supplies the job arrivals as the simulation reaches them
+	//logName names the log files (normally the same as traceName)
+	public static void runSim(Simulation sim, EventQueue events, ArrivalStream arrivals,
+			String traceName, String logName)  {
+
+		Machine mach = sim.getMachine();
+		Scheduler sched = sim.getScheduler();
+		Allocator alloc = sim.getAllocator();
+
+		Statistics stats;
+		if(ActualStatistics.recordingSummary())
+			stats = new SummaryStatistics(mach, logName);
+		else
+			stats = new ActualStatistics(mach, sched, alloc, traceName,
+					logName, accurateEsts);
+		sim.setStatistics(stats);
+		if(Metrics.isEnabled())
+			sim.setMetrics(new Metrics());
+
+		FSTEstimator fst = null;
+		if(calcStrictFST || calcRelaxedFST)
+			fst = new FSTEstimator(sched, calcStrictFST, calcRelaxedFST);
 	
 		if(reportProgress)
 			System.err.println("Starting simulation:");
 		long previousEventTime=-1;	
 		boolean sw=true;
 		int prnum=0;
+		long start = Metrics.start();
+		arrivals.start(events);
+		Metrics.stop(Metrics.TRACE, start);
 		while(events.size() > 0) {
 			Event e = events.poll();  //remove first event
+			start = Metrics.start();
+			arrivals.eventRemoved(e, events);
+			Metrics.stop(Metrics.TRACE, start);
 			
-			if (e instanceof ArrivalEvent && (calcStrictFST || calcRelaxedFST) ){			//check whether it is arrival or not
-				if(calcStrictFST){					
-					estimateFST(mach, alloc, sched, events, e, stats, false, false,traceName);	
-				}
-				if(calcRelaxedFST){	
-					//Scheduler duplicate =  ((CopyableScheduler)sched).copy();
-					//Statistics dummy = new Statistics(mach, duplicate, alloc, traceName, accurateEsts);
-					estimateFST(mach, alloc, sched, events, e, stats, true,
-							(previousEventTime==e.getTime() && !Event.handleArrivalsSeparately),traceName);	
-				}
+			start = Metrics.start();
+			if (e instanceof ArrivalEvent && fst != null){			//check whether it is arrival or not
+				fst.jobArrives(mach, sched, events, e,
+						(previousEventTime==e.getTime() && !Event.handleArrivalsSeparately));
+			} else if (e instanceof DepartureEvent && fst != null) {
+				fst.jobFinishes(e.getJob());  //so its FSTs are ready to log
 			}
+			if(fst != null)
+				Metrics.stop(Metrics.FST, start);
 			
-			currentTime = e.getTime();
-			previousEventTime=currentTime;
+			sim.setCurrentTime(e.getTime());
+			previousEventTime=e.getTime();
 			
+			start = Metrics.start();
 			e.happen(mach, alloc, sched, events, stats);
+			Metrics.stop(Metrics.EVENT, start);
+			Metrics.count(Metrics.EVENTS, 1);
 				
 			if(reportProgress && prnum==0){
 				if(!sw)
@@ -526,7 +511,16 @@ public class Main {
 		if(reportProgress)
 			System.err.println("\nFinished.");
 
+		if(fst != null) {
+			start = Metrics.start();
+			fst.done();
+			Metrics.stop(Metrics.FST, start);
+		}
+		start = Metrics.start();
 		stats.done();
+		Metrics.stop(Metrics.STATS, start);
 		sched.done();
+		if(sim.getMetrics() != null)
+			sim.getMetrics().report(logName);
 	}
 }
@@ -14,6 +14,7 @@
 package simulator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 import simulator.allocator.AllocInfo;
 import simulator.allocator.MeshAllocInfo;
@@ -24,7 +25,38 @@ public class Mesh extends Machine {
 	private int ydim;
 	private int zdim;
 
-	private boolean[][][] isFree;  //whether each processor is free
+	//which processors are free, as a bitset with one bit per processor
+	//(x,y,z) is bit (x*ydim + y)*zdim + z, so increasing index is the
+	//  order of a loop over x, then y, then z
+	private long[] free;
+
+	//which words of free are nonzero, so searches can skip busy regions
+	//(bit w is set iff free[w] != 0; kept up to date on every change)
+	private long[] nonEmpty;
+
+	//the MeshLocation for each processor, by index (made when first needed)
+	private MeshLocation[] locations = null;
+
+	//fingerprint of which processors are busy: the XOR of zobristKey of
+	//  each busy one (kept up to date on every change)
+	private long occupancy;
+
+	//# busy processors in each box with a corner at (0,0,0): entry
+	//  ((x*(ydim+1) + y)*(zdim+1) + z) counts [0,x) x [0,y) x [0,z)
+	//(made when first needed after a change and never modified, so
+	//  copies share it; null when out of date)
+	private int[] busyBelow = null;
+
+	//# processors lastBusyX has looked at one by one since the last
+	//  change; it makes busyBelow once this would be more work
+	private long scanned = 0;
+
+	//maximal free boxes (made when first needed, then kept up to date)
+	private FreeBoxes freeBoxes = null;
+
+	//free runs along each linear order asked for (made when first
+	//  needed, then kept up to date; null if none)
+	private ArrayList<FreeRuns> freeRuns = null;
 
 	public Mesh(int Xdim, int Ydim, int Zdim) {
 		//constructor that takes mesh dimensions
@@ -32,8 +64,7 @@ public class Mesh extends Machine {
 		xdim = Xdim;
 		ydim = Ydim;
 		zdim = Zdim;
-		numProcs = Xdim * Ydim * Zdim;
-		isFree = new boolean[xdim][ydim][zdim];
+		makeBitsets();
 		reset();
 	}
 
@@ -41,17 +72,17 @@ public class Mesh extends Machine {
 		//constructor for testing
 		//takes array telling which processors are free
 
-		isFree = IsFree;
-		xdim = isFree.length;
-		ydim = isFree[0].length;
-		zdim = isFree[0][0].length;
+		xdim = IsFree.length;
+		ydim = IsFree[0].length;
+		zdim = IsFree[0][0].length;
+		makeBitsets();
 
 		numAvail = 0;
 		for(int x=0; x<xdim; x++)
 			for(int y=0; y<ydim; y++)
 				for(int z=0; z<zdim; z++)
-					if(isFree[x][y][z])
-						numAvail++;
+					if(IsFree[x][y][z])
+						setFree(indexOf(x, y, z));
 	}
 
 	public Mesh(Mesh other) {  //copy constructor
@@ -60,11 +91,18 @@ public class Mesh extends Machine {
 		zdim = other.zdim;
 		numAvail = other.numAvail;
 		numProcs = other.numProcs;
-		isFree = new boolean[xdim][ydim][zdim];
-		for(int i=0; i<xdim; i++)
-			for(int j=0; j<ydim; j++)
-				for(int k=0; k<zdim; k++)
-					isFree[i][j][k] = other.isFree[i][j][k];
+		free = other.free.clone();
+		nonEmpty = other.nonEmpty.clone();
+		occupancy = other.occupancy;
+		busyBelow = other.busyBelow;
+		scanned = other.scanned;
+		if(other.freeBoxes != null)
+			freeBoxes = new FreeBoxes(other.freeBoxes, this);
+		if(other.freeRuns != null) {
+			freeRuns = new ArrayList<FreeRuns>();
+			for(FreeRuns runs : other.freeRuns)
+				freeRuns.add(new FreeRuns(runs, this));
+		}
 	}
 
 	public Mesh(Scanner scan) {
@@ -77,7 +115,7 @@ public class Mesh extends Machine {
 		this.ydim = scan.nextInt();
 		this.zdim = scan.nextInt();
 
-		isFree = new boolean[xdim][ydim][zdim];
+		makeBitsets();
 		String row;
 
 		//Ordering traverses the column, then row, then plane
@@ -87,16 +125,65 @@ public class Mesh extends Machine {
 				row = scan.nextLine();
 				for(int x = 0; x < xdim; x++) {
 					if (row.charAt(x) == 'X') {
-						isFree[x][(ydim-1)-y][z] = true;
-					}
-					else {
-						isFree[x][(ydim-1)-y][z] = false;
+						setFree(indexOf(x, (ydim-1)-y, z));
 					}
 				}
 			}
 		}
 	}
 
+	private void makeBitsets() {
+		//allocates bitsets for a mesh of the current size; all busy
+		int size = xdim * ydim * zdim;
+		numProcs = size;
+		free = new long[(size + 63) >>> 6];
+		nonEmpty = new long[(free.length + 63) >>> 6];
+		occupancy = 0;
+		for(int i=0; i<size; i++)
+			occupancy ^= zobristKey(i);
+		busyBelow = null;
+		scanned = 0;
+	}
+
+	private static long zobristKey(int index) {
+		//returns random-looking key for processor w/ given index
+		//(the SplitMix64 finalizer, so keys need not be stored)
+		long z = (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public long getOccupancyHash() {
+		//returns fingerprint of which processors are busy; meshes of the
+		//  same size with the same busy processors have the same one
+		//  (and others almost certainly don't)
+		return occupancy;
+	}
+
+	private void setFree(int index) {
+		//marks processor w/ given index free (it must be busy)
+		int w = index >>> 6;
+		free[w] |= 1L << index;
+		nonEmpty[w >>> 6] |= 1L << w;
+		occupancy ^= zobristKey(index);
+		busyBelow = null;
+		scanned = 0;
+		numAvail++;
+	}
+
+	private void setBusy(int index) {
+		//marks processor w/ given index busy (it must be free)
+		int w = index >>> 6;
+		free[w] &= ~(1L << index);
+		if(free[w] == 0)
+			nonEmpty[w >>> 6] &= ~(1L << w);
+		occupancy ^= zobristKey(index);
+		busyBelow = null;
+		scanned = 0;
+		numAvail--;
+	}
+
 	public static Mesh Make(ArrayList<String> params) {
 		Factory.argsAtLeast(3,params);
 		Factory.argsAtMost(3,params);
@@ -134,43 +221,302 @@ public class Mesh extends Machine {
 	}
 
 	public boolean getIsFree(int x, int y, int z) {
-		return isFree[x][y][z];
+		//(check coordinates since a bad one could give a valid index)
+		if(x < 0 || x >= xdim || y < 0 || y >= ydim || z < 0 || z >= zdim)
+			throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ", " + z +
+					") is outside the mesh");
+		return getIsFree(indexOf(x, y, z));
+	}
+
+	public boolean getIsFree(int index) {
+		return (free[index >>> 6] & (1L << index)) != 0;
+	}
+
+	//Processors can also be referred to by an int index (see comment on
+	//free); the methods below iterate over them without creating objects:
+	//  for(int i = mesh.nextFree(0); i != -1; i = mesh.nextFree(i+1))
+
+	public int indexOf(int x, int y, int z) {
+		return (x * ydim + y) * zdim + z;
+	}
+
+	public int indexOf(MeshLocation loc) {
+		return indexOf(loc.x, loc.y, loc.z);
+	}
+
+	public int xOf(int index) {
+		return index / (ydim * zdim);
+	}
+
+	public int yOf(int index) {
+		return (index / zdim) % ydim;
+	}
+
+	public int zOf(int index) {
+		return index % zdim;
+	}
+
+	public MeshLocation location(int index) {
+		//returns the MeshLocation for processor w/ given index
+		//(always the same object for a given processor of this mesh)
+
+		if(locations == null)
+			locations = new MeshLocation[numProcs];
+		MeshLocation loc = locations[index];
+		if(loc == null) {
+			loc = new MeshLocation(xOf(index), yOf(index), zOf(index), this);
+			locations[index] = loc;
+		}
+		return loc;
+	}
+
+	public MeshLocation location(int x, int y, int z) {
+		return location(indexOf(x, y, z));
+	}
+
+	public int nextFree(int from) {
+		//returns index of first free processor w/ index >= from
+		//(or -1 if there isn't one)
+
+		if(from >= numProcs)
+			return -1;
+		int w = from >>> 6;
+		long word = free[w] & (-1L << from);
+		if(word != 0)
+			return (w << 6) + Long.numberOfTrailingZeros(word);
+
+		//use nonEmpty to find the next word w/ a free processor
+		w++;
+		int s = w >>> 6;
+		if(s >= nonEmpty.length)
+			return -1;
+		long summary = nonEmpty[s] & (-1L << w);
+		while(summary == 0) {
+			s++;
+			if(s == nonEmpty.length)
+				return -1;
+			summary = nonEmpty[s];
+		}
+		w = (s << 6) + Long.numberOfTrailingZeros(summary);
+		return (w << 6) + Long.numberOfTrailingZeros(free[w]);
+	}
+
+	public int nextUsed(int from) {
+		//returns index of first busy processor w/ index >= from
+		//(or -1 if there isn't one)
+
+		if(from >= numProcs)
+			return -1;
+		int w = from >>> 6;
+		long word = ~free[w] & (-1L << from);
+		while(word == 0) {
+			w++;
+			if(w == free.length)
+				return -1;
+			word = ~free[w];
+		}
+		int retVal = (w << 6) + Long.numberOfTrailingZeros(word);
+		return (retVal < numProcs) ? retVal : -1;
+	}
+
+	public int freeIndices(int[] buffer) {
+		//fills buffer w/ indices of the free processors (in increasing
+		//order) and returns how many there are
+		//buffer must have room for numFreeProcessors() values
+
+		int num = 0;
+		for(int s=0; s<nonEmpty.length; s++) {
+			long summary = nonEmpty[s];
+			while(summary != 0) {
+				int w = (s << 6) + Long.numberOfTrailingZeros(summary);
+				summary &= summary - 1;
+				long word = free[w];
+				while(word != 0) {
+					buffer[num++] = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+		}
+		return num;
 	}
 
 	public void reset() {
-		numAvail = xdim * ydim * zdim;
-		for(int i=0; i<xdim; i++)
-			for(int j=0; j<ydim; j++)
-				for(int k=0; k<zdim; k++)
-					isFree[i][j][k] = true;
+		numAvail = numProcs;
+		Arrays.fill(free, -1L);
+		if((numProcs & 63) != 0)  //clear bits past the last processor
+			free[free.length-1] = (1L << numProcs) - 1;
+		Arrays.fill(nonEmpty, 0);
+		for(int w=0; w<free.length; w++)
+			nonEmpty[w >>> 6] |= 1L << w;
+		occupancy = 0;
+		busyBelow = null;
+		scanned = 0;
+		freeBoxes = null;
+		freeRuns = null;
+	}
+
+	private int[] getBusyBelow() {
+		//returns busyBelow, making it again if it is out of date
+		if(busyBelow == null) {
+			int ys = ydim + 1;
+			int zs = zdim + 1;
+			int[] count = new int[(xdim + 1) * ys * zs];
+
+			//add up along z, then y, then x
+			int index = 0;
+			for(int x=1; x<=xdim; x++)
+				for(int y=1; y<=ydim; y++) {
+					int i = (x * ys + y) * zs;
+					int run = 0;
+					for(int z=1; z<=zdim; z++, index++) {
+						run += (int)(~free[index >>> 6] >>> index) & 1;
+						count[i + z] = run;
+					}
+				}
+			for(int x=1; x<=xdim; x++)
+				for(int y=2; y<=ydim; y++) {
+					int i = (x * ys + y) * zs;
+					for(int z=1; z<=zdim; z++)
+						count[i + z] += count[i - zs + z];
+				}
+			for(int i = 2 * ys * zs; i < count.length; i++)
+				count[i] += count[i - ys * zs];
+
+			busyBelow = count;
+		}
+		return busyBelow;
+	}
+
+	public int numBusy(int x, int y, int z, int xlen, int ylen, int zlen) {
+		//returns # busy processors in the box w/ corner (x,y,z) and given
+		//  size, which must be inside the mesh
+		//(takes constant time except the first time after a change)
+		int[] count = getBusyBelow();
+		int ys = ydim + 1;
+		int zs = zdim + 1;
+		int x0 = x * ys * zs;
+		int x1 = (x + xlen) * ys * zs;
+		int y0 = y * zs;
+		int y1 = (y + ylen) * zs;
+		int z1 = z + zlen;
+		return count[x1 + y1 + z1] - count[x0 + y1 + z1] - count[x1 + y0 + z1]
+				- count[x1 + y1 + z] + count[x0 + y0 + z1] + count[x0 + y1 + z]
+				+ count[x1 + y0 + z] - count[x0 + y0 + z];
+	}
+
+	public int lastBusyX(int x, int y, int z, int xlen, int ylen, int zlen) {
+		//returns largest x coordinate of a busy processor in the box w/
+		//  corner (x,y,z) and given size (inside the mesh); -1 if none
+		//(so no box with the same y and z extent is free if its x range
+		//  includes the returned value)
+
+		if(busyBelow == null && scanned < numProcs) {
+			//look at processors until that's as much work as making busyBelow
+			for(int i = x + xlen - 1; i >= x; i--)
+				for(int j = y; j < y + ylen; j++)
+					for(int k = z; k < z + zlen; k++) {
+						scanned++;
+						if(!getIsFree(indexOf(i, j, k)))
+							return i;
+					}
+			return -1;
+		}
+
+		if(numBusy(x, y, z, xlen, ylen, zlen) == 0)
+			return -1;
+		int lo = x;               //busy processor at x coordinate >= lo
+		int hi = x + xlen - 1;    //  and <= hi
+		while(lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if(numBusy(mid, y, z, hi - mid + 1, ylen, zlen) > 0)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	public boolean isFreeBox(int x, int y, int z, int xlen, int ylen, int zlen) {
+		//returns whether all processors in the box w/ corner (x,y,z) and
+		//  given size (inside the mesh) are free
+		//(checks each line of it along z, which is consecutive in free)
+		for(int i = x; i < x + xlen; i++)
+			for(int j = y; j < y + ylen; j++)
+				if(!allFree(indexOf(i, j, z), zlen))
+					return false;
+		return true;
+	}
+
+	private boolean allFree(int from, int len) {
+		//returns whether the len processors starting w/ index from are free
+		int to = from + len;
+		int w = from >>> 6;
+		int last = (to - 1) >>> 6;
+		long mask = -1L << from;
+		if(w == last) {
+			mask &= -1L >>> -to;
+			return (free[w] & mask) == mask;
+		}
+		if((free[w] & mask) != mask)
+			return false;
+		for(w++; w < last; w++)
+			if(free[w] != -1L)
+				return false;
+		mask = -1L >>> -to;
+		return (free[last] & mask) == mask;
+	}
+
+	public int freeLength(int x, int y, int z) {
+		//returns # free processors in a row from (x,y,z) in the direction
+		//  of increasing z (up to the edge of the mesh)
+		int from = indexOf(x, y, z);
+		int end = from + zdim - z;
+		int index = from;
+		while(index < end) {
+			long busy = ~free[index >>> 6] >>> index;  //(those from index on)
+			if(busy != 0)
+				return Math.min(index + Long.numberOfTrailingZeros(busy), end) - from;
+			index = (index | 63) + 1;  //(rest of the word is free)
+		}
+		return end - from;
+	}
+
+	public FreeBoxes getFreeBoxes() {
+		//returns the maximal free boxes, which are then kept up to date
+		//  as processors are allocated and deallocated
+		if(freeBoxes == null)
+			freeBoxes = new FreeBoxes(this);
+		return freeBoxes;
+	}
+
+	public FreeRuns getFreeRuns(int[] rank) {
+		//returns the runs of free processors along the order giving each
+		//  processor (by index) the rank in rank, which are then kept up
+		//  to date as processors are allocated and deallocated
+		if(freeRuns == null)
+			freeRuns = new ArrayList<FreeRuns>();
+		for(FreeRuns runs : freeRuns)
+			if(runs.getRanks() == rank)
+				return runs;
+		FreeRuns runs = new FreeRuns(this, rank);
+		freeRuns.add(runs);
+		return runs;
 	}
 
 	public ArrayList<MeshLocation> freeProcessors() {
 		//returns list of free processors
 
-		ArrayList<MeshLocation> retVal = new ArrayList<MeshLocation>();
-		for(int i=0; i<xdim; i++)
-			for(int j=0; j<ydim; j++)
-				for(int k=0; k<zdim; k++)
-					if(isFree[i][j][k]) {
-						MeshLocation loc = new MeshLocation(i, j, k);
-						loc.setMesh(this);
-						retVal.add(loc);
-					}
+		ArrayList<MeshLocation> retVal = new ArrayList<MeshLocation>(numAvail);
+		for(int i = nextFree(0); i != -1; i = nextFree(i+1))
+			retVal.add(location(i));
 		return retVal;
 	}
 
 	public ArrayList<MeshLocation> usedProcessors() {
 		//returns list of used processors
-		ArrayList<MeshLocation> retVal = new ArrayList<MeshLocation>();
-		for(int i=0; i<xdim; i++)
-			for(int j=0; j<ydim; j++)
-				for(int k=0; k<zdim; k++)
-					if(!isFree[i][j][k]) {
-						MeshLocation loc = new MeshLocation(i, j, k);
-						loc.setMesh(this);
-						retVal.add(loc);
-					}
+		ArrayList<MeshLocation> retVal = new ArrayList<MeshLocation>(numProcs - numAvail);
+		for(int i = nextUsed(0); i != -1; i = nextUsed(i+1))
+			retVal.add(location(i));
 		return retVal;
 	}
 
@@ -180,12 +526,25 @@ public class Mesh extends Machine {
 		MeshLocation[] procs = ((MeshAllocInfo)allocInfo).processors;
 
 		for(int i=0; i<procs.length; i++) {
-			if(!isFree[procs[i].x][procs[i].y][procs[i].z])
+			int index = indexOf(procs[i]);
+			if(!getIsFree(index))
 				Main.error("Attempt to allocate a busy processor: "
 						+ procs[i]);
-			isFree[procs[i].x][procs[i].y][procs[i].z] = false;
+			setBusy(index);
 		}
-		numAvail -= procs.length;
+
+		if(freeBoxes != null) {
+			int[] bounds = boxBounds(procs);
+			if(bounds != null)
+				freeBoxes.occupy(bounds[0], bounds[1], bounds[2],
+						bounds[3], bounds[4], bounds[5]);
+			else
+				for(MeshLocation loc : procs)
+					freeBoxes.occupy(loc.x, loc.y, loc.z, loc.x, loc.y, loc.z);
+		}
+		if(freeRuns != null)
+			for(FreeRuns runs : freeRuns)
+				runs.occupy(procs);
 	}
 
 	public void deallocate(AllocInfo allocInfo) {
@@ -193,13 +552,52 @@ public class Mesh extends Machine {
 
 		MeshLocation[] procs = ((MeshAllocInfo)allocInfo).processors;
 
+		//(free boxes are updated all at once if the processors form a box
+		//  and otherwise one at a time since they must match the mesh)
+		int[] bounds = null;
+		if(freeBoxes != null)
+			bounds = boxBounds(procs);
+
 		for(int i=0; i<procs.length; i++) {
-			if(isFree[procs[i].x][procs[i].y][procs[i].z])
+			int index = indexOf(procs[i]);
+			if(getIsFree(index))
 				Main.error("Attempt to deallocate a free processor: "
 						+ procs[i]);
-			isFree[procs[i].x][procs[i].y][procs[i].z] = true;
+			setFree(index);
+			if(freeBoxes != null && bounds == null)
+				freeBoxes.release(procs[i].x, procs[i].y, procs[i].z,
+						procs[i].x, procs[i].y, procs[i].z);
 		}
-		numAvail += procs.length;
+
+		if(bounds != null)
+			freeBoxes.release(bounds[0], bounds[1], bounds[2],
+					bounds[3], bounds[4], bounds[5]);
+		if(freeRuns != null)
+			for(FreeRuns runs : freeRuns)
+				runs.release(procs);
+	}
+
+	private static int[] boxBounds(MeshLocation[] procs) {
+		//returns smallest and largest x, y, and z of procs (in that order)
+		//  if they are exactly the processors of a box; null otherwise
+		if(procs.length == 0)
+			return null;
+		int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+				Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		for(MeshLocation loc : procs) {
+			bounds[0] = Math.min(bounds[0], loc.x);
+			bounds[1] = Math.min(bounds[1], loc.y);
+			bounds[2] = Math.min(bounds[2], loc.z);
+			bounds[3] = Math.max(bounds[3], loc.x);
+			bounds[4] = Math.max(bounds[4], loc.y);
+			bounds[5] = Math.max(bounds[5], loc.z);
+		}
+		//(no processor is listed twice, so having as many as the box does
+		//  means they fill it)
+		if((bounds[3] - bounds[0] + 1) * (bounds[4] - bounds[1] + 1) *
+				(bounds[5] - bounds[2] + 1) != procs.length)
+			return null;
+		return bounds;
 	}
 
 	public static long pairwiseL1Distance(MeshLocation[] locs) {
@@ -222,16 +620,12 @@ public class Mesh extends Machine {
 		//  (0,0) position of each layer in the bottom left
 		//uses "X" and "." to denote free and busy processors respectively
 
-		int xdim = isFree.length;
-		int ydim = isFree[0].length;
-		int zdim = isFree[0][0].length;
-
 		String retVal = "";
 		retVal += xdim + " " + ydim + " " + zdim + "\n";
 		for(int z=0; z<zdim; z++) {
 			for(int y=0; y<ydim; y++) {
 				for(int x=0; x<xdim; x++)
-					if(isFree[x][(ydim-1)-y][z])
+					if(getIsFree(x, (ydim-1)-y, z))
 						retVal += "X";
 					else
 						retVal += ".";
@@ -12,6 +12,9 @@
  * 
  * The default ordering for MeshLocations is by the component: x, y, then z.
  * Comparator used to order free blocks in MBSAllocator.
+ *
+ * MeshLocations are immutable.  Each Mesh has one for each of its nodes
+ * (see Mesh.location), which should be used instead of making new ones.
  */
 
 package simulator;
@@ -19,16 +22,23 @@ package simulator;
 public class MeshLocation implements Comparable<MeshLocation> {
 	// representation of location within a mesh (w/ coordinates)
 
-	public int x;
-	public int y;
-	public int z;
+	public final int x;
+	public final int y;
+	public final int z;
 
-	public Mesh mesh = null;
+	public final Mesh mesh;  //mesh this is a node of (null if not a node)
 
 	public MeshLocation(int X, int Y, int Z) {
+		this(X, Y, Z, null);
+	}
+
+	MeshLocation(int X, int Y, int Z, Mesh MESH) {
+		//constructor for Mesh, which makes one location per node
+		//(use Mesh.location to get them)
 		this.x = X;
 		this.y = Y;
 		this.z = Z;
+		this.mesh = MESH;
 	}
 
 	public int L1DistanceTo(MeshLocation other) {
@@ -41,15 +51,13 @@ public class MeshLocation implements Comparable<MeshLocation> {
 				Math.max(Math.abs(y - other.y), Math.abs(z - other.z)));
 	}
 
-	public void setMesh(Mesh MESH) {
-		this.mesh = MESH;
-	}
-
 	public Mesh getMesh() {
 		return this.mesh;
 	}
 
 	public int compareTo(MeshLocation loc) {
+		if (this == loc)
+			return 0;
 		if (this.x == loc.x) {
 			if (this.y == loc.y) {
 				return this.z - loc.z;
@@ -70,6 +78,8 @@ public class MeshLocation implements Comparable<MeshLocation> {
 	}
 
 	public boolean equals(MeshLocation other) {
+		if (this == other)
+			return true;
 		return (other != null) && (x == other.x) && (y == other.y)
 				&& (z == other.z);
 	}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Records where a simulation's time goes when "-metrics" is given:
+ * counters and timers for the parts of the simulator that run for each
+ * event.  Each timer keeps a histogram of its durations (in buckets by
+ * power of 2 of nanoseconds) as well as its count, total, and maximum.
+ * The simulation's breakdown is printed, as lines starting "#Metrics:",
+ * when it is done.
+ *
+ * The simulator calls the static methods, which do nothing but check a
+ * flag unless metrics are on.  They record into the metrics of the
+ * current Simulation; side simulations (for fair start times) have
+ * none, so their work is only seen as part of the FST timer.
+ *
+ * Timers nest (e.g. tryToStart is inside event), so their shares of the
+ * running time add up to more than 100%.
+ */
+
+package simulator;
+
+import simulator.allocator.AllocInfo;
+import simulator.allocator.Allocator;
+
+public class Metrics {
+
+	private static boolean enabled = false;
+
+	//timers
+	public static final int TRACE = 0;             //reading jobs from the trace
+	public static final int EVENT = 1;             //Event.happen (w/ all below)
+	public static final int TRY_TO_START = 2;      //Scheduler.tryToStart
+	public static final int ALLOCATE = 3;          //Allocator.allocate
+	public static final int MACHINE_ALLOCATE = 4;  //Machine.allocate
+	public static final int STATS = 5;             //Statistics calls (and logging)
+	public static final int FST = 6;               //computing fair start times
+	private static final String[] TIMER_NAMES = {"trace", "event", "tryToStart",
+		"allocate", "machine allocate", "stats", "fst"};
+
+	//counters
+	public static final int EVENTS = 0;               //events that happened
+	public static final int STARTS_FAILED = 1;        //tryToStart calls starting nothing
+	public static final int CAN_ALLOCATE_FAILED = 2;  //canAllocate calls returning false
+	public static final int PROFILE_VISITED = 3;      //StatefulScheduler profile entries examined
+	public static final int CACHE_HITS = 4;           //allocations found by CachingAllocator
+	public static final int CACHE_MISSES = 5;         //allocations CachingAllocator had to make
+	private static final String[] COUNTER_NAMES = {"events", "tryToStart failed",
+		"canAllocate failed", "profile entries visited", "allocation cache hits",
+		"allocation cache misses"};
+
+	private static final int BUCKETS = 64;  //bucket b holds durations < 2^b ns
+
+	private long created = System.nanoTime();
+	private long[] counts = new long[TIMER_NAMES.length];   //# times timed
+	private long[] totals = new long[TIMER_NAMES.length];   //total ns
+	private long[] maxes = new long[TIMER_NAMES.length];    //longest ns
+	private long[][] histograms = new long[TIMER_NAMES.length][BUCKETS];
+	private long[] counters = new long[COUNTER_NAMES.length];
+
+	public static void enable() {
+		enabled = true;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	private static Metrics current() {
+		//returns metrics to record into (null if none)
+		return enabled ? Simulation.current().getMetrics() : null;
+	}
+
+	public static long start() {
+		//returns starting time to pass to stop
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	public static void stop(int timer, long start) {
+		//records time since start (from start()) for given timer
+		Metrics m = current();
+		if(m != null)
+			m.record(timer, System.nanoTime() - start);
+	}
+
+	public static void count(int counter, long amount) {
+		Metrics m = current();
+		if(m != null)
+			m.counters[counter] += amount;
+	}
+
+	public static boolean canAllocate(Allocator alloc, Job j) {
+		//alloc.canAllocate(j), counting calls that fail
+		boolean retVal = alloc.canAllocate(j);
+		if(!retVal)
+			count(CAN_ALLOCATE_FAILED, 1);
+		return retVal;
+	}
+
+	public static AllocInfo allocate(Allocator alloc, Job j) {
+		//alloc.allocate(j), timed
+		long start = start();
+		AllocInfo retVal = alloc.allocate(j);
+		stop(ALLOCATE, start);
+		return retVal;
+	}
+
+	private void record(int timer, long nanos) {
+		counts[timer]++;
+		totals[timer] += nanos;
+		maxes[timer] = Math.max(maxes[timer], nanos);
+		histograms[timer][Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)),
+				BUCKETS - 1)]++;
+	}
+
+	private long quantile(int timer, double q) {
+		//returns upper bound on qth quantile of given timer (q between 0 and 1)
+		long rank = Math.max(1, (long)Math.ceil(q * counts[timer]));
+		long seen = 0;
+		int b = 0;
+		while(seen + histograms[timer][b] < rank) {
+			seen += histograms[timer][b];
+			b++;
+		}
+		return Math.min(1L << b, maxes[timer]);
+	}
+
+	public void report(String name) {
+		//prints breakdown of simulation w/ given name
+		long elapsed = System.nanoTime() - created;
+		System.out.println("#Metrics: " + name + "\ttotal ms=" + elapsed / 1000000);
+		for(int t = 0; t < TIMER_NAMES.length; t++) {
+			if(counts[t] == 0)
+				continue;
+			System.out.println("#Metrics: " + name + "\t" + TIMER_NAMES[t] +
+					"\tcalls=" + counts[t] +
+					"\ttotal ms=" + totals[t] / 1000000 +
+					"\tshare=" + Math.round(1000.0 * totals[t] / elapsed) / 10.0 + "%" +
+					"\tmean ns=" + totals[t] / counts[t] +
+					"\tp50 ns<=" + quantile(t, .5) +
+					"\tp99 ns<=" + quantile(t, .99) +
+					"\tmax ns=" + maxes[t]);
+		}
+		for(int c = 0; c < COUNTER_NAMES.length; c++)
+			if(counters[c] != 0)
+				System.out.println("#Metrics: " + name + "\t" + COUNTER_NAMES[c] + "=" + counters[c]);
+	}
+}
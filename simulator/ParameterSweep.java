@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Runs many simulations of the same trace concurrently in one JVM.
+ *
+ * Format for sweep file:
+ * one simulation per line, given as command line options
+ *   (machine=<MachineName> scheduler=<SchedulerName> allocator=<AllocatorName>)
+ *   options that are left out take their usual defaults
+ * blank lines and lines beginning with # are ignored
+ *
+ * The trace is read once (once for each kind of job needed) and every
+ * simulation works on its own copies of the jobs.  The logs for the
+ * simulation on line n of the sweep file are named <trace>.<n>.<ext>
+ */
+
+package simulator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import simulator.allocator.ContiguousAllocator;
+
+public class ParameterSweep {
+
+	private String traceName;      //trace every simulation runs
+	private String sweepFile;      //file listing the simulations
+	private int threads;           //number of simulations to run at once
+
+	//jobs read from the trace, without and with dimensions (null until
+	//needed); each simulation runs copies of these
+	private ArrayList<Job> traceJobs;
+	private ArrayList<Job> traceJobsWithDim;
+
+	private class SweepRun extends RecursiveAction {
+		//one simulation of the sweep
+
+		private static final long serialVersionUID = 1L;  //(never serialized)
+		private int lineNum;       //line of sweep file describing it
+		private String machineName = "simple[100]";
+		private String schedulerName = "pqueue[fifo]";
+		private String allocatorName = "simple";
+
+		public SweepRun(int lineNum, String line) {
+			this.lineNum = lineNum;
+			for(String s : line.trim().split("\\s+")) {
+				if(s.startsWith("machine="))
+					machineName = s.substring(8);
+				else if(s.startsWith("scheduler="))
+					schedulerName = s.substring(10);
+				else if(s.startsWith("allocator="))
+					allocatorName = s.substring(10);
+				else
+					Main.error("Unknown option \"" + s + "\" on line " + lineNum +
+							" of " + sweepFile);
+			}
+		}
+
+		public String toString() {
+			return "#Run " + lineNum + ": Machine: " + machineName +
+					" Scheduler: " + schedulerName + " Allocator: " + allocatorName;
+		}
+
+		protected void compute() {
+			Simulation previous = Simulation.current();
+			try {
+				Simulation sim = Main.createSimulation(machineName,
+						schedulerName, allocatorName);
+				Iterator<Job> jobs = ArrivalStream.copiesOf(
+						getTrace(sim.getAllocator() instanceof ContiguousAllocator));
+
+				sim.getMachine().reset();
+				sim.getScheduler().reset();
+				Main.runSim(sim, Main.createEventQueue(),
+						new ArrivalStream(jobs, sim.getMachine()),
+						traceName, traceName + "." + lineNum);
+				sim.getAllocator().done();
+			} catch(RuntimeException e) {
+				//Main.error has already described the problem
+				Main.warning("Run " + lineNum + " of " + sweepFile + " failed (" + e + ")");
+			} finally {
+				Simulation.setCurrent(previous);
+			}
+		}
+	}
+
+	public ParameterSweep(String traceName, String sweepFile, int threads) {
+		this.traceName = traceName;
+		this.sweepFile = sweepFile;
+		this.threads = threads;
+	}
+
+	private synchronized ArrayList<Job> getTrace(boolean jobsHaveDim) {
+		//returns the jobs of the trace, reading it if this is the first request
+
+		if(jobsHaveDim) {
+			if(traceJobsWithDim == null)
+				traceJobsWithDim = readTrace(true);
+			return traceJobsWithDim;
+		}
+		if(traceJobs == null)
+			traceJobs = readTrace(false);
+		return traceJobs;
+	}
+
+	private ArrayList<Job> readTrace(boolean jobsHaveDim) {
+		//read in a simulation of its own so job numbers start from 0
+		Simulation previous = Simulation.setCurrent(new Simulation());
+		ArrayList<Job> jobs = Main.readTrace(traceName, jobsHaveDim);
+		Simulation.setCurrent(previous);
+		return jobs;
+	}
+
+	private ArrayList<SweepRun> readSweepFile() {
+		ArrayList<SweepRun> runs = new ArrayList<SweepRun>();
+		Scanner input = null;
+		try {
+			input = new Scanner(new File(sweepFile));
+		} catch(java.io.FileNotFoundException exc) {
+			Main.error("File not found: " + sweepFile);
+		}
+		int lineNum = 0;
+		while(input.hasNextLine()) {
+			String line = input.nextLine();
+			lineNum++;
+			if(line.trim().equals("") || line.trim().startsWith("#"))
+				continue;
+			runs.add(new SweepRun(lineNum, line));
+		}
+		input.close();
+		return runs;
+	}
+
+	public void run() {
+		ArrayList<SweepRun> runs = readSweepFile();
+
+		System.out.println("#Sweep: " + runs.size() + " simulations on " +
+				threads + " threads");
+		for(SweepRun r : runs)
+			System.out.println(r);
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		for(SweepRun r : runs)
+			pool.execute(r);
+		for(SweepRun r : runs)
+			r.join();
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Holds the state belonging to a single simulation run: its machine,
+ * scheduler and allocator, the current simulated time, and the
+ * counters used to number jobs and events.
+ *
+ * Each thread has a current simulation, which is what Main's static
+ * accessors (getMachine, getCurTime, coverMachine, ...) refer to.
+ * Several simulations can therefore run in one JVM as long as each
+ * runs on its own thread and makes itself current first.
+ */
+
+package simulator;
+
+import java.util.HashMap;
+import simulator.allocator.Allocator;
+import simulator.scheduler.Scheduler;
+
+public class Simulation {
+
+	private static final ThreadLocal<Simulation> current = new ThreadLocal<Simulation>() {
+		protected Simulation initialValue() {
+			return new Simulation();
+		}
+	};
+
+	private Machine machine;
+	private Scheduler scheduler;
+	private Allocator allocator;
+	private Statistics statistics;   //null until the simulation starts
+	private Metrics metrics = null;  //null unless recording them
+
+	//cover and uncoverMachine used so TimedRunScheduler can pass a
+	//different machine to its base scheduler (see Main.coverMachine)
+	private Machine coveringMachine = null;
+
+	private long currentTime = 0;    //time of event being processed
+
+	private long nextJobNum = 0;     //number to assign next Job from trace
+
+	//number to assign next Job made from another one by a scheduler
+	//(starts high so these don't collide with trace jobs, which may not
+	//all have been read yet)
+	private long nextDerivedJobNum = 1L << 40;
+	private int nextEventNum = 0;    //number to assign next Event
+
+	//when jobs started in a side simulation (see sideSimulation); null
+	//in other simulations, which record it in the jobs themselves
+	private HashMap<Job,Long> startTimes = null;
+
+	public static Simulation current() {
+		return current.get();
+	}
+
+	public static Simulation setCurrent(Simulation sim) {
+		//makes sim the current simulation for this thread
+		//returns the previous one so callers can restore it
+		Simulation previous = current.get();
+		current.set(sim);
+		return previous;
+	}
+
+	public Machine getMachine() {
+		if(coveringMachine != null)
+			return coveringMachine;
+		return machine;
+	}
+
+	public void setMachine(Machine machine) {
+		this.machine = machine;
+	}
+
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+
+	public void setScheduler(Scheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	public Allocator getAllocator() {
+		return allocator;
+	}
+
+	public void setAllocator(Allocator allocator) {
+		this.allocator = allocator;
+	}
+
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public void coverMachine(Machine m) {
+		coveringMachine = m;
+	}
+
+	public void uncoverMachine() {
+		coveringMachine = null;
+	}
+
+	public long getCurrentTime() {
+		return currentTime;
+	}
+
+	public void setCurrentTime(long time) {
+		currentTime = time;
+	}
+
+	public long nextJobNum() {
+		return nextJobNum++;
+	}
+
+	public long nextDerivedJobNum() {
+		return nextDerivedJobNum++;
+	}
+
+	public int nextEventNum() {
+		return nextEventNum++;
+	}
+
+	public Simulation sideSimulation(Machine machine) {
+		//returns a simulation for exploring what would happen from this
+		//one's current state on the given machine (used to compute fair
+		//start times); it can run on another thread while this one
+		//continues since it numbers its events after this one's and keeps
+		//its own record of when jobs start rather than changing them
+
+		Simulation side = new Simulation();
+		side.machine = machine;
+		side.currentTime = currentTime;
+		side.nextEventNum = nextEventNum;
+		side.startTimes = new HashMap<Job,Long>();
+		return side;
+	}
+
+	public boolean isSideSimulation() {
+		return startTimes != null;
+	}
+
+	public long getStartTime(Job j) {
+		//returns when job started in this side simulation (-1 if it hasn't)
+		Long time = startTimes.get(j);
+		return (time == null) ? -1 : time;
+	}
+
+	public void setStartTime(Job j, long time) {
+		startTimes.put(j, time);
+	}
+}
@@ -43,7 +43,7 @@ public class Statistics {
 	Initialize the log file with specified extension.
 	Only call this after an instance of Statistics has been created.
 	 */
-	 static private void InitializeLog(String extension){}
+	 private void InitializeLog(String extension){}
 
 	 static public void writeTie(String message){}
 
@@ -52,7 +52,7 @@ public class Statistics {
 
 	 public void writeVisual(String message){}
 
-	 static public void AppendToLog(String message, String extension){}
+	 public void AppendToLog(String message, String extension){}
 
 	/*
 	 * Called after all events have occurred
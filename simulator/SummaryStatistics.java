@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Statistics that are only kept as running totals, so no log files are
+ * written (used instead of ActualStatistics when "summary" is included
+ * in logs=).  When the simulation is done, a single line summarizing it
+ * is printed:
+ *   jobs: # jobs completed
+ *   wait, response, bsld (bounded slowdown, as in LogSummary):
+ *     mean, max, and estimated median, 90th, and 99th percentiles
+ *   util integral: integral of processors used over time
+ *   util: fraction of the machine used from first to last event
+ *   queue mean, queue max: time-weighted average and maximum # waiting jobs
+ *   queue hist: fraction of time with each # waiting jobs, in bins of
+ *     0, 1, 2-3, 4-7, ...
+ *
+ * Percentiles come from a histogram with buckets about 3% wide (see
+ * Sketch), so they are within a few percent of the true values.
+ */
+
+package simulator;
+
+import simulator.allocator.AllocInfo;
+
+public class SummaryStatistics extends Statistics {
+
+	private String name;         //log name; labels the summary
+	private int machineProcs;    //# processors in the machine
+
+	private long firstTime = -1; //time of first event (-1 if none yet)
+	private long lastTime;       //time of most recent event
+	private int procsUsed;       //processors used at lastTime
+	private int waiting;         //jobs waiting at lastTime
+
+	private long numJobs;
+	private double totalWait;
+	private double totalResponse;
+	private double totalBsld;
+	private long maxWait;
+	private long maxResponse;
+	private double maxBsld;
+	private Sketch waitSketch = new Sketch();
+	private Sketch responseSketch = new Sketch();
+	private Sketch bsldSketch = new Sketch();
+
+	private double utilIntegral;   //integral of procsUsed over time
+	private double queueIntegral;  //integral of waiting over time
+	private int maxWaiting;
+	private long[] queueTime = new long[32];  //time w/ # waiting jobs in each bin
+
+	/**
+	 * Estimates quantiles of nonnegative values from counts in
+	 * logarithmic buckets: one for [0,1) and then 32 per power of 2
+	 * (split by the top 5 bits of the mantissa).
+	 */
+	private static class Sketch {
+
+		private static final int SUB_BITS = 5;
+		private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+		private long[] counts = new long[1 + 64 * SUB_BUCKETS];
+		private long num = 0;
+		private double min = Double.MAX_VALUE;
+		private double max = 0;
+
+		private static int bucketOf(double v) {
+			if(v < 1)
+				return 0;
+			int exp = Math.getExponent(v);
+			int sub = (int)(Double.doubleToRawLongBits(v) >>> (52 - SUB_BITS)) & (SUB_BUCKETS - 1);
+			return 1 + exp * SUB_BUCKETS + sub;
+		}
+
+		private static double midpoint(int bucket) {
+			//returns value in middle of bucket
+			if(bucket == 0)
+				return 0;
+			int exp = (bucket - 1) / SUB_BUCKETS;
+			int sub = (bucket - 1) % SUB_BUCKETS;
+			return Math.scalb(1 + (sub + 0.5) / SUB_BUCKETS, exp);
+		}
+
+		public void add(double v) {
+			counts[bucketOf(Math.min(v, Double.MAX_VALUE))]++;
+			num++;
+			min = Math.min(min, v);
+			max = Math.max(max, v);
+		}
+
+		public double quantile(double q) {
+			//returns estimate of qth quantile (nearest rank; q between 0 and 1)
+			if(num == 0)
+				return 0;
+			long rank = Math.max(1, (long)Math.ceil(q * num));
+			long seen = 0;
+			int b = 0;
+			while(seen + counts[b] < rank) {
+				seen += counts[b];
+				b++;
+			}
+			return Math.max(min, Math.min(max, midpoint(b)));
+		}
+	}
+
+	public SummaryStatistics(Machine mach, String logName) {
+		name = logName;
+		machineProcs = mach.numProcs();
+	}
+
+	private void advance(long time) {
+		//adds the state since the last event to the running totals
+
+		if(firstTime == -1) {
+			firstTime = lastTime = time;
+			return;
+		}
+		long dt = time - lastTime;
+		if(dt > 0) {
+			utilIntegral += (double)procsUsed * dt;
+			queueIntegral += (double)waiting * dt;
+			queueTime[32 - Integer.numberOfLeadingZeros(waiting)] += dt;
+			lastTime = time;
+		}
+	}
+
+	private void setWaiting(int num) {
+		waiting = num;
+		if(waiting > maxWaiting)
+			maxWaiting = waiting;
+	}
+
+	public void jobArrives(long time) {
+		advance(time);
+		setWaiting(waiting + 1);
+	}
+
+	public void jobStarts(AllocInfo allocInfo, long time) {
+		advance(time);
+		procsUsed += allocInfo.job.getProcsNeeded();
+		setWaiting(waiting - 1);
+	}
+
+	public void jobFinishes(AllocInfo allocInfo, long time) {
+		advance(time);
+		procsUsed -= allocInfo.job.getProcsNeeded();
+
+		long arrival = allocInfo.job.getArrivalTime();
+		long run = allocInfo.job.getActualTime(allocInfo);
+		long wait = allocInfo.job.getStartTime() - arrival;
+		long response = time - arrival;
+		double bsld = Math.max(1.0, (double)response / Math.max(run, LogSummary.BSLD_BOUND));
+
+		numJobs++;
+		totalWait += wait;
+		totalResponse += response;
+		totalBsld += bsld;
+		maxWait = Math.max(maxWait, wait);
+		maxResponse = Math.max(maxResponse, response);
+		maxBsld = Math.max(maxBsld, bsld);
+		waitSketch.add(wait);
+		responseSketch.add(response);
+		bsldSketch.add(bsld);
+	}
+
+	public void jobStopped(AllocInfo allocInfo, long time) {
+		advance(time);
+		procsUsed -= allocInfo.job.getProcsNeeded();
+		setWaiting(waiting + 1);
+	}
+
+	private static void addQuantities(StringBuilder line, String label, double mean,
+			double max, Sketch sketch) {
+		line.append('\t').append(label).append(" mean=").append(mean);
+		line.append('\t').append(label).append(" max=").append(max);
+		line.append('\t').append(label).append(" p50=").append(sketch.quantile(.5));
+		line.append('\t').append(label).append(" p90=").append(sketch.quantile(.9));
+		line.append('\t').append(label).append(" p99=").append(sketch.quantile(.99));
+	}
+
+	public void done() {
+		long span = (firstTime == -1) ? 0 : lastTime - firstTime;
+		long n = Math.max(numJobs, 1);  //(so averages of no jobs are 0)
+
+		StringBuilder line = new StringBuilder();
+		line.append("#Summary: ").append(name);
+		line.append("\tjobs=").append(numJobs);
+		addQuantities(line, "wait", totalWait / n, maxWait, waitSketch);
+		addQuantities(line, "response", totalResponse / n, maxResponse, responseSketch);
+		addQuantities(line, "bsld", totalBsld / n, maxBsld, bsldSketch);
+		line.append("\tutil integral=").append(utilIntegral);
+		line.append("\tutil=").append(span > 0 ? utilIntegral / ((double)machineProcs * span) : 0);
+		line.append("\tqueue mean=").append(span > 0 ? queueIntegral / span : 0);
+		line.append("\tqueue max=").append(maxWaiting);
+		line.append("\tqueue hist=");
+		int lastBin = queueTime.length - 1;
+		while(lastBin > 0 && queueTime[lastBin] == 0)
+			lastBin--;
+		for(int bin = 0; bin <= lastBin; bin++) {
+			if(bin > 0)
+				line.append(',');
+			line.append(span > 0 ? (double)queueTime[bin] / span : 0);
+		}
+		System.out.println(line);
+	}
+}
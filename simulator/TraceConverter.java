@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Converts traces into the binary trace format (see BinaryTrace).
+ *
+ * Usage: java simulator/TraceConverter <format> <input> <output> [<scale>]
+ *
+ * Input formats:
+ *   text:   simulator's text format; per line:
+ *             arrival, procs, actual running time, [estimated running time]
+ *   contig: text format for contiguous jobs; per line:
+ *             arrival, x, y, z, actual running time, [estimated running time]
+ *   swf:    Standard Workload Format (Parallel Workloads Archive)
+ *             jobs with no processors or an unsuitable status are
+ *             skipped, and the average CPU time is used when the running
+ *             time is missing (status must be -1, 0, 1, or 5 with a
+ *             positive running time)
+ * The optional scale multiplies arrival times.
+ */
+
+package simulator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+public class TraceConverter {
+
+	private static long round(double num) {
+		//round to nearest, with halves going away from 0
+		return (long)(num + .5 * Math.signum(num));
+	}
+
+	private static long scaleTime(long time, double scale) {
+		if(scale == 1)
+			return time;
+		return round(time * scale);
+	}
+
+	private static void usage() {
+		System.out.println("Usage: java simulator/TraceConverter <format> <input> <output> [<scale>]\n" +
+				"\tformat: text, contig, or swf\n" +
+				"\tscale: optional factor by which to scale arrival times");
+		System.exit(0);
+	}
+
+	public static BinaryTrace.Writer convert(String format, File input, double scale)
+			throws IOException {
+		//reads trace in given format and returns its jobs ready to write
+
+		boolean contig = format.equals("contig");
+		boolean swf = format.equals("swf");
+		if(!contig && !swf && !format.equals("text"))
+			Main.error("Unknown trace format " + format);
+
+		BinaryTrace.Writer writer = new BinaryTrace.Writer(contig);
+		BufferedReader in = new BufferedReader(new FileReader(input), 1 << 16);
+		int skipped = 0;
+		String line;
+		while((line = in.readLine()) != null) {
+			line = line.trim();
+			if(line.length() == 0 || line.startsWith(";") || line.startsWith("#"))
+				continue;     //skip blank lines and comments
+			String[] fields = line.split("\\s+");
+
+			if(swf) {
+				double procs = Double.parseDouble(fields[4]);
+				if(procs <= 0) {
+					skipped++;
+					continue;
+				}
+				double runTime = Double.parseDouble(fields[3]);
+				if(runTime == -1)
+					runTime = Double.parseDouble(fields[5]);
+				int status = Integer.parseInt(fields[10]);
+				if((status != -1) && (status != 0) && (status != 1) &&
+						(status != 5 || runTime <= 0)) {
+					skipped++;
+					continue;
+				}
+				writer.add(round(Double.parseDouble(fields[1]) * scale), (int)round(procs),
+						round(runTime), round(Double.parseDouble(fields[8])));
+			} else if(contig) {
+				long est = (fields.length > 5) ? Long.parseLong(fields[5]) : -1;
+				writer.add(scaleTime(Long.parseLong(fields[0]), scale),
+						Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+						Integer.parseInt(fields[3]), Long.parseLong(fields[4]), est);
+			} else {
+				long est = (fields.length > 3) ? Long.parseLong(fields[3]) : -1;
+				writer.add(scaleTime(Long.parseLong(fields[0]), scale),
+						Integer.parseInt(fields[1]), Long.parseLong(fields[2]), est);
+			}
+		}
+		in.close();
+
+		if(skipped > 0)
+			Main.warning("skipped " + skipped + " jobs");
+		return writer;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length < 3 || args.length > 4)
+			usage();
+
+		double scale = 1;
+		if(args.length == 4)
+			scale = Double.parseDouble(args[3]);
+
+		BinaryTrace.Writer writer = convert(args[0], new File(args[1]), scale);
+		writer.write(new File(args[2]));
+		System.err.println("number of jobs: " + writer.size());
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Reads the jobs of a trace one at a time, in the order they appear.
+ * Handles both text traces and binary ones (see BinaryTrace).
+ * Invalid jobs are skipped with a warning.
+ */
+
+package simulator;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import mapping.TaskMapper;
+
+public class TraceReader implements Iterator<Job> {
+
+	private boolean jobsHaveDim;    //whether to create ContiguousJobs
+	private boolean accurateEsts;   //whether to ignore the estimates
+	private TaskMapper taskMap;
+
+	private Scanner input = null;        //source if text trace
+	private BinaryTrace binary = null;   //source if binary trace
+	private int nextIndex = 0;           //next entry of binary trace
+
+	private Job nextJob;                 //next valid job (null at end)
+
+	public TraceReader(String traceFileName, boolean jobsHaveDim,
+			boolean accurateEsts, TaskMapper map) {
+		this.jobsHaveDim = jobsHaveDim;
+		this.accurateEsts = accurateEsts;
+		taskMap = map;
+
+		File traceFile = Main.getInputFile(traceFileName);
+		if(BinaryTrace.isBinaryTrace(traceFile))
+			binary = new BinaryTrace(traceFile);
+		else
+			input = Main.getInputScanner(traceFileName);
+
+		advance();
+	}
+
+	private void advance() {
+		//find the next valid job
+		nextJob = null;
+		while(nextJob == null) {
+			Job j;
+			if(binary != null) {
+				if(nextIndex == binary.size())
+					break;
+				j = binary.getJob(nextIndex++, jobsHaveDim, accurateEsts, taskMap);
+			} else {
+				if(!input.hasNext())
+					break;
+				if(jobsHaveDim)
+					j = new ContiguousJob(input, accurateEsts, taskMap);
+				else
+					j = new Job(input, accurateEsts, taskMap);
+			}
+			if(isValidJob(j))
+				nextJob = j;
+		}
+		if(nextJob == null)
+			close();
+	}
+
+	//Check for invalid jobs, warning that they will be ignored
+	private static boolean isValidJob(Job j) {
+		if (j.getProcsNeeded() <= 0) {
+			Main.warning("Job " + j.getJobNum() + " requests " + j.getProcsNeeded() +
+					" processors; ignoring it");
+			return false;
+		}
+		if (j.getActualTime() < 0){  //time 0 also a bit strange, but perhaps rounded down
+			Main.warning("Job " + j.getJobNum() + " has running time of " + j.getActualTime() +
+					"; ignoring it");
+			return false;
+		}
+		//otherwise, the job is valid
+		return true;
+	}
+
+	public boolean hasNext() {
+		return nextJob != null;
+	}
+
+	public Job next() {
+		if(nextJob == null)
+			throw new NoSuchElementException();
+		Job retVal = nextJob;
+		advance();
+		return retVal;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	public void close() {
+		if(input != null)
+			input.close();
+		if(binary != null)
+			binary.close();
+		input = null;
+		binary = null;
+	}
+}
@@ -47,6 +47,12 @@ public abstract class Allocator implements HasSetupInfo {
         //default version does nothing...
     }
 
+    public boolean resultsCanBeCached() {
+        //whether allocate's result depends only on which processors are
+        //free and how many the job needs (see CachingAllocator)
+        return false;
+    }
+
     public void done() {
         //called at end of simulation
         //allows allocator to report statistics
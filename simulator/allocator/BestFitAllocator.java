@@ -24,7 +24,6 @@ import simulator.Factory;
 import simulator.Job;
 import simulator.Main;
 import simulator.Mesh;
-import simulator.MeshLocation;
 
 public class BestFitAllocator extends LinearAllocator {
 
@@ -71,31 +70,17 @@ public class BestFitAllocator extends LinearAllocator {
 		if(!canAllocate(job))   //check if we have enough free processors
 			return null;
 
-		ArrayList<ArrayList<MeshLocation>> intervals = getIntervals();
-
 		int num = job.getProcsNeeded();  //number of processors for job
 
-		int bestInterval = -1;  //index of best interval found so far
-		//(-1 = none)
-		int bestSize = Integer.MAX_VALUE;  //its size
-
 		//look for smallest sufficiently-large interval
-		for(int i=0; i<intervals.size(); i++) {
-			int size = intervals.get(i).size();
-			if((size >= num) && (size < bestSize)) {
-				bestInterval = i;
-				bestSize = size;
-			}
-		}
+		//(the first of those if there is a tie)
+		int bestInterval = getFreeRuns().bestFit(num);  //its first rank
 
 		if(bestInterval == -1) {
 			//no single interval is big enough; minimize the span
 			return minSpanAllocate(job);
 		} else {
-			MeshAllocInfo retVal = new MeshAllocInfo(job);
-			for(int j=0; j<num; j++)
-				retVal.processors[j] = intervals.get(bestInterval).get(j);
-			return retVal;
+			return runAllocate(job, bestInterval);
 		}
 	}
 }
@@ -7,7 +7,10 @@
  * distribution.  
  */
 
-//TODO: description
+/**
+ * A block of processors in the hierarchy an MBSAllocator makes while
+ * initializing; afterward the allocator refers to blocks by number.
+ */
 
 package simulator.allocator;
 
@@ -20,6 +23,7 @@ public class Block implements Comparable<Block> {
 	public Block parent;
 	public MeshLocation dimension;
 	public MeshLocation location;
+	public int number;  //set by MBSAllocator once the hierarchy is made
 
 	public Block (MeshLocation l, MeshLocation d) {
 		this.dimension = d;
@@ -34,23 +38,6 @@ public class Block implements Comparable<Block> {
 		this.parent = p;
 	}
 
-	/**
-	 * Returns a Iterator over all the processors in this block
-	 */
-	public Iterator<MeshLocation> processors(){
-		TreeSet<MeshLocation> processors = new TreeSet<MeshLocation>();
-		for (int i=0;i<this.dimension.x;i++){
-			for(int j=0;j<this.dimension.y;j++){
-				for(int k=0;k<this.dimension.z;k++){
-					processors.add(new MeshLocation(this.location.x+i,
-													this.location.y+j,
-													this.location.z+k));
-				}
-			}
-		}
-		return processors.iterator();
-	}
-
 	/**
 	 * Calculate the number of processors in this block
 	 */
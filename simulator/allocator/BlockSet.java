@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Set of block numbers (MBSAllocator's free blocks) kept as a bitmap,
+ * with a bitmap above it telling which of its words are non-zero (and
+ * so on up to a single word), so that adding, removing, and finding the
+ * next member take time logarithmic in the number of blocks.
+ */
+
+package simulator.allocator;
+
+public class BlockSet {
+	private long[][] levels;  //levels[0] has a bit for each block
+
+	public BlockSet(int n){
+		int numLevels = 1;
+		for(int bits=n; bits > 64; bits=(bits+63)/64)
+			numLevels++;
+		this.levels = new long[numLevels][];
+		int bits = n;
+		for(int l=0; l<numLevels; l++){
+			bits = (bits+63)/64;
+			this.levels[l] = new long[Math.max(bits,1)];
+		}
+	}
+
+	public boolean contains(int b){
+		return (this.levels[0][b>>>6] & (1L<<b)) != 0;
+	}
+
+	public void add(int b){
+		for(int l=0; l<this.levels.length; l++){
+			long[] words = this.levels[l];
+			int w = b>>>6;
+			boolean wasEmpty = (words[w] == 0);
+			words[w] |= 1L<<b;
+			if(!wasEmpty)
+				return;
+			b = w;
+		}
+	}
+
+	public void remove(int b){
+		for(int l=0; l<this.levels.length; l++){
+			long[] words = this.levels[l];
+			int w = b>>>6;
+			words[w] &= ~(1L<<b);
+			if(words[w] != 0)
+				return;
+			b = w;
+		}
+	}
+
+	/**
+	 * Returns the number of members from from to to-1
+	 */
+	public int count(int from, int to){
+		if(from >= to)
+			return 0;
+		long[] words = this.levels[0];
+		int first = from>>>6;
+		int last = (to-1)>>>6;
+		if(first == last)
+			return Long.bitCount(words[first] & (-1L<<from) & (-1L>>>(63-((to-1)&63))));
+		int retVal = Long.bitCount(words[first] & (-1L<<from));
+		for(int w=first+1; w<last; w++)
+			retVal += Long.bitCount(words[w]);
+		return retVal + Long.bitCount(words[last] & (-1L>>>(63-((to-1)&63))));
+	}
+
+	/**
+	 * Returns the smallest member that is at least from, or -1 if
+	 * there is none
+	 */
+	public int next(int from){
+		//go up until a word has a member at or after from
+		int l = 0;
+		int b = from;
+		while(true){
+			if(l == this.levels.length || (b>>>6) >= this.levels[l].length)
+				return -1;
+			long word = this.levels[l][b>>>6] & (-1L<<b);
+			if(word != 0){
+				b = (b & ~63) + Long.numberOfTrailingZeros(word);
+				break;
+			}
+			b = (b>>>6)+1;
+			l++;
+		}
+		//then down to the first member below that
+		while(l > 0){
+			l--;
+			b = (b<<6) + Long.numberOfTrailingZeros(this.levels[l][b]);
+		}
+		return b;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Allocator that remembers the allocations another one chooses, so it
+ * isn't asked again for a job of the same size while the mesh is the
+ * same (e.g. when EASY tries the same backfill candidates after an
+ * arrival, which doesn't change the mesh).  Allocations are looked up
+ * by the mesh's occupancy hash (see Mesh.getOccupancyHash) and the
+ * number of processors needed, and the least recently used ones are
+ * dropped once there are too many.  Hits and misses are counted in the
+ * simulation's Metrics.
+ *
+ * Only allocators whose results can be cached (see
+ * Allocator.resultsCanBeCached) can be wrapped; in particular not the
+ * MBS allocators, which change their own records when allocating, or
+ * the contiguous ones, which the scheduler uses directly.
+ */
+
+package simulator.allocator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import simulator.Factory;
+import simulator.Job;
+import simulator.Main;
+import simulator.Mesh;
+import simulator.MeshLocation;
+import simulator.Metrics;
+import simulator.Statistics;
+
+public class CachingAllocator extends Allocator {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private Allocator alloc;      //allocator whose results are cached
+	private Mesh mesh;
+	private int capacity;         //most allocations to remember
+	private LinkedHashMap<Key,MeshLocation[]> cache;  //in order of last use
+
+	private static class Key {
+		private long occupancy;   //Mesh.getOccupancyHash when allocated
+		private int procs;        //# processors allocated
+
+		public Key(long occupancy, int procs) {
+			this.occupancy = occupancy;
+			this.procs = procs;
+		}
+
+		public boolean equals(Object other) {
+			if(!(other instanceof Key))
+				return false;
+			Key k = (Key)other;
+			return (occupancy == k.occupancy) && (procs == k.procs);
+		}
+
+		public int hashCode() {
+			return (int)(occupancy ^ (occupancy >>> 32)) * 31 + procs;
+		}
+	}
+
+	public CachingAllocator(Mesh m, Allocator alloc, int capacity) {
+		if(!alloc.resultsCanBeCached())
+			Main.error("Results of allocator cannot be cached:\n" + alloc.getSetupInfo(false));
+		if(capacity < 1)
+			Main.error("Allocation cache must have room for at least one allocation");
+		machine = m;
+		mesh = m;
+		this.alloc = alloc;
+		this.capacity = capacity;
+		cache = new LinkedHashMap<Key,MeshLocation[]>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Key,MeshLocation[]> eldest) {
+				return size() > CachingAllocator.this.capacity;
+			}
+		};
+	}
+
+	public static CachingAllocator Make(ArrayList<String> params) {
+		Factory.argsAtLeast(1,params);
+		Factory.argsAtMost(2,params);
+
+		if(!(Main.getMachine() instanceof Mesh))
+			Main.error("Cached allocators require a Mesh machine");
+		Allocator alloc = Main.getAllocatorFactory().Create(params.get(1));
+		int capacity = DEFAULT_CAPACITY;
+		if(params.size()-1 == 2)
+			capacity = Integer.parseInt(params.get(2));
+		return new CachingAllocator((Mesh)Main.getMachine(), alloc, capacity);
+	}
+
+	public static String getParamHelp() {
+		return "[<allocator>,<opt_capacity>]\n"+
+			"\tallocator: Allocator whose results are reused while the mesh is unchanged\n"+
+			"\topt_capacity: Most allocations remembered; default is " + DEFAULT_CAPACITY;
+	}
+
+	public String getSetupInfo(boolean comment) {
+		String com;
+		if(comment) com="# ";
+		else com="";
+		return com+"Cached Allocator (" + capacity + " allocations)\n" +
+			alloc.getSetupInfo(comment);
+	}
+
+	public boolean canAllocate(Job j) {
+		return alloc.canAllocate(j);
+	}
+
+	public boolean canAllocate(Job j, ArrayList<MeshLocation> available) {
+		return alloc.canAllocate(j, available);
+	}
+
+	public AllocInfo allocate(Job job) {
+		if(Statistics.recordingTies())
+			return alloc.allocate(job);  //(so ties are recorded every time)
+
+		Key key = new Key(mesh.getOccupancyHash(), job.getProcsNeeded());
+		MeshLocation[] procs = cache.get(key);
+		if(procs != null) {
+			Metrics.count(Metrics.CACHE_HITS, 1);
+			MeshAllocInfo retVal = new MeshAllocInfo(job);
+			System.arraycopy(procs, 0, retVal.processors, 0, procs.length);
+			return retVal;
+		}
+
+		Metrics.count(Metrics.CACHE_MISSES, 1);
+		AllocInfo retVal = alloc.allocate(job);
+		if(retVal != null)
+			cache.put(key, ((MeshAllocInfo)retVal).processors.clone());
+		return retVal;
+	}
+
+	public void deallocate(AllocInfo aInfo) {
+		alloc.deallocate(aInfo);
+	}
+
+	public boolean resultsCanBeCached() {
+		return true;
+	}
+
+	public void done() {
+		alloc.done();
+	}
+}
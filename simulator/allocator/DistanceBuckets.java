@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Orders processors by their distance from a center by putting them in
+ * a bucket for each (integer) distance, so it takes time linear in the
+ * number of processors and the largest distance rather than the
+ * O(n log n) of sorting.  Processors at the same distance are ordered
+ * by mesh index (x, then y, then z, as in MeshLocation.compareTo), so
+ * the result doesn't depend on the order they were given in.  Points
+ * already in mesh order (as the nearest allocators give them) only need
+ * the buckets; others are sorted into mesh order first.
+ */
+
+package simulator.allocator;
+
+import java.util.Arrays;
+import simulator.MeshLocation;
+
+class DistanceBuckets {
+
+	public static void sortByL1(MeshLocation center, MeshLocation[] points) {
+		if(!inMeshOrder(points))
+			Arrays.sort(points);
+		int[] dist = new int[points.length];
+		int maxDist = 0;
+		for(int i = 0; i < points.length; i++) {
+			dist[i] = center.L1DistanceTo(points[i]);
+			maxDist = Math.max(maxDist, dist[i]);
+		}
+		sort(points, dist, maxDist);
+	}
+
+	public static void sortByLInf(MeshLocation center, MeshLocation[] points) {
+		if(!inMeshOrder(points))
+			Arrays.sort(points);
+		int[] dist = new int[points.length];
+		int maxDist = 0;
+		for(int i = 0; i < points.length; i++) {
+			dist[i] = center.LInfDistanceTo(points[i]);
+			maxDist = Math.max(maxDist, dist[i]);
+		}
+		sort(points, dist, maxDist);
+	}
+
+	private static void sort(MeshLocation[] points, int[] dist, int maxDist) {
+		//stably reorders points by dist (dist[i] is distance of points[i])
+		//(so ties stay in mesh order)
+
+		//find where each distance's bucket begins
+		int[] start = new int[maxDist + 2];
+		for(int d : dist)
+			start[d + 1]++;
+		for(int d = 1; d <= maxDist; d++)
+			start[d + 1] += start[d];
+
+		MeshLocation[] sorted = new MeshLocation[points.length];
+		for(int i = 0; i < points.length; i++)
+			sorted[start[dist[i]]++] = points[i];
+		System.arraycopy(sorted, 0, points, 0, points.length);
+	}
+
+	private static boolean inMeshOrder(MeshLocation[] points) {
+		for(int i = 1; i < points.length; i++)
+			if(points[i-1].compareTo(points[i]) > 0)
+				return false;
+		return true;
+	}
+}
@@ -22,7 +22,6 @@ import simulator.Factory;
 import simulator.Job;
 import simulator.Main;
 import simulator.Mesh;
-import simulator.MeshLocation;
 
 public class FirstFitAllocator extends LinearAllocator {
 
@@ -64,19 +63,12 @@ public class FirstFitAllocator extends LinearAllocator {
 		if(!canAllocate(job))   //check if we have enough free processors
 			return null;
 
-		ArrayList<ArrayList<MeshLocation>> intervals = getIntervals();
-
 		int num = job.getProcsNeeded();  //number of processors for job
 
 		//find an interval to use if one exists
-		for(int i=0; i<intervals.size(); i++) {
-			if(intervals.get(i).size() >= num) {
-				MeshAllocInfo retVal = new MeshAllocInfo(job);
-				for(int j=0; j<num; j++)
-					retVal.processors[j] = intervals.get(i).get(j);
-				return retVal;
-			}
-		}
+		int interval = getFreeRuns().firstFit(num);  //its first rank
+		if(interval != -1)
+			return runAllocate(job, interval);
 
 		//no single interval is big enough; minimize the span
 		return minSpanAllocate(job);
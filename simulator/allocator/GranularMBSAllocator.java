@@ -192,32 +192,33 @@ public class GranularMBSAllocator extends MBSAllocator {
 			throw new UnsupportedOperationException();
 		}
 		//do some setup
-		MeshLocation dimension = new MeshLocation(0,0,0);
+		int x, y, z;  //dimensions of the merged block
 		MeshLocation location = second.location;
 		if (first.location.compareTo(second.location) < 0)
 			location = first.location;
 
 		//determine whether we need to change the x dimension
 		if (first.location.x == second.location.x){
-			dimension.x = first.dimension.x;
+			x = first.dimension.x;
 		} else {
-			dimension.x = first.dimension.x+second.dimension.x;
+			x = first.dimension.x+second.dimension.x;
 		}
 		
 		//determine whether we need to change the y dimension
 		if (first.location.y == second.location.y){
-			dimension.y = first.dimension.y;
+			y = first.dimension.y;
 		} else {
-			dimension.y = first.dimension.y+second.dimension.y;
+			y = first.dimension.y+second.dimension.y;
 		}
 		
 		//determine whether we need to change the z dimension
 		if (first.location.z == second.location.z){
-			dimension.z = first.dimension.z;
+			z = first.dimension.z;
 		} else {
-			dimension.z = first.dimension.z+second.dimension.z;
+			z = first.dimension.z+second.dimension.z;
 		}
 	
+		MeshLocation dimension = new MeshLocation(x,y,z);
 		Block toReturn = new Block(location,dimension);
 		toReturn.addChild(first);
 		toReturn.addChild(second);
@@ -32,7 +32,6 @@
 package simulator.allocator;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.TreeSet;
 import simulator.MeshLocation;
 
@@ -69,8 +68,7 @@ public class GreedyLInfPointCollector extends PointCollector{
 
 	public MeshLocation[] getNearest(MeshLocation center, int num,
 			MeshLocation[] available) {
-		LInfComparator lic = new LInfComparator(center.x, center.y, center.z);
-		Arrays.sort(available, lic);//LInfComparator sorts according to LInf distance from center
+		DistanceBuckets.sortByLInf(center, available);//sorts according to LInf distance from center
 
 		//Skip to the outer shell
 		int outerIndex = 0;	//The index of the first MeshLocation of the Outermost Shell
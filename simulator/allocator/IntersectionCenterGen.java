@@ -45,7 +45,7 @@ public class IntersectionCenterGen extends CenterGenerator {
       for (int ind_y = 0; ind_y < Y.size(); ind_y++) 
         for (int ind_z = 0; ind_z < Z.size(); ind_z++) {
           //Get an intersection with current x, y and z values
-          MeshLocation val = new MeshLocation(	X.get(ind_x),
+          MeshLocation val = machine.location(	X.get(ind_x),
                                 		Y.get(ind_y),
 						Z.get(ind_z) );                                                                  
           retVal.add(val); //Add to the return value list
@@ -0,0 +1,56 @@
+package simulator.allocator.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.allocator.BlockSet;
+
+public class TestBlockSet{
+
+    //sizes w/ one, two, and three levels of bitmaps, and at their edges
+    private static final int[] SIZES = {1, 5, 63, 64, 65, 200, 4095, 4096, 4097, 9000};
+
+    private static void check(BlockSet set, BitSet expected, int n, Random random){
+        for(int i = 0; i < 50; i++){
+            int from = random.nextInt(n + 1);
+            assertEquals(expected.nextSetBit(from), set.next(from));
+            int to = from + random.nextInt(n - from + 1);
+            assertEquals(expected.get(from, to).cardinality(), set.count(from, to));
+        }
+        assertEquals(expected.nextSetBit(0), set.next(0));
+        assertEquals(expected.cardinality(), set.count(0, n));
+    }
+
+    @Test
+    public void testAgainstBitSet(){
+        Random random = new Random(5);
+        for(int n : SIZES){
+            BlockSet set = new BlockSet(n);
+            BitSet expected = new BitSet(n);
+            check(set, expected, n, random);
+            for(int step = 0; step < 2000; step++){
+                //(mostly near a few spots, so words fill up and empty out)
+                int b = (random.nextInt(4) == 0) ? random.nextInt(n) :
+                    Math.min(n - 1, (n / 3) * random.nextInt(3) + random.nextInt(130));
+                if(random.nextBoolean()){
+                    set.add(b);
+                    expected.set(b);
+                } else if(expected.get(b)){
+                    set.remove(b);
+                    expected.clear(b);
+                }
+                assertEquals(expected.get(b), set.contains(b));
+                if(step % 20 == 0)
+                    check(set, expected, n, random);
+            }
+            //empty it again
+            for(int b = expected.nextSetBit(0); b != -1; b = expected.nextSetBit(b + 1))
+                set.remove(b);
+            check(set, new BitSet(n), n, random);
+        }
+    }
+}
@@ -11,7 +11,6 @@
 
 package simulator.allocator;
 
-import java.util.Arrays;
 import simulator.MeshLocation;
 
 public class L1PointCollector extends PointCollector {
@@ -19,8 +18,7 @@ public class L1PointCollector extends PointCollector {
     
     public MeshLocation[] getNearest(MeshLocation center, int num,
 				     MeshLocation[] available) {
-	L1Comparator L1c = new L1Comparator(center.x, center.y, center.z);
-	Arrays.sort(available, L1c);
+	DistanceBuckets.sortByL1(center, available);
 	return available;
     }
 
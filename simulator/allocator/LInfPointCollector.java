@@ -14,15 +14,13 @@
 
 package simulator.allocator;
 
-import java.util.Arrays;
 import simulator.MeshLocation;
 
 public class LInfPointCollector extends PointCollector{
 
   public MeshLocation[] getNearest(MeshLocation center, int num,
 				   MeshLocation[] available) {
-    LInfComparator lic = new LInfComparator(center.x, center.y, center.z);
-    Arrays.sort(available, lic);//LInfComparator sorts according to LInf dist from center
+    DistanceBuckets.sortByLInf(center, available);//sorts according to LInf dist from center
     return available;
   }
 
@@ -18,16 +18,17 @@
  *     these values should appear in order
  *   the second member of each pair gives its rank in the desired order
  *
+ * The allocators find free processors through the runs of free
+ * processors along the order, which the Mesh keeps up to date (see
+ * FreeRuns) instead of sorting the free processors for each job.
  */
 
 package simulator.allocator;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Scanner;
-import java.util.TreeSet;
+import simulator.FreeRuns;
 import simulator.Job;
 import simulator.Main;
 import simulator.Mesh;
@@ -35,8 +36,6 @@ import simulator.MeshLocation;
 
 public abstract class LinearAllocator extends Allocator {
 
-	private static final boolean DEBUG = false;
-
 	protected class MeshLocationOrdering implements Comparator<MeshLocation> {
 		//represent linear ordering
 
@@ -47,10 +46,15 @@ public abstract class LinearAllocator extends Allocator {
 		private int[] rank;   //way to store ordering
 		//(x,y,z) has position rank[x+y*xdim+z*xdim*ydim] in ordering
 
+		private Mesh mesh;
+		private int[] indexRank;  //rank of each processor by Mesh index
+		private int[] rankIndex;  //Mesh index of processor w/ each rank
+
 		public MeshLocationOrdering(Mesh m, String filename) {
 			//constructor taking machine and name of file with ordering
 			//file format is as described in comment at top of this file
 
+			mesh = m;
 			xdim = m.getXDim();
 			ydim = m.getYDim();
 			zdim = m.getZDim();
@@ -98,6 +102,19 @@ public abstract class LinearAllocator extends Allocator {
 			input.close();
 			if(nextBaseRank != rank.length)
 				Main.error("File with linear order has wrong number of pairs");
+
+			indexRank = new int[rank.length];
+			rankIndex = new int[rank.length];
+			boolean[] seen = new boolean[rank.length];
+			for(int pos=0; pos<rank.length; pos++) {
+				int r = rank[pos];
+				if(r < 0 || r >= rank.length || seen[r])
+					Main.error("Rank in file w/ linear order is out of range or repeated: " + r);
+				seen[r] = true;
+				int index = m.indexOf(pos % xdim, (pos / xdim) % ydim, pos / (xdim * ydim));
+				indexRank[index] = r;
+				rankIndex[r] = index;
+			}
 		}
 
 		public int rankOf(MeshLocation L) {
@@ -108,24 +125,7 @@ public abstract class LinearAllocator extends Allocator {
 		public MeshLocation locationOf(int Rank) {
 			//return MeshLocation having given rank
 			//raises exception if Rank is out of range
-
-			int pos = -1;   //ordinal value of position having rank
-			int x, y, z;    //coordinate values
-
-			//find Rank in array with ordering
-			int i=0;
-			while(pos == -1) {
-				if(rank[i] == Rank)
-					pos = i;
-				i++;
-			}
-
-			//translate position in ordering into coordinates
-			x = pos % xdim;
-			pos = pos / xdim;
-			y = pos % ydim;
-			z = pos / ydim;
-			return new MeshLocation(x, y, z);
+			return mesh.location(rankIndex[Rank]);
 		}
 
 		public int compare(MeshLocation L1, MeshLocation L2) {
@@ -157,73 +157,59 @@ public abstract class LinearAllocator extends Allocator {
 		ordering = new MeshLocationOrdering(m, filename);
 	}
 
+	public boolean resultsCanBeCached() {
+		return true;
+	}
 
 
-	protected ArrayList<ArrayList<MeshLocation>> getIntervals() {
-		//returns list of intervals of free processors
-		//each interval represented by a list of its locations
-
-		TreeSet<MeshLocation> avail = new TreeSet<MeshLocation>(ordering);
-		avail.addAll(((Mesh)machine).freeProcessors());
 
-		ArrayList<ArrayList<MeshLocation>> retVal =  //list of intervals so far
-				new ArrayList<ArrayList<MeshLocation>>();
-		ArrayList<MeshLocation> curr =               //interval being built
-				new ArrayList<MeshLocation>();
-		int lastRank = -2;                           //rank of last element
-		//-2 is sentinel value
+	protected FreeRuns getFreeRuns() {
+		//returns runs of free processors along the ordering
+		return ((Mesh)machine).getFreeRuns(ordering.indexRank);
+	}
 
-		for(MeshLocation ml : avail) {
-			int mlRank = ordering.rankOf(ml);
-			if((mlRank != lastRank + 1) && (lastRank != -2)) {
-				//need to start new interval
-				retVal.add(curr);
-				curr = new ArrayList<MeshLocation>();
-			}
-			curr.add(ml);
-			lastRank = mlRank;
-		}
-		if(curr.size() != 0)   //add last interval if nonempty
-			retVal.add(curr);
-
-		if(DEBUG) {
-			System.err.println("getIntervals:");
-			for(ArrayList<MeshLocation> ar : retVal) {
-				System.err.print("Interval: ");
-				for(MeshLocation ml : ar)
-					System.err.print(ml + " ");
-				System.err.println();
-			}
-		}
+	protected AllocInfo runAllocate(Job job, int start) {
+		//allocates job to the processors w/ consecutive ranks from start
 
+		MeshAllocInfo retVal = new MeshAllocInfo(job);
+		for(int i=0; i<retVal.processors.length; i++)
+			retVal.processors[i] = ordering.locationOf(start+i);
 		return retVal;
 	}
 
 	protected AllocInfo minSpanAllocate(Job job) {
 		//version of allocate that just minimizes the span
 
-		MeshLocation[] avail = new MeshLocation[machine.numFreeProcessors()];
-		avail = ((Mesh)machine).freeProcessors().toArray(avail);
-		Arrays.sort(avail, ordering);
+		FreeRuns runs = getFreeRuns();
 		int num = job.getProcsNeeded();
 
+		//slide a window of num free processors along the ordering
+		int first = runs.nextFree(0);   //rank of first processor in window
+		int last = first;               //rank of last one
+		for(int i=1; i<num; i++)
+			last = runs.nextFree(last+1);
+
 		//scan through possible starting locations to find best one
-		int bestStart = 0;   //index of best starting location so far
-		int bestSpan = ordering.rankOf(avail[num-1])   //best location's span
-				- ordering.rankOf(avail[0]);
-		for(int i=1; i<=avail.length-num; i++) {
-			int candidate = ordering.rankOf(avail[i+num-1]) 
-					- ordering.rankOf(avail[i]);
-			if(candidate < bestSpan) {
-				bestStart = i;
-				bestSpan = candidate;
+		int bestStart = first;          //rank of best starting location so far
+		int bestSpan = last - first;    //best location's span
+		while(true) {
+			first = runs.nextFree(first+1);
+			last = runs.nextFree(last+1);
+			if(last == -1)
+				break;
+			if(last - first < bestSpan) {
+				bestStart = first;
+				bestSpan = last - first;
 			}
 		}
 
 		//return the best allocation found
 		MeshAllocInfo retVal = new MeshAllocInfo(job);
-		for(int i=0; i<num; i++)
-			retVal.processors[i] = avail[bestStart+i];
+		int r = bestStart;
+		for(int i=0; i<num; i++) {
+			retVal.processors[i] = ordering.locationOf(r);
+			r = runs.nextFree(r+1);
+		}
 		return retVal;
 	}
 }
@@ -12,14 +12,21 @@
  * the Multi Buddy Strategy
  * A Note on Extending:  The only thing you need to do is override the initialize method,
  * create complete blocks, and make sure the "root" blocks are in the FBR.
+ *
+ * Once initialize has made the hierarchy of Blocks, they are numbered
+ * by rank and then location, and the allocator works with the numbers:
+ * the free blocks are a bitmap over them (so the first free block of a
+ * rank is the next member after the start of the rank), and their
+ * locations, parents, and children are kept in arrays.  Splitting,
+ * merging, and allocating blocks thus make no objects and take time
+ * logarithmic in the size of the machine for each block.
  */
 
 package simulator.allocator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import simulator.Factory;
 import simulator.Job;
@@ -30,8 +37,24 @@ import simulator.MeshLocation;
 
 public class MBSAllocator extends Allocator {
 
-	protected ArrayList<TreeSet<Block>> FBR;
-	protected ArrayList<Integer> ordering;
+	protected ArrayList<TreeSet<Block>> FBR;  //free blocks of each rank (only while initializing)
+	protected ArrayList<Integer> ordering;    //block size of each rank
+
+	//blocks are numbered by rank and then location; those of rank r are
+	//numbered from rankStart[r] to rankStart[r+1]-1
+	private int[] rankStart;
+	private int[] blockX, blockY, blockZ;     //location of each block
+	private int[] blockDX, blockDY, blockDZ;  //dimensions of each block
+	private int[] parent;      //parent of each block (-1 if none)
+	private int[] childStart;  //children of b are children[childStart[b]..childStart[b+1]-1]
+	private int[] children;
+	private BlockSet free;     //free blocks
+
+	private int[] requested;   //blocks of each rank still wanted by allocate (the RBR)
+	private int[] taken;       //blocks allocate has taken so far
+
+	private long splits = 0;   //# blocks split by splitLarger
+	private long merges = 0;   //# blocks put back together by mergeBlock
 
 	//We know it must be a mesh, so make it one so we can access the goods.
 	protected Mesh meshMachine;
@@ -47,6 +70,7 @@ public class MBSAllocator extends Allocator {
 
 		//create the starting blocks
 		initialize(new MeshLocation(x,y,z),new MeshLocation(0,0,0));
+		numberBlocks();
 		if (DEBUG) printFBR("Post Initialize:");
 	}
 
@@ -196,103 +220,164 @@ public class MBSAllocator extends Allocator {
 		return children.iterator();
 	}
 
+	/**
+	 * Numbers the blocks made by initialize, smallest first and by
+	 * location within each size, and records them in the arrays used
+	 * from then on.  The blocks in the FBR are the free ones.
+	 */
+	private void numberBlocks(){
+		TreeSet<Block> all = new TreeSet<Block>();
+		for(TreeSet<Block> blocks : this.FBR)
+			for(Block b : blocks)
+				collect(b,all);
+
+		int n = all.size();
+		this.rankStart = new int[this.ordering.size()+1];
+		this.blockX = new int[n];
+		this.blockY = new int[n];
+		this.blockZ = new int[n];
+		this.blockDX = new int[n];
+		this.blockDY = new int[n];
+		this.blockDZ = new int[n];
+		this.parent = new int[n];
+		this.childStart = new int[n+1];
+
+		int i = 0;
+		int rank = 0;
+		int numChildren = 0;
+		for(Block b : all){
+			int bRank = this.ordering.indexOf(b.size());
+			while(rank < bRank)
+				this.rankStart[++rank] = i;
+			b.number = i;
+			this.blockX[i] = b.location.x;
+			this.blockY[i] = b.location.y;
+			this.blockZ[i] = b.location.z;
+			this.blockDX[i] = b.dimension.x;
+			this.blockDY[i] = b.dimension.y;
+			this.blockDZ[i] = b.dimension.z;
+			numChildren += b.children.size();
+			i++;
+		}
+		while(rank < this.ordering.size())
+			this.rankStart[++rank] = n;
+
+		this.children = new int[numChildren];
+		i = 0;
+		numChildren = 0;
+		for(Block b : all){
+			this.parent[i] = (b.parent == null) ? -1 : b.parent.number;
+			this.childStart[i] = numChildren;
+			for(Block child : b.children)
+				this.children[numChildren++] = child.number;
+			i++;
+		}
+		this.childStart[n] = numChildren;
+
+		this.free = new BlockSet(n);
+		for(TreeSet<Block> blocks : this.FBR)
+			for(Block b : blocks)
+				this.free.add(b.number);
+		this.FBR = null;  //(no longer used)
+
+		this.requested = new int[this.ordering.size()];
+		this.taken = new int[this.meshMachine.numProcs()];
+	}
+
+	private static void collect(Block b, TreeSet<Block> all){
+		//adds b and the blocks above and below it in the hierarchy to all
+		if(!all.add(b))
+			return;
+		for(Block child : b.children)
+			collect(child,all);
+		if(b.parent != null)
+			collect(b.parent,all);
+	}
+
 	public MBSMeshAllocInfo allocate(Job job){
 		if (DEBUG) System.out.println("Allocating "+job);
 
 		MBSMeshAllocInfo retVal = new MBSMeshAllocInfo(job);
 		int allocated = 0;
+		int numTaken = 0;
 
-		//a map of dimensions to numbers
-		TreeMap<Integer,Integer> RBR = factorRequest(job);
+		//the number of blocks wanted at each rank
+		factorRequest(job,this.requested);
+		int currentRank = this.requested.length-1;
 
 		while(allocated < job.getProcsNeeded()){
 			//Start trying allocate the largest blocks
-			Integer currentRank = RBR.lastKey();
+			while(this.requested[currentRank] == 0)
+				currentRank--;
 
-			//see if there is a key like that in FBR.
-			if(this.FBR.get(currentRank).size() > 0){  //TODO: try/catch for error?
+			//see if there is a free block of that rank
+			int newBlock = firstFree(currentRank);
+			if(newBlock != -1){
 				//Move the block from FBR to retVal
-				Block newBlock = this.FBR.get(currentRank).first();
-				retVal.blocks.add(newBlock);
-				this.FBR.get(currentRank).remove(newBlock);
+				this.free.remove(newBlock);
+				this.taken[numTaken++] = newBlock;
 
 				//add all the processors to retVal, and make progress
 				//in the loop
-				Iterator<MeshLocation> it = newBlock.processors();
-				for (int i=allocated;it.hasNext();i++){
-					retVal.processors[i] = it.next();
-					allocated++;
+				for (int i=0;i<this.blockDX[newBlock];i++){
+					for(int j=0;j<this.blockDY[newBlock];j++){
+						for(int k=0;k<this.blockDZ[newBlock];k++){
+							retVal.processors[allocated++] =
+								this.meshMachine.location(this.blockX[newBlock]+i,
+														  this.blockY[newBlock]+j,
+														  this.blockZ[newBlock]+k);
+						}
+					}
 				}
 
 				//also be sure to remove the allocated block from the RBR
-				if (RBR.get(currentRank)-1 > 0){
-					RBR.put(currentRank,RBR.get(currentRank)-1);
-				} else {
-					RBR.remove(currentRank);
-				}
+				this.requested[currentRank]--;
 			} else {
 				//See if there is a larger one we can split up
 				if(!splitLarger(currentRank)){
 					//since we were unable to split a larger block, make request smaller
-					splitRequest(RBR,currentRank);
-
-					//if there are non left to request at the current rank, clean up the RBR
-					if(RBR.get(currentRank) <= 0){
-						RBR.remove(currentRank);
-
-						//make sure we look at the next lower rank
-						//currentRank = currentRank - 1;
-					}
-
+					splitRequest(this.requested,currentRank);
 				}
 				if (DEBUG) printFBR("After all splitting");
 			}
 		}
+		retVal.blocks = Arrays.copyOf(this.taken,numTaken);
 		return retVal;
 	}
 
 	/**
-	 * Calculates the RBR, which is a map of ranks to number of blocks at that rank
+	 * Returns the free block of the given rank with the smallest
+	 * location, or -1 if there is none
 	 */
-	public TreeMap<Integer,Integer> factorRequest(Job j){
-		TreeMap<Integer,Integer> retVal = new TreeMap<Integer,Integer>();
-		int procs = 0;
+	private int firstFree(int rank){
+		int b = this.free.next(this.rankStart[rank]);
+		if(b >= this.rankStart[rank+1])
+			return -1;
+		return b;
+	}
 
+	/**
+	 * Calculates the RBR, the number of blocks requested at each rank,
+	 * into RBR
+	 */
+	public void factorRequest(Job j, int[] RBR){
+		Arrays.fill(RBR,0);
+		int procs = 0;
 
 		while (procs < j.getProcsNeeded()){
-			//begin our search
-			Iterator<Integer> sizes = this.ordering.iterator();
-
 			//look for the largest size block that fits the procs needed
-			int size = -1;
-			int prevSize = -1;
-			while(sizes.hasNext()){
-				prevSize = size;
-				size = sizes.next();
-				if(size > (j.getProcsNeeded() - procs)){
-					//cancel the progress made with this run through the loop
-					size = prevSize;
-					break;
-				}
-			}
-			//make sure something was done
-			if(prevSize == -1 || size == -1){
-				//catch the special case where we only have one size
-				if(this.ordering.size() == 1){
-					size = this.ordering.get(0);
-				} else {
-					throw new Error("while loop never ran");
-				}
-			}
-
-			//get the rank
-			int rank = this.ordering.indexOf(size);
-			if(!retVal.containsKey(rank)){
-				retVal.put(rank,0);
-			}
+			int rank = 0;
+			while(rank+1 < this.ordering.size() &&
+					this.ordering.get(rank+1) <= j.getProcsNeeded() - procs)
+				rank++;
+			//make sure something fits
+			//(unless there is only one size, which is used anyway)
+			if(this.ordering.get(rank) > j.getProcsNeeded() - procs &&
+					this.ordering.size() > 1)
+				throw new Error("No block small enough for request");
 
 			//increment that value of the map
-			retVal.put(rank,retVal.get(rank)+1);
+			RBR[rank]++;
 
 			//make progress in the larger while loop
 			procs += this.ordering.get(rank);
@@ -300,36 +385,26 @@ public class MBSAllocator extends Allocator {
 
 		if (DEBUG){
 			System.out.println("Factored request: ");
-			printRBR(retVal);
+			printRBR(RBR);
 		}
-		return retVal;
 	}
 
 	/**
 	 * Breaks up a request for a block with a given rank into smaller request if able.
 	 */
-	public void splitRequest(TreeMap<Integer,Integer> RBR, Integer rank){
-		if (!RBR.containsKey(rank))
-			throw new IndexOutOfBoundsException();
+	public void splitRequest(int[] RBR, int rank){
 		if (rank <= 0)
 			throw new UnsupportedOperationException("Cannot split a request of size 0");
-		if (RBR.get(rank) == 0){
+		if (RBR[rank] == 0){
 			//throw new UnsupportedOperationException("Cannot split a block of size 0");
 			return;
 		}
 
 		//decrement the current rank
-		RBR.put(rank,RBR.get(rank)-1);
+		RBR[rank]--;
 
-		//get the number of blocks we need from the previous rank
-		int count = (int) this.ordering.get(rank)/this.ordering.get(rank-1);
-
-		//increment the previous rank, and if it doesn't exists create it
-		if(RBR.containsKey(rank-1)) {
-			RBR.put(rank-1,RBR.get(rank-1)+count);
-		} else {
-			RBR.put(rank-1,count);
-		}
+		//increment the previous rank by the number of blocks we need from it
+		RBR[rank-1] += this.ordering.get(rank)/this.ordering.get(rank-1);
 
 		if (DEBUG){
 			System.out.println("Split a request up");
@@ -341,33 +416,27 @@ public class MBSAllocator extends Allocator {
 	 * Determines whether a split up of a possible larger block was
 	 * successful.  It begins looking at one larger than rank.
 	 */
-	public boolean splitLarger(Integer rank){
+	public boolean splitLarger(int rank){
 		if (DEBUG) System.out.println("Splitting a block at rank "+rank);
 
 		//make sure that we can search in rank+1
-		//FBR has same size as ordering
-		if (rank+1 >= this.FBR.size())
+		if (rank+1 >= this.ordering.size())
 			return false;
 
 		//pass off the work
-		if(this.FBR.get(rank+1).size() == 0){
+		int toSplit = firstFree(rank+1);
+		if(toSplit == -1){
 			//recurse! if necessary
 			if(!splitLarger(rank+1))
 				return false;
+			toSplit = firstFree(rank+1);
 		}
 
-		//split a block since by this point in the method we have guaranteed its existence
-		Block toSplit = this.FBR.get(rank+1).first();
-		Iterator<Block> spawn = toSplit.getChildren();
-
-		//add children to the FBR
-		while (spawn.hasNext()){
-			Block currentBlock = spawn.next();
-			this.FBR.get(rank).add(currentBlock);
-		}
-
-		//remove toSplit from the FBR
-		this.FBR.get(rank+1).remove(toSplit);
+		//replace toSplit with its children in the FBR
+		this.free.remove(toSplit);
+		for(int c=this.childStart[toSplit]; c<this.childStart[toSplit+1]; c++)
+			this.free.add(this.children[c]);
+		this.splits++;
 
 		return true;
 	}
@@ -384,72 +453,83 @@ public class MBSAllocator extends Allocator {
 
 	public void unallocate(MBSMeshAllocInfo info){
 		//add all blocks back into the FBR
-		for(Block b : info.blocks){
-			int rank = this.ordering.indexOf(b.size());
-			this.FBR.get(rank).add(b);
-		}
+		for(int b : info.blocks)
+			this.free.add(b);
 		//for each block see if its parent is all free
-		for(Block b : info.blocks){
-			mergeBlock(b.parent);
-		}
+		for(int b : info.blocks)
+			mergeBlock(this.parent[b]);
 	}
 
-	public void mergeBlock(Block p){
-		if (!(p instanceof Block))
+	/**
+	 * Puts p back together (and then its parent, and so on) once all
+	 * its children are free, so blocks are merged with their buddies as
+	 * soon as they are deallocated
+	 */
+	public void mergeBlock(int p){
+		if (p == -1)
 			return;
 		//make sure p isn't in FBR
-		int rank = this.ordering.indexOf(p.size());
-		if(this.FBR.get(rank).contains(p))
+		if(this.free.contains(p))
 			return;
 
 		//see if children are in the FBR
-		for(Block child : p.children){
-			rank = this.ordering.indexOf(child.size());
-			if(!this.FBR.get(rank).contains(child))
+		for(int c=this.childStart[p]; c<this.childStart[p+1]; c++)
+			if(!this.free.contains(this.children[c]))
 				return;
-		}
 		//by this point in the code they all are
-		for(Block child : p.children){
-			rank = this.ordering.indexOf(child.size());
-			this.FBR.get(rank).remove(child);
-		}
-		rank = this.ordering.indexOf(p.size());
-		this.FBR.get(rank).add(p);
+		for(int c=this.childStart[p]; c<this.childStart[p+1]; c++)
+			this.free.remove(this.children[c]);
+		this.free.add(p);
+		this.merges++;
 		//recurse!
-		mergeBlock(p.parent);
+		mergeBlock(this.parent[p]);
 	}
 
-	public void printRBR(TreeMap<Integer,Integer> RBR){
-		Set<Integer> keys = RBR.keySet();
-		for(Integer key : keys){
-			System.out.println("Rank "+key+" has "+RBR.get(key)+" requested blocks");
+	/**
+	 * Below are the numbers the "frag" log is made from
+	 */
+
+	public int numRanks(){
+		return this.ordering.size();
+	}
+
+	public int rankSize(int rank){
+		return this.ordering.get(rank);
+	}
+
+	public int numFreeBlocks(int rank){
+		return this.free.count(this.rankStart[rank],this.rankStart[rank+1]);
+	}
+
+	public long getSplits(){
+		return this.splits;
+	}
+
+	public long getMerges(){
+		return this.merges;
+	}
+
+	public void printRBR(int[] RBR){
+		for(int rank=0; rank<RBR.length; rank++){
+			if(RBR[rank] > 0)
+				System.out.println("Rank "+rank+" has "+RBR[rank]+" requested blocks");
 		}
 	}
 
 	public void printFBR(String msg){
 		System.out.println(msg);
-		if(this.ordering.size() != this.FBR.size())
-			throw new Error("Ordering vs FBR size mismatch");
-		for (int i=0;i<this.ordering.size();i++){
-			System.out.println("Rank: "+i+" for size "+this.ordering.get(i));
-			Iterator<Block> it = this.FBR.get(i).iterator();
-			while (it.hasNext()){
-				System.out.println("  "+it.next());
-			}
-		}
+		System.out.print(stringFBR());
 	}
 
 	public String stringFBR(){
 		String retVal = "";
-		if(this.ordering.size() != this.FBR.size())
-			throw new Error("Ordering vs FBR size mismatch");
 		for (int i=0;i<this.ordering.size();i++){
 			retVal = retVal+("Rank: "+i+" for size "+this.ordering.get(i)+"\n");
-			Iterator<Block> it = this.FBR.get(i).iterator();
-			while (it.hasNext()){
-				retVal = retVal+("  "+it.next()+"\n");
+			for(int b=this.free.next(this.rankStart[i]); b!=-1 && b<this.rankStart[i+1]; b=this.free.next(b+1)){
+				retVal = retVal+("  Block["+this.blockDX[b]+"x"+this.blockDY[b]+"x"+this.blockDZ[b]+"]@"+
+						new MeshLocation(this.blockX[b],this.blockY[b],this.blockZ[b])+"\n");
 			}
 		}
 		return retVal;
 	}
-}
\ No newline at end of file
+}
@@ -11,23 +11,21 @@
 
 package simulator.allocator;
 
-import java.util.TreeSet;
 import simulator.Job;
 
 public class MBSMeshAllocInfo extends MeshAllocInfo {
 
-    public TreeSet<Block> blocks;
+    //Keep track of the blocks allocated (numbered by the MBSAllocator)
+    public int[] blocks;
 
     public MBSMeshAllocInfo(Job j){
 	super(j);
-	//Keep track of the blocks allocated
-	this.blocks = new TreeSet<Block>();
     }
 
     public String toString(){
-	String retVal = this.job.toString()+"\n  ";
-	for(Block block : blocks){
-	    retVal = retVal + block;
+	String retVal = this.job.toString()+"\n  Blocks";
+	for(int block : blocks){
+	    retVal = retVal + " " + block;
 	}
 	return retVal;
     }
@@ -30,7 +30,8 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 	protected Mesh meshMachine;
 	private MeshLocation start = new MeshLocation(0,0,0);
 	private boolean startValid = false;
-	private static boolean allShapes;
+	private boolean allShapes;
+	private boolean useFreeBoxes;  //whether to use the mesh's maximal free boxes
 
 	public MPLAllocator(Mesh m) {
 		this.meshMachine = m;
@@ -39,23 +40,27 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 
 	public static MPLAllocator Make(ArrayList<String> params){
 		Factory.argsAtLeast(0,params);
-		Factory.argsAtMost(1,params);
-
-		if(params.size() > 0)
-			allShapes = true;
-		else
-			allShapes = false;
+		Factory.argsAtMost(2,params);
 
 		Machine mach = Main.getMachine();
 		if(mach instanceof Mesh){
 			Mesh m = (Mesh) mach;
-			return new MPLAllocator(m);
+			MPLAllocator retVal = new MPLAllocator(m);
+			retVal.allShapes = (params.size() > 0);
+			retVal.useFreeBoxes = params.subList(1, params.size()).contains("boxes");
+			return retVal;
 		} else {
 			Main.error("MPLAllocator requires a mesh machine");
 		}
 		return null;   
 	}
 
+	public static String getParamHelp() {
+		return "[<opt_all>,<opt_boxes>]\n"+
+			"\topt_all: Try all shapes w/ the job's size, not just its rotations\n"+
+			"\topt_boxes: \"boxes\" to check pairs of jobs using the mesh's maximal free boxes (see FreeBoxes)";
+	}
+
 	/** finds an open processor to use as a starting point, then calls
     helpCanAllocate, which will return whether or not that is a valid
     starting point */
@@ -63,6 +68,9 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 		ContiguousJob cjob = (ContiguousJob) job;
 		startValid = false;
 
+		if(useFreeBoxes)
+			meshMachine.getFreeBoxes();  //(kept from now on, so copies of the mesh for pairTest have them)
+
 		if(machine.numFreeProcessors() < job.getProcsNeeded())
 			return false;
 
@@ -100,12 +108,16 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 
 		ContiguousJob c = (ContiguousJob) job;
 
+		if(c.getX() > mach.getXDim() || c.getY() > mach.getYDim() ||
+				c.getZ() > mach.getZDim())
+			return null;  //(shape doesn't fit in the mesh at all)
+
 		ArrayList<MeshLocation> mLList = new ArrayList<MeshLocation>();
 
 		for(int i=0; i<=mach.getXDim()-c.getX(); i++){
 			for(int j=0; j<=mach.getYDim()-c.getY(); j++){
 				if(helpCanAllocate(i,j,0,c,mach) == -1){
-					mLList.add(new MeshLocation(i,j,0));
+					mLList.add(mach.location(i,j,0));
 				}
 			}
 		}
@@ -113,15 +125,15 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 		for(int i=0; i<=mach.getXDim()-c.getX(); i++){
 			for(int j=0; j<=mach.getYDim()-c.getY(); j++){
 				if(helpCanAllocate(i,j,mach.getZDim()-c.getZ(),c,mach) == -1){
-					mLList.add(new MeshLocation(i,j,mach.getZDim()-c.getZ()));
+					mLList.add(mach.location(i,j,mach.getZDim()-c.getZ()));
 				}
 			}
 		}
 
 		for(int i=0; i<=mach.getXDim()-c.getX(); i++){
 			for(int j=0; j<=mach.getZDim()-c.getZ(); j++){
-				if(helpCanAllocate(i,j,0,c,mach) == -1){
-					mLList.add(new MeshLocation(i,0,j));
+				if(helpCanAllocate(i,0,j,c,mach) == -1){
+					mLList.add(mach.location(i,0,j));
 				}
 			}
 		}
@@ -129,23 +141,23 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 		for(int i=0; i<=mach.getXDim()-c.getX(); i++){
 			for(int j=0; j<=mach.getZDim()-c.getZ(); j++){
 				if(helpCanAllocate(i,mach.getYDim()-c.getY(),j,c,mach) == -1){
-					mLList.add(new MeshLocation(i,mach.getYDim()-c.getY(),j));
+					mLList.add(mach.location(i,mach.getYDim()-c.getY(),j));
 				}
 			}
 		}
 
-		for(int i=0; i<=mach.getYDim()-c.getX(); i++){
+		for(int i=0; i<=mach.getYDim()-c.getY(); i++){
 			for(int j=0; j<=mach.getZDim()-c.getZ(); j++){
 				if(helpCanAllocate(0,i,j,c,mach) == -1){
-					mLList.add(new MeshLocation(0,i,j));
+					mLList.add(mach.location(0,i,j));
 				}
 			}
 		}
 
-		for(int i=0; i<=mach.getYDim()-c.getX(); i++){
+		for(int i=0; i<=mach.getYDim()-c.getY(); i++){
 			for(int j=0; j<=mach.getZDim()-c.getZ(); j++){
 				if(helpCanAllocate(mach.getXDim()-c.getX(),i,j,c,mach) == -1){
-					mLList.add(new MeshLocation(mach.getXDim()-c.getX(),i,j));
+					mLList.add(mach.location(mach.getXDim()-c.getX(),i,j));
 				}
 			}
 		}
@@ -179,9 +191,11 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 		for(int k=0; k<=mach.getZDim()-c.getZ();k++) {
 			for(int j=0; j<=mach.getYDim()-c.getY(); j++) {
 				for(int i=0; i<=mach.getXDim()-c.getX(); i++) {
-					if(helpCanAllocate(i,j,k,c,mach) == -1) {
-						return new MeshLocation(i, j, k);
+					int conflict = helpCanAllocate(i,j,k,c,mach);
+					if(conflict == -1) {
+						return mach.location(i, j, k);
 					}
+					i = conflict;  //advance loop to avoid the conflict
 				}
 			}
 		}
@@ -191,8 +205,13 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 
 
 	/** takes a starting location and see if it's allocate-able */
-	//returns the x coordinate of the conflict if there is one and -1 if there isn't one (ie. the allocation is possible)
+	//returns the largest x coordinate of a conflict if there is one and -1 if there isn't one (ie. the allocation is possible)
 	private int helpCanAllocate(int x, int y, int z, ContiguousJob c, Mesh mach) {
+		if(x+c.getX() <= mach.getXDim() && y+c.getY() <= mach.getYDim() &&
+				z+c.getZ() <= mach.getZDim())
+			return mach.lastBusyX(x, y, z, c.getX(), c.getY(), c.getZ());
+
+		//(checks each processor of a box extending outside the mesh)
 		for(int i=x; i < x+c.getX(); i++) {
 			for(int j=y; j < y+c.getY(); j++) {
 				for(int k=z; k < z+c.getZ(); k++) {
@@ -228,7 +247,7 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 		for(int l=zCoord; l<=zCoord+cjob.getZ()-1;l++) {
 			for(int j=xCoord; j<=xCoord+cjob.getX()-1; j++) {
 				for(int k=yCoord; k<=yCoord+cjob.getY()-1; k++) {
-					MeshLocation loc = new MeshLocation(j,k,l);
+					MeshLocation loc = meshMachine.location(j,k,l);
 					retVal.processors[i] = loc;
 					i++;
 				}
@@ -245,7 +264,7 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 		String com;
 		if(comment) com="# ";
 		else com="";
-		return com+"First Fit Contiguous Allocator";
+		return com+"First Fit Contiguous Allocator"+(useFreeBoxes ? " (free boxes)" : "");
 	}
 
 	public AllocInfo pairTest(Mesh m1, ContiguousJob job1,
@@ -260,32 +279,46 @@ public class MPLAllocator extends ContiguousAllocator implements PairTestableAll
 					int conflict = helpCanAllocate(i1,j1,k1,job1,m1);
 					if(conflict != -1)
 						i1 = conflict;  //advance loop to avoid the conflict
-					else
-						for(int k2=0; k2<=m2.getZDim()-job2.getZ();k2++) 
-							for(int j2=0; j2<=m2.getYDim()-job2.getY(); j2++) 
-								for(int i2=0; i2<=m2.getXDim()-job2.getX(); i2++) 
-									if(!intersect(i1, j1, k1, job1, i2, j2, k2, job2)) {
-										int conflict2 = helpCanAllocate(i2, j2, k2, job2, m2);
-										if(conflict2 != -1)
-											i2 = conflict2;  //advance loop to avoid conflict
-										else {
-											//found a working allocation; return 1st job's part
-											MeshAllocInfo ai = new MeshAllocInfo(job1);
-											int i=0;
-											for(int l=k1; l<k1+job1.getZ();l++) 
-												for(int j=i1; j<i1+job1.getX(); j++)
-													for(int k=j1; k<j1+job1.getY(); k++) {
-														MeshLocation loc = new MeshLocation(j,k,l);
-														ai.processors[i] = loc;
-														i++;
-													}
-											return ai;
-										}
-									}
+					else if(fitsAvoiding(m2, job2, i1, j1, k1, job1)) {
+						//found a working allocation; return 1st job's part
+						MeshAllocInfo ai = new MeshAllocInfo(job1);
+						int i=0;
+						for(int l=k1; l<k1+job1.getZ();l++) 
+							for(int j=i1; j<i1+job1.getX(); j++)
+								for(int k=j1; k<j1+job1.getY(); k++) {
+									MeshLocation loc = m1.location(j,k,l);
+									ai.processors[i] = loc;
+									i++;
+								}
+						return ai;
+					}
 				}
 		return null;
 	}
 
+	private boolean fitsAvoiding(Mesh m2, ContiguousJob job2,
+			int i1, int j1, int k1, ContiguousJob job1) {
+		//returns whether j2 can be allocated in m2 w/o using the processors
+		//of j1 based at (i1, j1, k1)
+		//helper for pairTest
+
+		if(useFreeBoxes)
+			return m2.getFreeBoxes().fitsAvoiding(job2.getX(), job2.getY(),
+					job2.getZ(), i1, j1, k1, job1.getX(), job1.getY(), job1.getZ());
+
+		for(int k2=0; k2<=m2.getZDim()-job2.getZ();k2++) 
+			for(int j2=0; j2<=m2.getYDim()-job2.getY(); j2++) 
+				for(int i2=0; i2<=m2.getXDim()-job2.getX(); i2++) 
+					if(!intersect(i1, j1, k1, job1, i2, j2, k2, job2)) {
+						int conflict2 = helpCanAllocate(i2, j2, k2, job2, m2);
+						if(conflict2 != -1)
+							i2 = conflict2;  //advance loop to avoid conflict
+						else
+							return true;
+					}
+		return false;
+	}
+
 	private boolean intersect(int x1, int y1, int z1, ContiguousJob j1,
 			int x2, int y2, int z2, ContiguousJob j2) {
 		//returns whether j1 based at (x1, y1, z1) intersects j2 based at (x2, y2, z2)
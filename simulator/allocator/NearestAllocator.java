@@ -24,6 +24,14 @@ MM - center on intersection of grid in each direction by open places;
 MC1x1 - try centering at open places
   select L_inf closest points
   eval with L_inf distance from center
+
+ * Each center is scored starting from the free processors in the order
+ * the mesh lists them (the point collectors sort in place), and points
+ * equally near a center are taken in that order (see DistanceBuckets),
+ * so the best score (w/ tiebreak) wins, and the earliest of equally
+ * good centers, however the centers are split.  So with more than one
+ * thread (setThreads), when the centers are split among a pool of
+ * threads, allocations are the same as with one.
  */
 
 package simulator.allocator;
@@ -31,16 +39,25 @@ package simulator.allocator;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import simulator.Factory;
 import simulator.Job;
 import simulator.Main;
 import simulator.Mesh;
 import simulator.MeshLocation;
 import simulator.Pair;
+import simulator.Simulation;
 import simulator.Statistics;
 
 public class NearestAllocator extends Allocator {
 
+	//fewest centers scored by a task (so small jobs aren't split up)
+	private static final int MIN_CENTERS_PER_TASK = 16;
+
+	private static int threads = 1;          //# threads for scoring centers
+	private static ForkJoinPool pool = null; //(made when first needed)
+
 	//way to generate list of possible centers:
 	private CenterGenerator centerGenerator;
 
@@ -59,7 +76,20 @@ public class NearestAllocator extends Allocator {
 		pointCollector = pc;
 		scorer = s;
 		configName = name;
+	}
 
+	public static void setThreads(int num) {
+		//sets # threads used to score centers (1 to score them in order
+		//  in the simulation's thread)
+		if(num < 1)
+			Main.error("Number of allocator threads must be positive");
+		threads = num;
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if(pool == null)
+			pool = new ForkJoinPool(threads);
+		return pool;
 	}
 
 	public static NearestAllocator Make(ArrayList<String> params){
@@ -169,6 +199,10 @@ public class NearestAllocator extends Allocator {
 				"\tScorer: "+scorer.getSetupInfo(false);
 	}
 
+	public boolean resultsCanBeCached() {
+		return true;
+	}
+
 	public AllocInfo allocate(Job job){
 		return allocate(job,((Mesh)machine).freeProcessors());
 	}
@@ -195,48 +229,137 @@ public class NearestAllocator extends Allocator {
 			return retVal;
 		}
 
+		boolean recordingTies = Statistics.recordingTies();
+		List<MeshLocation> possCenters = centerGenerator.getCenters(available);
+
+		Best best;
+		if(threads == 1 || recordingTies || possCenters.size() <= MIN_CENTERS_PER_TASK)
+			//(ties found by separate tasks can't be combined)
+			best = score(possCenters, 0, possCenters.size(), availArray,
+					numProcs, recordingTies);
+		else {
+			int grain = Math.max(MIN_CENTERS_PER_TASK,
+					possCenters.size() / (4 * threads));
+			best = getPool().invoke(new ScoreTask(Simulation.current(),
+					possCenters, 0, possCenters.size(), grain, availArray, numProcs));
+		}
+
+		for(int i=0; i<numProcs; i++)
+			retVal.processors[i] = best.procs[i];
+
+		if(recordingTies && (best.allocs.size() > 1))
+			Statistics.writeTie(numProcs + "\t" + best.allocs.size() + "\n");
+
+		return retVal;
+	}
+
+	/**
+	 * Best allocation found from some of the centers.
+	 */
+	private static class Best {
+
 		//score of best value found so far with it tie-break score:
-		Pair<Long,Long> bestVal = new Pair<Long,Long>(Long.MAX_VALUE,
+		Pair<Long,Long> val = new Pair<Long,Long>(Long.MAX_VALUE,
 				Long.MAX_VALUE);
 
-		boolean recordingTies = Statistics.recordingTies();
+		MeshLocation[] procs = null;  //its processors
 
 		//stores allocations w/ best score (no tiebreaking) if ties being recorded:
-		//(actual best value w/ tiebreaking stored in retVal.processors)
-		HashSet<HashSet<MeshLocation>> bestAllocs = null;
+		HashSet<HashSet<MeshLocation>> allocs = null;
+
+	}
+
+	private static boolean better(Pair<Long,Long> val, Pair<Long,Long> other) {
+		// val is better if its score is less than the other score or
+		//if the scores are the same but its tiebreaker score is less
+		return (val.getFirst().compareTo(other.getFirst()) < 0) ||
+				(val.getFirst().equals(other.getFirst()) &&
+						(val.getSecond().compareTo(other.getSecond()) < 0));
+	}
+
+	private Best score(List<MeshLocation> centers, int from, int to,
+			MeshLocation[] availArray, int numProcs, boolean recordingTies) {
+		//returns best allocation from centers from..to-1 (earliest if tied)
+		//(scores each from a copy of availArray in its original order)
+
+		Best best = new Best();
+		best.procs = new MeshLocation[numProcs];
 		if(recordingTies)
-			bestAllocs = new HashSet<HashSet<MeshLocation>>();
+			best.allocs = new HashSet<HashSet<MeshLocation>>();
 
-		List<MeshLocation> possCenters = centerGenerator.getCenters(available);
-		for(MeshLocation center : possCenters) {
+		MeshLocation[] scratch = new MeshLocation[availArray.length];
+
+		for(int c = from; c < to; c++) {
+			MeshLocation center = centers.get(c);
+			System.arraycopy(availArray, 0, scratch, 0, availArray.length);
 			MeshLocation[] nearest = pointCollector.getNearest(center, numProcs,
-					availArray);
+					scratch);
 			Pair<Long,Long> val = scorer.valueOf(center, nearest, numProcs);
 
-			// This is the best value if its score is less than the best score or
-			//if the scores are the same but its tiebreaker score is less
-			if((val.getFirst().compareTo(bestVal.getFirst()) < 0) || 
-					(val.getFirst().equals(bestVal.getFirst()) &&
-							(val.getSecond().compareTo(bestVal.getSecond()) < 0))) {
-				bestVal = val;
+			if(better(val, best.val)) {
+				best.val = val;
 				for(int i=0; i<numProcs; i++)
-					retVal.processors[i] = nearest[i];
+					best.procs[i] = nearest[i];
 				if(recordingTies)
-					bestAllocs.clear();
+					best.allocs.clear();
 			}
 
-			if(recordingTies && val.getFirst().equals(bestVal.getFirst())) {
+			if(recordingTies && val.getFirst().equals(best.val.getFirst())) {
 				HashSet<MeshLocation> alloc = new HashSet<MeshLocation>();
 				for(int i=0; i<numProcs; i++)
 					alloc.add(nearest[i]);
-				bestAllocs.add(alloc);
+				best.allocs.add(alloc);
 			}
 		}
+		return best;
+	}
+
+	/**
+	 * Scores a range of centers, splitting it among the pool's threads.
+	 * Runs in the given simulation since scorers may look at its machine.
+	 */
+	private class ScoreTask extends RecursiveTask<Best> {
+
+		private static final long serialVersionUID = 1L;  //(never serialized)
+		private Simulation sim;
+		private List<MeshLocation> centers;
+		private int from;             //range of centers to score
+		private int to;
+		private int grain;            //most centers scored w/o splitting
+		private MeshLocation[] availArray;  //free processors (not changed)
+		private int numProcs;
+
+		ScoreTask(Simulation sim, List<MeshLocation> centers, int from, int to,
+				int grain, MeshLocation[] availArray, int numProcs) {
+			this.sim = sim;
+			this.centers = centers;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.availArray = availArray;
+			this.numProcs = numProcs;
+		}
 
-		if(recordingTies && (bestAllocs.size() > 1))
-			Statistics.writeTie(numProcs + "\t" + bestAllocs.size() + "\n");
+		protected Best compute() {
+			if(to - from <= grain) {
+				Simulation previous = Simulation.setCurrent(sim);
+				try {
+					return score(centers, from, to, availArray, numProcs, false);
+				} finally {
+					Simulation.setCurrent(previous);
+				}
+			}
 
-		return retVal;
+			int mid = (from + to) >>> 1;
+			ScoreTask first = new ScoreTask(sim, centers, from, mid, grain,
+					availArray, numProcs);
+			ScoreTask second = new ScoreTask(sim, centers, mid, to, grain,
+					availArray, numProcs);
+			first.fork();
+			Best secondBest = second.compute();
+			Best firstBest = first.join();
+			return better(secondBest.val, firstBest.val) ? secondBest : firstBest;
+		}
 	}
 
 	public static NearestAllocator genAlgAllocator(Mesh m) {
@@ -17,11 +17,11 @@ import simulator.Factory;
 import simulator.Job;
 import simulator.Main;
 import simulator.Mesh;
-import simulator.MeshLocation;
 
 public class RandomAllocator extends Allocator {
 
 	private Random randSrc;
+	private int[] available = new int[0];  //indices of free processors (reused)
 
 	public RandomAllocator(Mesh mesh) {
 		machine = mesh;
@@ -65,11 +65,16 @@ public class RandomAllocator extends Allocator {
 		MeshAllocInfo retVal = new MeshAllocInfo(job);
 
 		//figure out which processors to use
+		Mesh mesh = (Mesh)machine;
 		int numProcs = job.getProcsNeeded();
-		ArrayList<MeshLocation> available = ((Mesh)machine).freeProcessors();
+		if(available.length < mesh.numFreeProcessors())
+			available = new int[mesh.numProcs()];
+		int numAvail = mesh.freeIndices(available);
 		for(int i=0; i<numProcs; i++) {
-			int num = randSrc.nextInt(available.size());
-			retVal.processors[i] = available.remove(num);
+			int num = randSrc.nextInt(numAvail);
+			retVal.processors[i] = mesh.location(available[num]);
+			numAvail--;
+			System.arraycopy(available, num+1, available, num, numAvail-num);
 		}
 		return retVal;
 	}
@@ -15,13 +15,11 @@
 package simulator.allocator;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.TreeSet;
 import simulator.Factory;
+import simulator.FreeRuns;
 import simulator.Job;
 import simulator.Main;
 import simulator.Mesh;
-import simulator.MeshLocation;
 
 public class SortedFreeListAllocator extends LinearAllocator {
 
@@ -64,15 +62,16 @@ public class SortedFreeListAllocator extends LinearAllocator {
 		if(!canAllocate(job))
 			return null;
 
-		TreeSet<MeshLocation> avail = new TreeSet<MeshLocation>(ordering);
-		avail.addAll(((Mesh)machine).freeProcessors());
+		FreeRuns runs = getFreeRuns();
 
 		int num = job.getProcsNeeded();  //number of processors for job
 
 		MeshAllocInfo retVal = new MeshAllocInfo(job);
-		Iterator<MeshLocation> it = avail.iterator();
-		for(int i=0; i<num; i++)
-			retVal.processors[i] = it.next();
+		int r = runs.nextFree(0);  //rank of next free processor
+		for(int i=0; i<num; i++) {
+			retVal.processors[i] = ordering.locationOf(r);
+			r = runs.nextFree(r+1);
+		}
 		return retVal;
 	}
 }
@@ -12,7 +12,6 @@
 package simulator.allocator;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import simulator.Main;
 import simulator.Mesh;
@@ -29,7 +28,7 @@ public class Tiebreaker {
 	private long curveFactor = 0;
 	private long curveWidth = 2;
 
-	public String lastTieInfo;
+	public String lastTieInfo;  //(unreliable if NearestAllocator uses threads)
 
 	// Takes mesh center, available processors sorted by correct comparator,
 	// and number of processors needed and returns tiebreak value.
@@ -41,8 +40,7 @@ public class Tiebreaker {
 		if (avail.length == num)
 			return 0;
 
-		LInfComparator lc = new LInfComparator(center.x, center.y, center.z);
-		Arrays.sort(avail, lc);
+		DistanceBuckets.sortByLInf(center, avail);
 
 		if (maxshells == 0)
 			return 0;
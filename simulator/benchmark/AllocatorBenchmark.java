@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Times an allocator finding room for a job on a mesh that is already
+ * partly occupied.  The mesh is filled to the given occupancy (with
+ * some jobs freed and replaced along the way so it is fragmented) and
+ * each run allocates one job and releases it again, so every run sees
+ * the same occupancy.  As in the simulator, a job is only allocated if
+ * the allocator's canAllocate says it fits; a run for one that doesn't
+ * just times the check.
+ */
+
+package simulator.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import simulator.ContiguousJob;
+import simulator.Job;
+import simulator.Machine;
+import simulator.Main;
+import simulator.Mesh;
+import simulator.Simulation;
+import simulator.allocator.AllocInfo;
+import simulator.allocator.Allocator;
+import simulator.allocator.ContiguousAllocator;
+
+public class AllocatorBenchmark extends Benchmark {
+
+	private static final int NUM_REQUESTS = 64;  //different jobs to allocate
+
+	private String machineName;
+	private String allocatorName; //(argument "curve" means curveFile)
+	private String curveFile;     //curve for linear allocators
+	private double occupancy;     //fraction of processors in use
+
+	private Simulation sim;
+	private Machine machine;
+	private Allocator allocator;
+	private Job[] requests;       //jobs to allocate, used in turn
+	private int nextRequest;
+
+	public AllocatorBenchmark(String machineName, String allocatorName,
+			String curveFile, double occupancy) {
+		this.machineName = machineName;
+		this.allocatorName = allocatorName;
+		this.curveFile = curveFile;
+		this.occupancy = occupancy;
+		params.put("machine", machineName);
+		params.put("allocator", allocatorName);
+		params.put("occupancy", "" + occupancy);
+	}
+
+	public String getName() {
+		return "allocate";
+	}
+
+	private Job makeJob(Random random, boolean contiguous) {
+		//job needing up to half the mesh in each dimension
+		//(or up to an eighth of the processors if noncontiguous)
+		Mesh mesh = (Mesh)machine;
+		if(contiguous)
+			return new ContiguousJob(0, 1 + random.nextInt(Math.max(1, mesh.getXDim()/2)),
+					1 + random.nextInt(Math.max(1, mesh.getYDim()/2)),
+					1 + random.nextInt(Math.max(1, mesh.getZDim()/2)), 1, 1);
+		return new Job(0, 1 + random.nextInt(Math.max(1, mesh.numProcs()/8)), 1, 1);
+	}
+
+	public void setup() {
+		sim = Main.createSimulation(machineName, "pqueue",
+				allocatorName.replace("[curve]", "[" + curveFile + "]"));
+		machine = sim.getMachine();
+		allocator = sim.getAllocator();
+		machine.reset();
+
+		Random random = new Random(42);
+		boolean contiguous = allocator instanceof ContiguousAllocator;
+		int target = (int)(occupancy * machine.numProcs());
+
+		//fill the machine, freeing some jobs partway to fragment it
+		ArrayList<AllocInfo> running = new ArrayList<AllocInfo>();
+		for(int round = 0; round < 3; round++) {
+			int failures = 0;
+			while(machine.numProcs() - machine.numFreeProcessors() < target &&
+					failures < 100) {
+				Job job = makeJob(random, contiguous);
+				AllocInfo info = null;
+				if(allocator.canAllocate(job))
+					info = allocator.allocate(job);
+				if(info == null) {
+					failures++;
+					continue;
+				}
+				machine.allocate(info);
+				running.add(info);
+			}
+			if(round < 2) {
+				for(int i = running.size()-1; i >= 0; i--) {
+					if(random.nextInt(3) == 0) {
+						machine.deallocate(running.get(i));
+						allocator.deallocate(running.get(i));
+						running.remove(i);
+					}
+				}
+			}
+		}
+
+		requests = new Job[NUM_REQUESTS];
+		for(int i = 0; i < NUM_REQUESTS; i++)
+			requests[i] = makeJob(random, contiguous);
+		nextRequest = 0;
+	}
+
+	public void prepare() {
+		Simulation.setCurrent(sim);
+	}
+
+	public long run() {
+		Job job = requests[nextRequest];
+		nextRequest = (nextRequest + 1) % NUM_REQUESTS;
+
+		if(!allocator.canAllocate(job))
+			return 0;
+		AllocInfo info = allocator.allocate(job);
+		if(info == null)
+			return 0;
+		machine.allocate(info);
+		machine.deallocate(info);
+		allocator.deallocate(info);
+		return info.job.getProcsNeeded();
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * One benchmark run by BenchmarkRunner.  The runner calls setup once,
+ * then repeatedly calls prepare (untimed) followed by run (timed).
+ * Subclasses record the values they were created with in params so
+ * they appear in the results.
+ */
+
+package simulator.benchmark;
+
+import java.util.LinkedHashMap;
+
+public abstract class Benchmark {
+
+	protected LinkedHashMap<String,String> params = new LinkedHashMap<String,String>();
+
+	public abstract String getName();
+
+	public LinkedHashMap<String,String> getParams() {
+		return params;
+	}
+
+	public void setup() {}
+	//called once before any runs
+
+	public void prepare() {}
+	//called before each run; not timed
+
+	public abstract long run();
+	//the operation being timed
+	//returns a value depending on the work done so it can't be optimized away
+
+	public String toString() {
+		String retVal = getName();
+		for(String key : params.keySet())
+			retVal += " " + key + "=" + params.get(key);
+		return retVal;
+	}
+}
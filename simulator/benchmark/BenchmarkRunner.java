@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Runs the performance benchmarks and writes the results as JSON so
+ * that runs of different versions can be compared.
+ *
+ * Usage: java simulator/benchmark/BenchmarkRunner [warmup=<n>] [iterations=<n>]
+ *            [time=<ms>] [include=<text>] [out=<file>]
+ *   warmup:     # untimed iterations before measuring (default 2)
+ *   iterations: # measured iterations (default 5)
+ *   time:       length of each iteration in ms (default 1000); an
+ *               iteration runs the benchmark as many times as fits, but
+ *               always at least once
+ *   include:    only run benchmarks whose description contains text
+ *   out:        file for the results (default benchmark.json)
+ * Run from the top level directory so the traces are found (or set
+ * SIMINPUT and SIMCURVE as for the simulator).
+ *
+ * The score of each benchmark is its mean time per run in
+ * microseconds; scoreStdDev is the standard deviation over the measured
+ * iterations.  If any benchmark fails, the others are still run and
+ * written, but the runner exits with status 1.
+ */
+
+package simulator.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import simulator.ActualStatistics;
+import simulator.Main;
+
+public class BenchmarkRunner {
+
+	private static int warmup = 2;
+	private static int iterations = 5;
+	private static long iterationTime = 1000;   //in ms
+	private static String include = null;
+	private static String outFile = "benchmark.json";
+
+	private static long sink = 0;  //collects results of runs so they aren't optimized away
+
+	private static final String[] ALLOCATORS = {"random", "MM", "MC1x1", "genAlg",
+		"nearest[free,GreedyLInf,LInf]", "MBS", "GranularMBS", "OctetMBS",
+		"linear-first[curve]", "linear-best[curve]", "linear-sorted[curve]",
+		"FirstFitContig", "MaxPeriphLengthAllocator"};
+	private static final String ALLOC_MESH = "mesh[8,8,8]";
+	private static final double[] OCCUPANCIES = {0.25, 0.5, 0.75};
+
+	private static final String[] SCHEDULERS = {"easy", "cons"};
+	private static final int[] DEPTHS = {16, 64, 256};
+
+	private static void usage() {
+		System.out.println("Usage: java simulator/benchmark/BenchmarkRunner [warmup=<n>] [iterations=<n>]" +
+				" [time=<ms>] [include=<text>] [out=<file>]");
+		System.exit(0);
+	}
+
+	private static void parseArgs(String[] args) {
+		for(String s : args) {
+			if(s.startsWith("warmup="))
+				warmup = Integer.parseInt(s.substring(7));
+			else if(s.startsWith("iterations="))
+				iterations = Integer.parseInt(s.substring(11));
+			else if(s.startsWith("time="))
+				iterationTime = Long.parseLong(s.substring(5));
+			else if(s.startsWith("include="))
+				include = s.substring(8);
+			else if(s.startsWith("out="))
+				outFile = s.substring(4);
+			else {
+				if(!s.equals("-h") && !s.equals("--help"))
+					System.err.println("Unknown command line option " + s);
+				usage();
+			}
+		}
+		if(iterations < 1)
+			Main.error("Need at least one measured iteration");
+	}
+
+	private static String writeCurve(String mesh) {
+		//writes a curve file (processors in rank order) for the linear
+		//allocators on the given mesh and returns its name
+
+		String[] dims = mesh.substring(mesh.indexOf('[')+1, mesh.indexOf(']')).split(",");
+		int size = 1;
+		for(String d : dims)
+			size *= Integer.parseInt(d.trim());
+		try {
+			File curve = File.createTempFile("benchmark", ".curve");
+			curve.deleteOnExit();
+			FileWriter out = new FileWriter(curve);
+			for(int i = 0; i < size; i++)
+				out.write(i + " " + i + "\n");
+			out.close();
+			return curve.getPath();
+		} catch(IOException e) {
+			Main.error("Unable to write curve file: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static List<Benchmark> allBenchmarks() {
+		ArrayList<Benchmark> retVal = new ArrayList<Benchmark>();
+
+		String curve = writeCurve(ALLOC_MESH);
+		for(String alloc : ALLOCATORS)
+			for(double occupancy : OCCUPANCIES)
+				retVal.add(new AllocatorBenchmark(ALLOC_MESH, alloc, curve, occupancy));
+
+		for(String sched : SCHEDULERS)
+			for(int depth : DEPTHS)
+				retVal.add(new SchedulerBenchmark(sched, depth));
+
+		for(String sched : SCHEDULERS) {
+			retVal.add(new SimulationBenchmark("KTH-SP2", "simple[100]", sched, "simple"));
+			retVal.add(new SimulationBenchmark("LLNL-T3D", "simple[256]", sched, "simple"));
+		}
+
+		return retVal;
+	}
+
+	private static double[] measure(Benchmark b) {
+		//runs benchmark; returns mean time per run (in microseconds)
+		//for each measured iteration
+
+		double[] retVal = new double[iterations];
+		b.setup();
+		for(int i = 0; i < warmup + iterations; i++) {
+			long timed = 0;     //time spent in run (in ns)
+			long runs = 0;
+			long end = System.currentTimeMillis() + iterationTime;
+			do {
+				b.prepare();
+				long start = System.nanoTime();
+				sink += b.run();
+				timed += System.nanoTime() - start;
+				runs++;
+			} while(System.currentTimeMillis() < end);
+			if(i >= warmup)
+				retVal[i - warmup] = timed / 1000.0 / runs;
+		}
+		return retVal;
+	}
+
+	private static String quote(String s) {
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private static String toJSON(Benchmark b, double[] scores) {
+		double mean = 0;
+		for(double s : scores)
+			mean += s;
+		mean /= scores.length;
+		double var = 0;
+		for(double s : scores)
+			var += (s - mean) * (s - mean);
+		double stdDev = (scores.length > 1) ? Math.sqrt(var / (scores.length - 1)) : 0;
+
+		StringBuilder json = new StringBuilder();
+		json.append("  {\n");
+		json.append("    \"benchmark\" : " + quote(b.getClass().getName() + "." + b.getName()) + ",\n");
+		json.append("    \"mode\" : \"avgt\",\n");
+		json.append("    \"threads\" : 1,\n");
+		json.append("    \"jdkVersion\" : " + quote(System.getProperty("java.version")) + ",\n");
+		json.append("    \"warmupIterations\" : " + warmup + ",\n");
+		json.append("    \"warmupTime\" : " + quote(iterationTime + " ms") + ",\n");
+		json.append("    \"measurementIterations\" : " + iterations + ",\n");
+		json.append("    \"measurementTime\" : " + quote(iterationTime + " ms") + ",\n");
+		json.append("    \"params\" : {\n");
+		String sep = "";
+		for(String key : b.getParams().keySet()) {
+			json.append(sep + "      " + quote(key) + " : " + quote(b.getParams().get(key)));
+			sep = ",\n";
+		}
+		json.append("\n    },\n");
+		json.append("    \"primaryMetric\" : {\n");
+		json.append("      \"score\" : " + mean + ",\n");
+		json.append("      \"scoreStdDev\" : " + stdDev + ",\n");
+		json.append("      \"scoreUnit\" : \"us/op\",\n");
+		json.append("      \"rawData\" : [\n        [ ");
+		sep = "";
+		for(double s : scores) {
+			json.append(sep + s);
+			sep = ", ";
+		}
+		json.append(" ]\n      ]\n    }\n  }");
+		return json.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		parseArgs(args);
+		Main.initialize();
+		ActualStatistics.SetupLogs(new String[0]);  //no logs
+
+		//simulations print their results; throw that away
+		PrintStream stdout = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {}
+			public void write(byte[] b, int off, int len) {}
+		}));
+
+		ArrayList<String> results = new ArrayList<String>();
+		int failed = 0;
+		for(Benchmark b : allBenchmarks()) {
+			if(include != null && !b.toString().contains(include))
+				continue;
+			System.err.print(b + ": ");
+			try {
+				double[] scores = measure(b);
+				System.err.println(Arrays.toString(scores) + " us/op");
+				results.add(toJSON(b, scores));
+			} catch(RuntimeException e) {
+				System.err.println("FAILED");
+				e.printStackTrace();
+				failed++;
+			}
+		}
+		System.setOut(stdout);
+
+		FileWriter out = new FileWriter(outFile);
+		out.write("[\n");
+		for(int i = 0; i < results.size(); i++)
+			out.write(results.get(i) + ((i < results.size()-1) ? ",\n" : "\n"));
+		out.write("]\n");
+		out.close();
+		System.err.println("Wrote " + results.size() + " results to " + outFile +
+				" (checksum " + sink + ")");
+		if(failed > 0) {
+			System.err.println(failed + " benchmark(s) failed");
+			System.exit(1);
+		}
+	}
+}
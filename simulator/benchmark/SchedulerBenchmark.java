@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Times a scheduler handling a job arrival (jobArrives followed by
+ * tryToStart) when a given number of jobs are already waiting.  Before
+ * each run, a fresh scheduler is given a full machine and the waiting
+ * jobs, so the arriving job cannot start and must be planned around
+ * them.
+ */
+
+package simulator.benchmark;
+
+import java.util.Random;
+import simulator.EventQueue;
+import simulator.Job;
+import simulator.Machine;
+import simulator.Main;
+import simulator.Simulation;
+import simulator.Statistics;
+import simulator.allocator.Allocator;
+import simulator.scheduler.Scheduler;
+
+public class SchedulerBenchmark extends Benchmark {
+
+	private static final int NUM_PROCS = 128;
+
+	private String schedulerName;
+	private int depth;            //# jobs waiting when new one arrives
+
+	//state for the next run (built by prepare)
+	private Simulation sim;
+	private Machine machine;
+	private Scheduler scheduler;
+	private Allocator allocator;
+	private EventQueue events;
+	private Statistics stats;
+	private Job arriving;
+
+	private Random random;        //(reset each run so all runs see the same jobs)
+
+	public SchedulerBenchmark(String schedulerName, int depth) {
+		this.schedulerName = schedulerName;
+		this.depth = depth;
+		params.put("scheduler", schedulerName);
+		params.put("depth", "" + depth);
+	}
+
+	public String getName() {
+		return "jobArrives";
+	}
+
+	private Job makeJob(long arrival, int procs) {
+		long actual = 1 + random.nextInt(10000);
+		return new Job(arrival, procs, actual, actual + random.nextInt(10000));
+	}
+
+	private void arrive(Job j, long time) {
+		scheduler.jobArrives(j, time);
+		while(scheduler.tryToStart(allocator, time, machine, events, stats) != null)
+			;
+	}
+
+	public void prepare() {
+		sim = Main.createSimulation("simple[" + NUM_PROCS + "]", schedulerName, "simple");
+		machine = sim.getMachine();
+		scheduler = sim.getScheduler();
+		allocator = sim.getAllocator();
+		machine.reset();
+		scheduler.reset();
+		events = Main.createEventQueue();
+		stats = new Statistics();
+		random = new Random(42);
+
+		//fill the machine at time 0
+		int used = 0;
+		while(used < NUM_PROCS) {
+			int procs = Math.min(NUM_PROCS - used, 1 + random.nextInt(32));
+			arrive(makeJob(0, procs), 0);
+			used += procs;
+		}
+
+		//then add jobs that have to wait
+		for(int i = 0; i < depth; i++)
+			arrive(makeJob(1, 1 + random.nextInt(NUM_PROCS)), 1);
+
+		arriving = makeJob(2, 1 + random.nextInt(NUM_PROCS));
+	}
+
+	public long run() {
+		arrive(arriving, 2);
+		return events.size();
+	}
+}
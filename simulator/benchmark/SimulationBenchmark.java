@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Times a complete simulation (Main.runSim) of a trace.  The trace is
+ * read once in setup; each run simulates copies of its jobs.  Logs
+ * should be turned off (BenchmarkRunner does this) so the time isn't
+ * dominated by writing them.
+ */
+
+package simulator.benchmark;
+
+import java.util.ArrayList;
+import simulator.ArrivalStream;
+import simulator.EventQueue;
+import simulator.Job;
+import simulator.Main;
+import simulator.Simulation;
+import simulator.allocator.ContiguousAllocator;
+
+public class SimulationBenchmark extends Benchmark {
+
+	private String traceName;
+	private String machineName;
+	private String schedulerName;
+	private String allocatorName;
+
+	private ArrayList<Job> jobs;   //jobs of the trace
+	private Simulation sim;        //simulation for the next run
+
+	public SimulationBenchmark(String traceName, String machineName,
+			String schedulerName, String allocatorName) {
+		this.traceName = traceName;
+		this.machineName = machineName;
+		this.schedulerName = schedulerName;
+		this.allocatorName = allocatorName;
+		params.put("trace", traceName);
+		params.put("machine", machineName);
+		params.put("scheduler", schedulerName);
+		params.put("allocator", allocatorName);
+	}
+
+	public String getName() {
+		return "runSim";
+	}
+
+	public void setup() {
+		sim = Main.createSimulation(machineName, schedulerName, allocatorName);
+		jobs = Main.readTrace(traceName, sim.getAllocator() instanceof ContiguousAllocator);
+	}
+
+	public void prepare() {
+		sim = Main.createSimulation(machineName, schedulerName, allocatorName);
+		sim.getMachine().reset();
+		sim.getScheduler().reset();
+	}
+
+	public long run() {
+		Main.runSim(sim, Main.createEventQueue(),
+				new ArrivalStream(ArrivalStream.copiesOf(jobs), sim.getMachine()),
+				traceName, traceName);
+		return sim.getCurrentTime();
+	}
+}
@@ -18,26 +18,27 @@
 package simulator.scheduler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.ListIterator;
-import java.util.PriorityQueue;
-import simulator.Event;
+import simulator.EventQueue;
 import simulator.Factory;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Main;
+import simulator.Metrics;
 import simulator.Statistics;
 import simulator.allocator.AllocInfo;
 import simulator.allocator.Allocator;
 
 public class AggressiveScheduler extends Scheduler{
-    private LinkedList<Job> toRun;  //List of waiting jobs
+    private ArrayList<Job> toRun;   //List of waiting jobs
     private Comparator<Job> comp;   //Waiting jobs sorted by comp
     private int listIndex;	    //Current index in list toRun
+    private long sortedAt = -1;     //time toRun was sorted (see TimeDependentComparator)
 
     public AggressiveScheduler(int numProcs, Comparator<Job> comp) {
-        toRun = new LinkedList<Job>();
+        toRun = new ArrayList<Job>();
         this.comp = comp;
         listIndex = 0;
     }
@@ -68,35 +69,31 @@ public class AggressiveScheduler extends Scheduler{
     }
 
     public void jobArrives(Job j, long time) {
-        addCompJob(j, toRun);
-        Object[] temp = toRun.toArray();
-        toRun.clear();
-        for(int i = 0; i < temp.length; i++){
-            addCompJob((Job)temp[i], toRun);
+        if(TimeDependentComparator.needsReorder(comp, sortedAt, time)) {
+            Collections.sort(toRun, comp);
+            sortedAt = time;
         }
-
-        addCompJob(j, toRun);		
+        addCompJob(j, toRun);
     }
 
     public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-            PriorityQueue<Event> events, Statistics stats) {
+            EventQueue events, Statistics stats) {
         boolean succeeded = false;	    //Successful allocation
-        Job job = toRun.peek();
-
         if (toRun.size() == 0)
             return null;
+        Job job = null;
 
         ListIterator<Job> it = toRun.listIterator(listIndex);
         while (!succeeded && it.hasNext()  ) {
             job = it.next();
-            if(alloc.canAllocate(job))	   //try to allocate a job
+            if(Metrics.canAllocate(alloc, job))	   //try to allocate a job
                 succeeded = true; 
         }
 
         if (!succeeded)
             return null;
 
-        AllocInfo allocInfo = alloc.allocate(job);  //Allocate job
+        AllocInfo allocInfo = Metrics.allocate(alloc, job);  //Allocate job
         it.remove();			    //Remove allocated job
 
         listIndex = it.nextIndex();
@@ -119,23 +116,20 @@ public class AggressiveScheduler extends Scheduler{
         toRun.remove(j);
     }
 
-    //Adds job to list using the comparator comp
-    private void addCompJob(Job j, LinkedList<Job> l) {
-        //Empty list. Just add.
-        if (l.size() == 0) {
-            l.add(j);
-            return;
-        }
-
-        int addLoc = 0;
-        for (int i = 0; i < l.size(); i++) {
-            Job inList = l.get(i);
-            if (comp.compare(j, inList) > 0) {
-                addLoc++;
-            }
+    //Adds job to sorted list using the comparator comp
+    private void addCompJob(Job j, ArrayList<Job> l) {
+        //binary search for first job that j doesn't go after
+        int low = 0;
+        int high = l.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comp.compare(j, l.get(mid)) > 0)
+                low = mid + 1;
+            else
+                high = mid;
         }
 
-        l.add(addLoc, j);
+        l.add(low, j);
     }
 
 	@Override
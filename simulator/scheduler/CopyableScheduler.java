@@ -16,4 +16,8 @@ package simulator.scheduler;
 
 public interface  CopyableScheduler {
 	public Scheduler copy(); 
+
+	//whether copies share no state that they or this scheduler change,
+	//so a copy can be run on another thread while this one continues
+	public boolean copiesAreIndependent();
 }
@@ -18,12 +18,12 @@ package simulator.scheduler;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.PriorityQueue;
 import simulator.ContiguousJob;
-import simulator.Event;
+import simulator.EventQueue;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Main;
+import simulator.Metrics;
 import simulator.Mesh;
 import simulator.Statistics;
 import simulator.allocator.AllocInfo;
@@ -50,7 +50,7 @@ public class EASYContigScheduler extends EASYScheduler {
     }
 
     public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-				PriorityQueue<Event> events, Statistics stats) {
+				EventQueue events, Statistics stats) {
 	//start first job or try to backfill
 
 	if(alloc != theAlloc)
@@ -58,6 +58,7 @@ public class EASYContigScheduler extends EASYScheduler {
 
 	if(toRun.size() == 0)
 	    return null;
+	reorder(time);
 
 	boolean succeeded = false;  //whether we found job to allocate
 	boolean first = false;      //whether it was the first job
@@ -75,7 +76,7 @@ public class EASYContigScheduler extends EASYScheduler {
 	    Main.error("Failed to start job " + job + 
 		       " at guaranteed time " + guaranteedStart +
 		       " (current time=" + time + ")");
-	if(alloc.canAllocate(job)) {   //try to allocate first job
+	if(Metrics.canAllocate(alloc, job)) {   //try to allocate first job
 	    succeeded = true;
 	    first = true;
 	    if(DEBUG)
@@ -104,7 +105,7 @@ public class EASYContigScheduler extends EASYScheduler {
 	while(!succeeded && it.hasNext()) {
 	    job = (ContiguousJob)it.next();
 	    if(time + job.getEstimatedRunningTime() <= guaranteedStart)
-		succeeded = alloc.canAllocate(job);
+		succeeded = Metrics.canAllocate(alloc, job);
 	    else {
 		allocInfo = pta.pairTest(meshMach, job, testbed, firstJob);
 		if(allocInfo != null)
@@ -118,7 +119,7 @@ public class EASYContigScheduler extends EASYScheduler {
 		System.err.println(time + ": " + job + " starts");
 	    
 	    if(allocInfo == null)
-		allocInfo = alloc.allocate(job);
+		allocInfo = Metrics.allocate(alloc, job);
 	    toRun.remove(job);
 
 	    //update list of running jobs
@@ -127,7 +128,7 @@ public class EASYContigScheduler extends EASYScheduler {
 	    started.numProcs = job.getProcsNeeded();
 	    started.ai = allocInfo;
 	    started.estComp = time + job.getEstimatedRunningTime(allocInfo);
-	    running.add(started);
+	    addRunning(started);
 
 	    job.start(time, mach, allocInfo, events, stats);
 
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Scheduler implementing EASY backfilling with reservations for the
+ * first k waiting jobs (EASY-k) instead of only the first one; k = 1
+ * behaves like EASYScheduler and a k larger than the queue like
+ * conservative backfilling without compression.
+ *
+ * The exception is a comparator whose order changes over time (see
+ * TimeDependentComparator).  When the queue is re-sorted, this makes
+ * the reservations again for the jobs now first, while EASYScheduler
+ * keeps the guarantee it gave until a job finishes, the first job
+ * starts, or a job arrives at the front.  So with such a comparator
+ * (e.g. wfp), k = 1 can start jobs at different times than EASY.
+ *
+ * The plan is kept in a SchedProfile holding the estimated ends of
+ * running jobs and the reservations (start and end) of the first k
+ * jobs.  The reservations are made again (in queue order) whenever they
+ * may have changed: when a job finishes, is removed, or starts from its
+ * reservation, and when a job arrives ahead of a reserved one.  A later
+ * job is backfilled if the profile says it fits from now until its
+ * estimated completion, so checking it does not depend on the length
+ * of the queue.  A job still running past its estimated end (only
+ * possible if its estimate was shortened, as TimedRunScheduler does)
+ * is planned to end one time unit later than the present, and the
+ * reservations are made again, so backfilling never counts on the
+ * processors it still holds.
+ *
+ * Like EASYScheduler, this only works for non-contiguous allocators.
+ */
+
+package simulator.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.TreeSet;
+import simulator.EventQueue;
+import simulator.Factory;
+import simulator.Job;
+import simulator.Machine;
+import simulator.Main;
+import simulator.Metrics;
+import simulator.Statistics;
+import simulator.allocator.AllocInfo;
+import simulator.allocator.Allocator;
+
+public class EASYKScheduler extends Scheduler implements CopyableScheduler {
+
+	private int k;                    //# jobs w/ reservations
+	private Comparator<Job> comp;     //order of waiting jobs
+	private Machine machine;          //machine being scheduled
+
+	private Collection<Job> toRun;    //waiting jobs, ordered by comp
+	private long sortedAt = -1;       //time toRun was ordered (see TimeDependentComparator)
+
+	private SchedProfile profile;     //ends of running jobs and reservations
+	private HashMap<Job,EstJobEnd> runningEnds;     //estimated end of each running job
+	private HashMap<Job,EstJobStart> reservations;  //reservation of each reserved job
+	private Job lastReserved;         //last job w/ reservation (in order of toRun)
+	private boolean reserveAgain;     //whether reservations may be out of date
+
+	public EASYKScheduler(Machine machine, int k, Comparator<Job> comp) {
+		if(k < 1)
+			Main.error("EASY-k needs at least one reservation (k=" + k + ")");
+		this.machine = machine;
+		this.k = k;
+		this.comp = comp;
+		if(comp instanceof FIFOComparator)
+			toRun = new LinkedList<Job>();
+		else
+			toRun = new TreeSet<Job>(comp);
+		profile = new SchedProfile();
+		runningEnds = new HashMap<Job,EstJobEnd>();
+		reservations = new HashMap<Job,EstJobStart>();
+		lastReserved = null;
+		reserveAgain = false;
+	}
+
+	public static EASYKScheduler Make(ArrayList<String> params) {
+		Factory.argsAtLeast(1,params);
+		Factory.argsAtMost(2,params);
+
+		int k = Integer.parseInt(params.get(1));
+		if(params.size()-1 == 1)
+			return new EASYKScheduler(Main.getMachine(), k, new FIFOComparator());
+		return new EASYKScheduler(Main.getMachine(), k,
+				Main.getComparatorFactory().CreateSimple(params.get(2)));
+	}
+
+	public static String getParamHelp() {
+		return "[<k>,<opt_comp>]\n"+
+		"\tk: Number of waiting jobs given reservations\n"+
+		"\topt_comp: Optional comparator to order waiting jobs; default is FCFS\n";
+	}
+
+	public String getSetupInfo(boolean comment) {
+		String com;
+		if(comment) com="# ";
+		else com="";
+		return com+"EASY-" + k + " Scheduler (" + comp + ")";
+	}
+
+	public void jobArrives(Job j, long time) {
+		reorder(time);
+		toRun.add(j);
+		if(reservations.size() < k || comp.compare(j, lastReserved) < 0)
+			reserveAgain = true;  //j is one of the first k jobs
+	}
+
+	public void jobFinishes(Job j, long time) {
+		EstJobEnd end = runningEnds.remove(j);
+		if(end != null) {
+			profile.remove(end);
+			reserveAgain = true;  //(may have finished early)
+		}
+	}
+
+	public void removeJob(Job j, long time) {
+		//in case j has not been started:
+		reorder(time);
+		if(toRun.remove(j)) {
+			EstJobStart reservation = reservations.remove(j);
+			if(reservation != null) {
+				profile.remove(reservation);
+				profile.remove(reservation.getPartner());
+				reserveAgain = true;
+			}
+		}
+		jobFinishes(j, time);  //in case it has
+	}
+
+	public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
+			EventQueue events, Statistics stats) {
+		//start reserved job whose time has come or backfill a job that
+		//delays no reservation
+
+		if(toRun.isEmpty())
+			return null;
+		reorder(time);
+		planOverruns(time);
+		if(reserveAgain)
+			reserve(time);
+
+		int free = machine.numFreeProcessors();
+		Iterator<Job> it = toRun.iterator();
+		while(it.hasNext()) {
+			Job job = it.next();
+			EstJobStart reservation = reservations.get(job);
+			boolean fits;
+			if(reservation != null)
+				fits = (reservation.getTime() == time);
+			else
+				fits = (profile.earliestStart(free, time, job.getProcsNeeded(),
+						length(job)) == time);
+			if(!fits || !Metrics.canAllocate(alloc, job))
+				continue;
+
+			AllocInfo allocInfo = Metrics.allocate(alloc, job);
+			it.remove();
+			if(reservation != null) {
+				//keep end of reservation as end of running job
+				reservations.remove(job);
+				profile.remove(reservation);
+				runningEnds.put(job, reservation.getPartner());
+				reserveAgain = true;  //so another job is reserved
+			} else {
+				EstJobEnd end = new EstJobEnd(time + job.getEstimatedRunningTime(allocInfo), job);
+				profile.add(end);
+				runningEnds.put(job, end);
+			}
+			job.start(time, mach, allocInfo, events, stats);
+			return allocInfo;
+		}
+		return null;
+	}
+
+	private static long length(Job job) {
+		//time job is planned to take (earliestStart needs it positive)
+		return Math.max(job.getEstimatedRunningTime(), 1);
+	}
+
+	private void reserve(long time) {
+		//makes reservations for the first k waiting jobs again
+
+		for(EstJobStart reservation : reservations.values()) {
+			profile.remove(reservation);
+			profile.remove(reservation.getPartner());
+		}
+		reservations.clear();
+		lastReserved = null;
+
+		int free = machine.numFreeProcessors();
+		Iterator<Job> it = toRun.iterator();
+		while(reservations.size() < k && it.hasNext()) {
+			Job job = it.next();
+			long start = profile.earliestStart(free, time, job.getProcsNeeded(), length(job));
+			EstJobEnd end = new EstJobEnd(start + job.getEstimatedRunningTime(), job);
+			EstJobStart reservation = new EstJobStart(start, job, end);
+			profile.add(reservation);
+			profile.add(end);
+			reservations.put(job, reservation);
+			lastReserved = job;
+		}
+		reserveAgain = false;
+	}
+
+	private void planOverruns(long time) {
+		//moves estimated ends of jobs that should have ended by now to
+		//  just after now
+
+		ArrayList<Job> late = null;
+		for(SchedChange sc : profile) {
+			if(sc.getTime() > time)
+				break;
+			if(runningEnds.get(sc.job) == sc) {
+				if(late == null)
+					late = new ArrayList<Job>();
+				late.add(sc.job);
+			}
+		}
+		if(late == null)
+			return;
+		for(Job job : late) {
+			profile.remove(runningEnds.get(job));
+			EstJobEnd end = new EstJobEnd(time + 1, job);
+			profile.add(end);
+			runningEnds.put(job, end);
+		}
+		reserveAgain = true;
+	}
+
+	private void reorder(long time) {
+		//re-sorts waiting jobs if their order may have changed since last time
+		if(TimeDependentComparator.needsReorder(comp, sortedAt, time)) {
+			ArrayList<Job> jobs = new ArrayList<Job>(toRun);
+			toRun.clear();
+			toRun.addAll(jobs);  //(from a list so each is placed by comparator)
+			sortedAt = time;
+			reserveAgain = true;
+		}
+	}
+
+	public void reset() {
+		toRun.clear();
+		profile.clear();
+		runningEnds.clear();
+		reservations.clear();
+		lastReserved = null;
+		reserveAgain = false;
+	}
+
+	public Scheduler copy() {
+		EASYKScheduler duplicate = new EASYKScheduler(Main.getMachine(), k, comp);
+		duplicate.toRun.addAll(toRun);  //(linear time since already sorted)
+		duplicate.sortedAt = sortedAt;
+		duplicate.profile.addAll(profile);  //(changes are never modified, so shared)
+		duplicate.runningEnds = new HashMap<Job,EstJobEnd>(runningEnds);
+		duplicate.reservations = new HashMap<Job,EstJobStart>(reservations);
+		duplicate.lastReserved = lastReserved;
+		duplicate.reserveAgain = reserveAgain;
+		return duplicate;
+	}
+
+	public boolean copiesAreIndependent() {
+		return true;
+	}
+
+	public Scheduler contiguousAllocVersion(Allocator alloc) {
+		//having enough processors doesn't mean a job can start
+		return null;
+	}
+
+	public boolean hasJobsWaiting() {
+		return !toRun.isEmpty();
+	}
+}
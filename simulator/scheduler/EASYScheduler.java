@@ -20,11 +20,12 @@
 package simulator.scheduler;
 
 import java.util.*;
-import simulator.Event;
+import simulator.EventQueue;
 import simulator.Factory;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Main;
+import simulator.Metrics;
 import simulator.Statistics;
 import simulator.Utility;
 import simulator.allocator.AllocInfo;
@@ -64,6 +65,13 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 	protected TreeSet<RunningInfo> running;
 	//information on running jobs, ordered by non-decreasing estComp
 
+	protected HashMap<Long,RunningInfo> runningByNum;
+	//the same information, by job number
+
+	protected int freedByGuarantee;
+	//# processors of running jobs w/ estComp <= guaranteedStart
+	//(set by giveGuarantee and kept up to date as jobs are backfilled)
+
 	protected long prevFirstJobNum;  //ID of job to most-recently set guarantee
 	protected long guaranteedStart;  //guaranteed start time for 1st job
 
@@ -71,6 +79,7 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 
 	protected boolean checkGuarantee;  //whether to check for guarantee violations
 	private Comparator<Job> comp;
+	private long sortedAt = -1;  //time toRun was ordered (see TimeDependentComparator)
 
 	public EASYScheduler(Machine machine) {
 		//default constructor uses FCFS
@@ -92,6 +101,7 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 			toRun = (Collection<Job>) new TreeSet<Job>(comp);
 		comparator = comp.toString();
 		running = new TreeSet<RunningInfo>();
+		runningByNum = new HashMap<Long,RunningInfo>();
 		this.machine = machine;
 		prevFirstJobNum = -1;
 		checkGuarantee = true;
@@ -135,12 +145,8 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 		if(DEBUG)
 			System.err.println(time + ": Job #" + j.getJobNum() + " arrives");
 
+		reorder(time);
 		toRun.add(j);
-		Object[] temp = toRun.toArray();
-		toRun.clear();
-	        for(int i = 0; i<temp.length; i++){
-	            toRun.add((Job)temp[i]);
-		}
 
 		Iterator<Job> tour = toRun.iterator();
 		Job firstJob = tour.next();
@@ -154,23 +160,29 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 		if(DEBUG)
 			System.err.println(time + ": Job #" + j.getJobNum() + " completes");
 
-		Iterator<RunningInfo> it = running.iterator();
-		while(it.hasNext()) {
-			RunningInfo fromList = it.next();
-			if(fromList.jobNum == j.getJobNum()) {
-				it.remove();
-				giveGuarantee(time);
-				return;
-			}
+		reorder(time);
+		RunningInfo info = runningByNum.remove(j.getJobNum());
+		if(info != null) {
+			running.remove(info);
+			giveGuarantee(time);
 		}
 	}
 
+	protected void addRunning(RunningInfo started) {
+		//records that a job started
+		running.add(started);
+		runningByNum.put(started.jobNum, started);
+		if(started.estComp <= guaranteedStart)
+			freedByGuarantee += started.numProcs;
+	}
+
 	public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		//start first job or try to backfill
 		
 		if(toRun.size() == 0)
 			return null;
+		reorder(time);
 
 		boolean succeeded = false;  //whether we found job to allocate
 		boolean first = false;      //whether it was the first job
@@ -181,7 +193,7 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 		if(checkGuarantee && time > guaranteedStart)	//violated promise to allocate this job
 			Main.error("Failed to start job #" + job.getJobNum() +
 			" at guaranteed time");
-		if(alloc.canAllocate(job)) {   //try to allocate first job
+		if(Metrics.canAllocate(alloc, job)) {   //try to allocate first job
 			succeeded = true;
 			first = true;
 		}
@@ -191,7 +203,7 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 		//try to allocate later jobs if first didn't work
 		while(!succeeded && it.hasNext()) {
 			job = it.next();
-			if(alloc.canAllocate(job) &&
+			if(Metrics.canAllocate(alloc, job) &&
 			   (allocInfo = doesntDisturbFirst(alloc, job, time)) != null) {
 				succeeded = true;
 			}
@@ -204,7 +216,7 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 			}
 
 			if(allocInfo == null)
-				allocInfo = alloc.allocate(job);
+				allocInfo = Metrics.allocate(alloc, job);
 			toRun.remove(job);
 
 			//update list of running jobs
@@ -213,7 +225,7 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 			started.numProcs = job.getProcsNeeded();
 			started.ai = allocInfo;
 			started.estComp = time + job.getEstimatedRunningTime(allocInfo);
-			running.add(started);
+			addRunning(started);
 
 			job.start(time, mach, allocInfo, events, stats);
 
@@ -236,6 +248,19 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 		return null;
 	}
 
+	protected void reorder(long time) {
+		//re-sorts waiting jobs if their order may have changed since last time
+		if(!(toRun instanceof TreeSet))
+			return;  //(in order of arrival)
+		Comparator<? super Job> order = ((TreeSet<Job>)toRun).comparator();
+		if(TimeDependentComparator.needsReorder(order, sortedAt, time)) {
+			ArrayList<Job> jobs = new ArrayList<Job>(toRun);
+			toRun.clear();
+			toRun.addAll(jobs);  //(from a list so each is placed by comparator)
+			sortedAt = time;
+		}
+	}
+
 	protected void giveGuarantee(long time) {
 		//takes current time
 		//sets the time when the first job is guaranteed to run by
@@ -282,12 +307,17 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 		}
 
 		//otherwise go through running until enough processors will be free
+		//(continuing through jobs done by then to set freedByGuarantee)
 		int futureFree = free;   //# free processors at future times
+		freedByGuarantee = 0;
 		Iterator<RunningInfo> it = running.iterator();
-		while(!succeeded && it.hasNext()) {
+		while(it.hasNext()) {
 			RunningInfo info = it.next();
+			if(succeeded && info.estComp > guaranteedStart)
+				break;
 			futureFree += info.numProcs;
-			if(futureFree >= size) {
+			freedByGuarantee += info.numProcs;
+			if(!succeeded && futureFree >= size) {
 				guaranteedStart = info.estComp;
 				succeeded = true;
 			}
@@ -315,6 +345,8 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 
 		toRun.clear();
 		running.clear();
+		runningByNum.clear();
+		freedByGuarantee = 0;
 	}
 
 	public void removeJob(Job j, long time) {
@@ -322,25 +354,23 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 		if(DEBUG)
 			System.err.println(time + ": " + j + " removed");
 
+		reorder(time);
 		toRun.remove(j);       //in case j has not been started
 		jobFinishes(j, time);  //in case it has
 	}
 
 	private AllocInfo doesntDisturbFirst(Allocator alloc, Job j, long time) {
 		//returns whether j would delay the first job if started now
-		if (!alloc.canAllocate(j))
+		if (!Metrics.canAllocate(alloc, j))
 			return null;
 
-		AllocInfo retVal = alloc.allocate(j);
+		AllocInfo retVal = Metrics.allocate(alloc, j);
 
 		if(time + j.getEstimatedRunningTime(retVal) <= guaranteedStart)
 		    return retVal;
 
-		int avail = machine.numFreeProcessors();  //count of processors available at guarantee
-		Iterator<RunningInfo> it = running.iterator();
-		RunningInfo ri;
-		while(it.hasNext() && ((ri = it.next()).estComp <= guaranteedStart))
-			avail += ri.numProcs;
+		//count of processors available at guarantee
+		int avail = machine.numFreeProcessors() + freedByGuarantee;
 		Job firstJob = toRun.iterator().next();
 		if(avail - j.getProcsNeeded() >= firstJob.getProcsNeeded()){
 			return retVal;
@@ -362,24 +392,22 @@ public class EASYScheduler extends Scheduler implements CopyableScheduler{
 	@Override
 	public Scheduler copy() {
 		EASYScheduler duplicate = new EASYScheduler(Main.getMachine(), this.comp);
-		Iterator<Job> it = toRun.iterator();
-		while(it.hasNext()){
-			Job j=it.next();
-			duplicate.toRun.add(j);
-		}
+		duplicate.toRun.addAll(toRun);  //(linear time since already sorted)
+		duplicate.sortedAt = this.sortedAt;
 		duplicate.comparator = this.comparator;
-		duplicate.running = new TreeSet<RunningInfo>();
-		Iterator<RunningInfo> iterator = running.iterator();
-		while(iterator.hasNext()){
-			RunningInfo runInfo=iterator.next();
-			duplicate.running.add(runInfo);
-		}
+		duplicate.running = new TreeSet<RunningInfo>(running);
+		duplicate.runningByNum = new HashMap<Long,RunningInfo>(runningByNum);
+		duplicate.freedByGuarantee = this.freedByGuarantee;
 		duplicate.guaranteedStart=this.guaranteedStart;
 		duplicate.prevFirstJobNum = this.prevFirstJobNum;
 		duplicate.checkGuarantee = this.checkGuarantee;
 		return duplicate;
 	}
 
+	public boolean copiesAreIndependent() {
+		return true;
+	}
+
 	@Override
 	public boolean hasJobsWaiting() {
 		Iterator<Job> it = toRun.iterator();
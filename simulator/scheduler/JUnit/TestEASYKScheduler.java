@@ -0,0 +1,195 @@
+package simulator.scheduler.JUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.ArrivalStream;
+import simulator.Event;
+import simulator.EventQueue;
+import simulator.HeapEventQueue;
+import simulator.Job;
+import simulator.SimpleMachine;
+import simulator.Simulation;
+import simulator.Statistics;
+import simulator.allocator.SimpleAllocator;
+import simulator.scheduler.EASYKScheduler;
+import simulator.scheduler.EASYScheduler;
+import simulator.scheduler.FIFOComparator;
+import simulator.scheduler.LargestFirstComparator;
+import simulator.scheduler.LeastWorkFirstComparator;
+import simulator.scheduler.LongestFirstComparator;
+import simulator.scheduler.MostWorkFirstComparator;
+import simulator.scheduler.Scheduler;
+import simulator.scheduler.ShortestFirstComparator;
+import simulator.scheduler.SmallestFirstComparator;
+
+public class TestEASYKScheduler{
+
+    static final int PROCS = 8;  //# processors of the machine
+
+    //job that runs longer than estimated (the only way to get one, since
+    //  Job raises estimates that are too short)
+    static class Overrunning extends Job{
+        Overrunning(Job job, long estimate){
+            super(job, estimate);
+        }
+    }
+
+    //a trace, as {arrival, procs, actual running time, estimate} for each job
+    private static long[][] randomTrace(Random random, int num, boolean overruns){
+        long[][] trace = new long[num][];
+        long time = 0;
+        for(int i = 0; i < num; i++){
+            time += random.nextInt(4) == 0 ? 0 : random.nextInt(15);  //(some arrive together)
+            long actual = 1 + random.nextInt(40);
+            long estimate = actual + (random.nextBoolean() ? 0 : random.nextInt(40));
+            if(overruns && random.nextInt(5) == 0)
+                estimate = 1 + random.nextInt((int)actual);
+            trace[i] = new long[] {time, 1 + random.nextInt(PROCS), actual, estimate};
+        }
+        return trace;
+    }
+
+    //runs the trace, returning the jobs (so their start times can be read)
+    private static ArrayList<Job> simulate(long[][] trace, boolean easyK, int k, Comparator<Job> comp){
+        Simulation previous = Simulation.setCurrent(new Simulation());  //(so job numbers start from 0)
+        SimpleMachine machine = new SimpleMachine(PROCS);
+        Scheduler sched = easyK ? new EASYKScheduler(machine, k, comp) : new EASYScheduler(machine, comp);
+        SimpleAllocator alloc = new SimpleAllocator(machine);
+        Statistics stats = new Statistics();
+
+        ArrayList<Job> jobs = new ArrayList<Job>();
+        for(long[] t : trace){
+            if(t[3] < t[2])
+                jobs.add(new Overrunning(new Job(t[0], (int)t[1], t[2], t[2]), t[3]));
+            else
+                jobs.add(new Job(t[0], (int)t[1], t[2], t[3]));
+        }
+
+        //(as Main.runSim does)
+        EventQueue events = new HeapEventQueue();
+        ArrivalStream arrivals = new ArrivalStream(jobs.iterator(), machine);
+        arrivals.start(events);
+        while(events.size() > 0){
+            Event e = events.poll();
+            arrivals.eventRemoved(e, events);
+            Simulation.current().setCurrentTime(e.getTime());
+            e.happen(machine, alloc, sched, events, stats);
+        }
+        Simulation.setCurrent(previous);
+        return jobs;
+    }
+
+    @Test
+    public void testOneReservationIsEASY(){
+        //w/ comparators whose order doesn't change over time
+        Random random = new Random(13);
+        ArrayList<Comparator<Job>> comps = new ArrayList<Comparator<Job>>();
+        comps.add(new FIFOComparator());
+        comps.add(new ShortestFirstComparator());
+        comps.add(new LongestFirstComparator());
+        comps.add(new SmallestFirstComparator());
+        comps.add(new LargestFirstComparator());
+        comps.add(new LeastWorkFirstComparator());
+        comps.add(new MostWorkFirstComparator());
+        for(int trial = 0; trial < 30; trial++){
+            long[][] trace = randomTrace(random, 60, false);
+            for(Comparator<Job> comp : comps){
+                ArrayList<Job> easy = simulate(trace, false, 1, comp);
+                ArrayList<Job> easyK = simulate(trace, true, 1, comp);
+                for(int i = 0; i < trace.length; i++)
+                    assertEquals(comp + ", job " + i, easy.get(i).getStartTime(), easyK.get(i).getStartTime());
+            }
+        }
+    }
+
+    @Test
+    public void testReservationNotDelayedByBackfill(){
+        //w/ one reservation in FIFO order (the order jobs arrive in) and
+        //  estimates that are never too short, the job at the front of the
+        //  queue waits only for the jobs that started before it got there
+        Random random = new Random(14);
+        for(int trial = 0; trial < 100; trial++){
+            long[][] trace = randomTrace(random, 40, false);
+            ArrayList<Job> jobs = simulate(trace, true, 1, new FIFOComparator());
+            for(int i = 0; i < jobs.size(); i++){
+                Job job = jobs.get(i);
+                long front = job.getArrivalTime();  //when job reached the front
+                for(int j = 0; j < i; j++)
+                    front = Math.max(front, jobs.get(j).getStartTime());
+                long reservation = front;
+                while(busy(jobs, front, reservation, i) > PROCS - job.getProcsNeeded())
+                    reservation++;
+                assertTrue("trial " + trial + ", job " + i + " starts at " + job.getStartTime() +
+                           " (reserved " + reservation + ")", job.getStartTime() <= reservation);
+            }
+        }
+    }
+
+    //# processors planned at the given time to be busy later, at time
+    //  when, with the jobs that had started by then except skip; jobs
+    //  past their estimates are planned to end one time unit after now
+    private static int busy(ArrayList<Job> jobs, long now, long when, int skip){
+        int busy = 0;
+        for(int j = 0; j < jobs.size(); j++){
+            Job job = jobs.get(j);
+            long start = job.getStartTime();
+            if(j == skip || start > now || start + job.getActualTime() <= now)
+                continue;  //(not running)
+            long end = Math.max(start + job.getEstimatedRunningTime(), now + 1);
+            if(when < end)
+                busy += job.getProcsNeeded();
+        }
+        return busy;
+    }
+
+    @Test
+    public void testBackfillKeepsReservation(){
+        //w/ one reservation in FIFO order, starting a job ahead of its turn
+        //  never moves the reservation of the job at the front of the
+        //  queue, including when running jobs overrun their estimates
+        Random random = new Random(15);
+        for(int trial = 0; trial < 200; trial++){
+            long[][] trace = randomTrace(random, 40, true);
+            ArrayList<Job> jobs = simulate(trace, true, 1, new FIFOComparator());
+            for(int b = 0; b < jobs.size(); b++){
+                long now = jobs.get(b).getStartTime();
+                int front = 0;  //first job still waiting once b started
+                while(front < jobs.size() && jobs.get(front).getStartTime() <= now)
+                    front++;
+                if(front > b)
+                    continue;  //(b started in its turn)
+                int procs = jobs.get(front).getProcsNeeded();
+
+                //reservation w/ all the jobs started by now, and w/o those
+                //  started now ahead of their turn
+                long with = now;
+                while(busy(jobs, now, with, -1) > PROCS - procs)
+                    with++;
+                long without = now;
+                while(busyInTurn(jobs, now, without, front) > PROCS - procs)
+                    without++;
+                assertEquals("trial " + trial + ", job " + b + " backfilled at " + now +
+                             " moves reservation of job " + front, without, with);
+            }
+        }
+    }
+
+    //like busy, but leaving out jobs started at time now behind front
+    private static int busyInTurn(ArrayList<Job> jobs, long now, long when, int front){
+        int busy = busy(jobs, now, when, -1);
+        for(int j = front + 1; j < jobs.size(); j++){
+            Job job = jobs.get(j);
+            long end = Math.max(now + job.getEstimatedRunningTime(), now + 1);
+            if(job.getStartTime() == now && when < end)
+                busy -= job.getProcsNeeded();
+        }
+        return busy;
+    }
+}
@@ -0,0 +1,90 @@
+package simulator.scheduler.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.Job;
+import simulator.scheduler.JobHeap;
+
+public class TestJobHeap{
+
+    //priority of each job (few values, so many ties), which can be changed
+    private HashMap<Job,Integer> key = new HashMap<Job,Integer>();
+
+    //orders by key, then job number (so the order is total and both queues agree)
+    private Comparator<Job> comp = new Comparator<Job>(){
+        public int compare(Job j1, Job j2){
+            int c = key.get(j1).compareTo(key.get(j2));
+            return (c != 0) ? c : j1.compareTo(j2);
+        }
+    };
+
+    private static void check(JobHeap heap, PriorityQueue<Job> expected){
+        assertEquals(expected.size(), heap.size());
+        assertEquals(expected.isEmpty(), heap.isEmpty());
+        assertEquals(expected.peek(), heap.peek());
+        HashSet<Job> inHeap = new HashSet<Job>();
+        for(Job j : heap)
+            inHeap.add(j);
+        assertEquals(new HashSet<Job>(expected), inHeap);
+    }
+
+    //empties a copy of each and checks they give the same jobs in the same order
+    private static void checkPollOrder(JobHeap heap, PriorityQueue<Job> expected){
+        JobHeap heapCopy = new JobHeap(heap);
+        PriorityQueue<Job> expectedCopy = new PriorityQueue<Job>(expected);
+        while(!expectedCopy.isEmpty())
+            assertEquals(expectedCopy.poll(), heapCopy.poll());
+        assertEquals(null, heapCopy.poll());
+        check(heap, expected);  //(copy shouldn't share the heap)
+    }
+
+    @Test
+    public void testAgainstPriorityQueue(){
+        Random random = new Random(6);
+        for(int trial = 0; trial < 20; trial++){
+            JobHeap heap = new JobHeap(comp);
+            PriorityQueue<Job> expected = new PriorityQueue<Job>(11, comp);
+            ArrayList<Job> jobs = new ArrayList<Job>();  //every job made (some gone)
+            int keys = 1 + random.nextInt(20);
+            for(int step = 0; step < 1500; step++){
+                int op = random.nextInt(10);
+                if(op < 5){
+                    Job j = new Job(step, 1, 1, 1);
+                    key.put(j, random.nextInt(keys));
+                    jobs.add(j);
+                    heap.add(j);
+                    expected.add(j);
+                } else if(op < 7){
+                    assertEquals(expected.poll(), heap.poll());
+                } else if(op < 9 && !jobs.isEmpty()){
+                    Job j = jobs.get(random.nextInt(jobs.size()));
+                    assertEquals(expected.contains(j), heap.contains(j));
+                    assertEquals(expected.remove(j), heap.remove(j));
+                } else if(random.nextInt(10) == 0){
+                    //priorities of all jobs change (as w/ TimeDependentComparator)
+                    for(Job j : jobs)
+                        key.put(j, random.nextInt(keys));
+                    heap.reorder();
+                    PriorityQueue<Job> old = expected;
+                    expected = new PriorityQueue<Job>(11, comp);
+                    expected.addAll(old);  //(copying a PriorityQueue keeps its old order)
+                }
+                check(heap, expected);
+                if(step % 100 == 0)
+                    checkPollOrder(heap, expected);
+            }
+            checkPollOrder(heap, expected);
+            heap.clear();
+            check(heap, new PriorityQueue<Job>(11, comp));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package simulator.scheduler.JUnit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import simulator.Job;
+import simulator.scheduler.EstJobEnd;
+import simulator.scheduler.EstJobStart;
+import simulator.scheduler.SchedChange;
+import simulator.scheduler.SchedProfile;
+
+public class TestSchedProfile{
+
+    static final int PROCS = 16;  //# processors of the machine planned for
+    static final long NOW = 100;
+
+    /**
+     * Plan kept as a sorted list and searched with the linear scans
+     * StatefulScheduler used before SchedProfile (findTime and zeroCase).
+     */
+    static class NaiveProfile{
+        ArrayList<SchedChange> changes = new ArrayList<SchedChange>();
+
+        void add(SchedChange sc){
+            int i = 0;
+            while(i < changes.size() && changes.get(i).compareTo(sc) < 0)
+                i++;
+            changes.add(i, sc);
+        }
+
+        void remove(SchedChange sc){
+            for(int i = 0; i < changes.size(); i++)
+                if(changes.get(i).compareTo(sc) == 0){
+                    changes.remove(i);
+                    return;
+                }
+        }
+
+        long totalChange(){
+            long total = 0;
+            for(SchedChange sc : changes)
+                total += sc.freeProcChange();
+            return total;
+        }
+
+        private static boolean zeroLength(SchedChange sc){
+            return sc.job.getEstimatedRunningTime() == 0;
+        }
+
+        long earliestStart(long freeNow, long time, int procs, long length){
+            int i = 0;  //index of first change not looked at yet
+            long currentFree = freeNow;
+            long anchorTime = time;
+            SchedChange sc;
+            while(true){
+                if(i == changes.size())
+                    return anchorTime;
+                sc = changes.get(i++);
+                long scTime = sc.getTime();
+                if(scTime <= anchorTime){
+                    currentFree += sc.freeProcChange();
+                    continue;
+                }
+                boolean done = false;
+                boolean skip = false;
+                while(!done && currentFree >= procs){
+                    currentFree += sc.freeProcChange();
+                    if(zeroLength(sc) && currentFree < procs)
+                        skip = true;
+                    while(i < changes.size() && changes.get(i).getTime() == scTime){
+                        sc = changes.get(i++);
+                        currentFree += sc.freeProcChange();
+                        if(zeroLength(sc) && currentFree < procs)
+                            skip = true;
+                    }
+                    if(skip){
+                        if(i < changes.size() && anchorTime == scTime)
+                            sc = changes.get(i++);
+                        else
+                            currentFree -= sc.freeProcChange();
+                        break;
+                    }
+                    if(scTime >= anchorTime + length || i == changes.size())
+                        done = true;
+                    else
+                        sc = changes.get(i++);
+                    scTime = sc.getTime();
+                }
+                if(done)
+                    return anchorTime;
+                anchorTime = sc.getTime();
+                currentFree += sc.freeProcChange();
+            }
+        }
+
+        long firstTimeWithFree(long freeNow, int procs){
+            long free = freeNow;
+            for(SchedChange sc : changes){
+                free += sc.freeProcChange();
+                if(free >= procs)
+                    return sc.getTime();
+            }
+            return SchedProfile.NEVER;
+        }
+    }
+
+    private static void check(SchedProfile profile, NaiveProfile naive, long freeNow, Random random){
+        assertEquals(naive.changes.size(), profile.size());
+        Iterator<SchedChange> it = profile.iterator();
+        for(SchedChange sc : naive.changes)
+            assertEquals(0, sc.compareTo(it.next()));
+        assertEquals(naive.totalChange(), profile.totalChange());
+
+        for(int procs = 1; procs <= PROCS; procs++)
+            assertEquals(naive.firstTimeWithFree(freeNow, procs),
+                         profile.firstTimeWithFree(freeNow, procs));
+        for(int i = 0; i < 30; i++){
+            long time = NOW + random.nextInt(60);
+            int procs = 1 + random.nextInt(PROCS);
+            long length = 1 + random.nextInt(40);
+            assertEquals(naive.earliestStart(freeNow, time, procs, length),
+                         profile.earliestStart(freeNow, time, procs, length));
+        }
+    }
+
+    @Test
+    public void testAgainstNaive(){
+        Random random = new Random(4);
+        for(int trial = 0; trial < 100; trial++){
+            SchedProfile profile = new SchedProfile();
+            NaiveProfile naive = new NaiveProfile();
+
+            //running jobs (only their ends are planned)
+            long freeNow = PROCS;
+            int numRunning = random.nextInt(5);
+            for(int i = 0; i < numRunning && freeNow > 0; i++){
+                int procs = 1 + random.nextInt((int)freeNow);
+                long end = NOW + random.nextInt(50);
+                EstJobEnd change = new EstJobEnd(end, new Job(0, procs, end, end));
+                profile.add(change);
+                naive.add(change);
+                freeNow -= procs;
+            }
+
+            //reservations, placed where the naive profile says they fit
+            //(some of them 0-length), and some removed again
+            ArrayList<EstJobStart> reserved = new ArrayList<EstJobStart>();
+            for(int step = 0; step < 30; step++){
+                if(!reserved.isEmpty() && random.nextInt(4) == 0){
+                    EstJobStart start = reserved.remove(random.nextInt(reserved.size()));
+                    profile.remove(start);
+                    profile.remove(start.getPartner());
+                    naive.remove(start);
+                    naive.remove(start.getPartner());
+                } else {
+                    int procs = 1 + random.nextInt(PROCS);
+                    long length = (random.nextInt(5) == 0) ? 0 : 1 + random.nextInt(40);
+                    long time;
+                    if(length > 0)
+                        time = naive.earliestStart(freeNow, NOW, procs, length);
+                    else if(freeNow >= procs)
+                        time = NOW;
+                    else
+                        time = naive.firstTimeWithFree(freeNow, procs);
+                    Job job = new Job(NOW, procs, length, length);
+                    EstJobEnd end = new EstJobEnd(time + length, job);
+                    EstJobStart start = new EstJobStart(time, job, end);
+                    profile.add(start);
+                    profile.add(end);
+                    naive.add(start);
+                    naive.add(end);
+                    reserved.add(start);
+                }
+                check(profile, naive, freeNow, random);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Priority queue of waiting jobs that knows where each job is, so any
+ * job can be removed in O(log n) time.  reorder() rebuilds the heap in
+ * O(n) time for when the order of all the jobs changes (see
+ * TimeDependentComparator).
+ */
+
+package simulator.scheduler;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import simulator.Job;
+
+public class JobHeap implements Iterable<Job> {
+
+	private Comparator<Job> comp;
+	private Job[] heap = new Job[16];  //heap[0] is first; children of i
+	                                   //  are 2i+1 and 2i+2
+	private int size = 0;
+	private HashMap<Job,Integer> position = new HashMap<Job,Integer>();
+
+	public JobHeap(Comparator<Job> comp) {
+		this.comp = comp;
+	}
+
+	public JobHeap(JobHeap other) {
+		//copy constructor (shares the jobs)
+		comp = other.comp;
+		heap = other.heap.clone();
+		size = other.size;
+		position = new HashMap<Job,Integer>(other.position);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(Job j) {
+		return position.containsKey(j);
+	}
+
+	public void add(Job j) {
+		if(size == heap.length)
+			heap = Arrays.copyOf(heap, 2 * size);
+		size++;
+		siftUp(size - 1, j);
+	}
+
+	public Job peek() {
+		return (size == 0) ? null : heap[0];
+	}
+
+	public Job poll() {
+		if(size == 0)
+			return null;
+		Job retVal = heap[0];
+		removeAt(0);
+		return retVal;
+	}
+
+	public boolean remove(Job j) {
+		Integer i = position.get(j);
+		if(i == null)
+			return false;
+		removeAt(i);
+		return true;
+	}
+
+	public void reorder() {
+		//restores heap order after the priorities of all jobs changed
+		for(int i = size / 2 - 1; i >= 0; i--)
+			siftDown(i, heap[i]);
+	}
+
+	public void clear() {
+		Arrays.fill(heap, 0, size, null);
+		size = 0;
+		position.clear();
+	}
+
+	private void place(int i, Job j) {
+		heap[i] = j;
+		position.put(j, i);
+	}
+
+	private void removeAt(int i) {
+		position.remove(heap[i]);
+		size--;
+		Job last = heap[size];
+		heap[size] = null;
+		if(i == size)
+			return;
+		siftDown(i, last);
+		if(heap[i] == last)
+			siftUp(i, last);
+	}
+
+	private void siftUp(int i, Job j) {
+		//puts j at or above position i (which is treated as empty)
+		while(i > 0) {
+			int parent = (i - 1) >>> 1;
+			if(comp.compare(j, heap[parent]) >= 0)
+				break;
+			place(i, heap[parent]);
+			i = parent;
+		}
+		place(i, j);
+	}
+
+	private void siftDown(int i, Job j) {
+		//puts j at or below position i (which is treated as empty)
+		int half = size >>> 1;  //(positions w/ children are below this)
+		while(i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if(right < size && comp.compare(heap[right], heap[child]) < 0)
+				child = right;
+			if(comp.compare(j, heap[child]) <= 0)
+				break;
+			place(i, heap[child]);
+			i = child;
+		}
+		place(i, j);
+	}
+
+	public Iterator<Job> iterator() {
+		//iterates over the jobs in no particular order
+		return new Iterator<Job>() {
+			private int next = 0;
+
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			public Job next() {
+				if(next >= size)
+					throw new NoSuchElementException();
+				return heap[next++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -17,19 +17,21 @@ package simulator.scheduler;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.PriorityQueue;
 import simulator.Event;
+import simulator.EventQueue;
 import simulator.Factory;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Main;
+import simulator.Metrics;
 import simulator.Statistics;
 import simulator.allocator.AllocInfo;
 import simulator.allocator.Allocator;
 
 public class PQScheduler extends Scheduler implements CopyableScheduler {
 
-	protected PriorityQueue<Job> toRun;  //jobs waiting to run
+	protected JobHeap toRun;  //jobs waiting to run
+	private long sortedAt = -1;  //time toRun was ordered (see TimeDependentComparator)
 
 	private String compSetupInfo;
 	private Comparator<Job> comparator;
@@ -37,7 +39,7 @@ public class PQScheduler extends Scheduler implements CopyableScheduler {
 	public PQScheduler(Comparator<Job> comp) {
 		//takes comparator to use for ordering the jobs
 
-		toRun = new PriorityQueue<Job>(11, comp);
+		toRun = new JobHeap(comp);
 		compSetupInfo = comp.toString();
 		this.comparator=comp;
 	}
@@ -71,16 +73,20 @@ public class PQScheduler extends Scheduler implements CopyableScheduler {
 		//   given time, depending on the value of
 		//   Event.handleArrivalsSeparately)
 
+		reorder(time);
 		toRun.add(j);
-		Object[] temp = toRun.toArray();
-		toRun.clear();
-		for(int i = 0; i < temp.length; i++){
-			toRun.add((Job)temp[i]);
+	}
+
+	private void reorder(long time) {
+		//re-sorts waiting jobs if their order may have changed since last time
+		if(TimeDependentComparator.needsReorder(comparator, sortedAt, time)) {
+			toRun.reorder();
+			sortedAt = time;
 		}
 	}
 
 	public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		//allows the scheduler to start a job if desired; time is current time
 		//called after calls to jobArrives and jobFinishes
 		//(either after each call or after each call occuring at same time)
@@ -90,10 +96,11 @@ public class PQScheduler extends Scheduler implements CopyableScheduler {
 		if(toRun.size() == 0) 
 			return null;
 
+		reorder(time);
 		AllocInfo allocInfo = null;
 		Job job = toRun.peek();
-		if (alloc.canAllocate(job)) 
-			allocInfo = alloc.allocate(job);
+		if (Metrics.canAllocate(alloc, job)) 
+			allocInfo = Metrics.allocate(alloc, job);
 		if(allocInfo != null) {
 			toRun.poll();  //remove the job we just allocated
 			job.start(time, mach, allocInfo, events, stats);
@@ -113,14 +120,15 @@ public class PQScheduler extends Scheduler implements CopyableScheduler {
 	@Override
 	public Scheduler copy() {
 		PQScheduler duplicate  = new PQScheduler(comparator);
-		Iterator<Job> it = toRun.iterator();
-		while (it.hasNext()) {
-			Job j = it.next();
-			duplicate.toRun.add(j);
-		}
+		duplicate.toRun = new JobHeap(toRun);
+		duplicate.sortedAt = sortedAt;
 		return duplicate;
 	}
 
+	public boolean copiesAreIndependent() {
+		return true;
+	}
+
 
 	public boolean hasJobsWaiting() {
 		Iterator<Job> it = toRun.iterator();
@@ -13,13 +13,13 @@ package simulator.scheduler;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 import java.util.Queue;
-import simulator.Event;
+import simulator.EventQueue;
 import simulator.Factory;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Main;
+import simulator.Metrics;
 import simulator.Statistics;
 import simulator.allocator.AllocInfo;
 import simulator.allocator.Allocator;
@@ -115,7 +115,7 @@ public class ScanScheduler extends Scheduler {
 	}
 
 	public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 
 		//advance nextQueue until it points to a nonempty category
 		int numEmpty = 0;   //number of empty categories (to detect if no jobs waiting)
@@ -133,8 +133,8 @@ public class ScanScheduler extends Scheduler {
 
 		AllocInfo allocInfo = null;
 		Job job = toRun[nextQueue].peek();
-		if(alloc.canAllocate(job)) {
-			allocInfo = alloc.allocate(job);
+		if(Metrics.canAllocate(alloc, job)) {
+			allocInfo = Metrics.allocate(alloc, job);
 			toRun[nextQueue].poll();  //remove the job we just allocated
 			job.start(time, mach, allocInfo, events, stats);
 		}
@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Planned schedule used by StatefulScheduler.  Besides being the
+ * ordered set of changes, it keeps an availability profile so the
+ * scheduler can find when jobs fit without walking the whole plan.
+ *
+ * The profile is a treap with one node per time at which changes
+ * occur.  Each node records how that time's changes affect the number
+ * of free processors, and each subtree records the extremes reached
+ * over its times, so the first time meeting a condition is found in
+ * logarithmic time.
+ *
+ * The plan must only be changed through add, remove, clear, pollFirst,
+ * pollLast, or the iterators; changes made through views such as
+ * headSet are not seen by the profile.
+ */
+
+package simulator.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.TreeSet;
+import simulator.Main;
+
+public class SchedProfile extends TreeSet<SchedChange> {
+
+	private static final long serialVersionUID = 1L;  //(never serialized)
+
+	public static final long NEVER = Long.MAX_VALUE;  //time returned if none works
+
+	private static final long NONE = Long.MAX_VALUE / 4;  //bound for empty extremes
+
+	//conditions searched for (see matches)
+	private static final int DIP_BELOW = 0;
+	private static final int END_BELOW = 1;
+	private static final int END_AT_LEAST = 2;
+	private static final int STEP_AT_LEAST = 3;
+	private static final int DIP_OR_END_BELOW = 4;
+
+	private static class Node {
+		long time;          //when these changes occur
+		int priority;       //treap priority; heap ordered
+		Node left, right;
+		ArrayList<SchedChange> changes = new ArrayList<SchedChange>();  //in plan order
+
+		//effect of this time's changes on # free procs:
+		long delta;         //overall change
+		long stepMax;       //highest change after some prefix of them
+		long stepDip;       //lowest change right after a change of a
+		                    //  job estimated to take 0 time (NONE if none)
+
+		//same for the subtree, measured from before its first time:
+		long sum;           //overall change
+		long minEnd;        //lowest and highest after a time's changes
+		long maxEnd;
+		long maxStep;       //highest after a prefix of a time's changes
+		long minDip;        //lowest right after a 0-length job's change
+
+		Node(long time) {
+			this.time = time;
+			//mix bits of the time so priorities look random but repeat
+			long h = time * 0x9E3779B97F4A7C15L;
+			priority = (int)(h ^ (h >>> 32));
+		}
+	}
+
+	private Node root = null;
+	private long visited = 0;    //# profile nodes examined (instrumentation)
+
+	//finger for searches (see next): path from root and # free before
+	//each node's subtree; depth 0 means before the first time
+	private Node[] path = new Node[64];
+	private long[] pathBefore = new long[64];
+	private int depth = 0;
+
+	public SchedProfile() {
+		super();
+	}
+
+	public long getVisited() {
+		return visited;
+	}
+
+	public long totalChange() {
+		//returns change in # free procs over the whole plan
+		return (root == null) ? 0 : root.sum;
+	}
+
+	public boolean hasChangeAfter(long time) {
+		return higher(time) != null;
+	}
+
+	public long earliestStart(long freeNow, long time, int procs, long length) {
+		//returns first time at or after time where a job needing procs
+		//processors for length (> 0) fits; freeNow is # procs free now
+		//(keeps the rules of the scan StatefulScheduler used to do:
+		// candidate times are time and the times of changes after it;
+		// only the # free after all changes at a time counts, except that
+		// dipping below procs right after a change of a 0-length job
+		// moves the candidate to that time)
+
+		if (root == null)
+			return time;
+		long lastTime = last(root).time;
+
+		long anchor = time;
+		seek(time, freeNow);
+		long free = (depth == 0) ? freeNow : freeAfterFinger();
+		while (anchor < lastTime) {  //while there are changes after anchor
+			Node n;
+			if (free < procs) {
+				//not enough procs; go to next time with enough
+				//(or the end of the plan if there is none)
+				n = next(END_AT_LEAST, freeNow, procs);
+				if (n == null)
+					return lastTime;
+				anchor = n.time;
+				free = freeAfterFinger();
+				continue;
+			}
+
+			//look for first time while job would run where it doesn't fit
+			n = next(DIP_OR_END_BELOW, freeNow, procs);
+			if (n == null)
+				return anchor;
+			long end = anchor + length;
+			long before = freeAfterFinger() - n.delta;
+			if (matches(n, before, DIP_BELOW, procs)) {
+				//counts if before end or at first time after it
+				if (n.time >= end && ceiling(end) != n)
+					return anchor;
+				anchor = n.time;
+				free = before + n.delta;
+			} else {
+				//no room after this time's changes
+				//(doesn't matter if job would be done or plan is over)
+				if (n.time >= end || n.time == lastTime)
+					return anchor;
+				n = next(END_AT_LEAST, freeNow, procs);
+				if (n == null)
+					return lastTime;
+				anchor = n.time;
+				free = freeAfterFinger();
+			}
+		}
+		return anchor;
+	}
+
+	public long firstTimeWithFree(long freeNow, int procs) {
+		//returns time of first change after which at least procs are free
+		//(NEVER if there isn't one)
+
+		depth = 0;
+		Node n = next(STEP_AT_LEAST, freeNow, procs);
+		if (n == null)
+			return NEVER;
+		return n.time;
+	}
+
+	//
+	// keeping the profile up to date
+	//
+
+	public boolean add(SchedChange sc) {
+		if (!super.add(sc))
+			return false;
+		root = insert(root, sc);
+		return true;
+	}
+
+	public boolean remove(Object o) {
+		if (!super.remove(o))
+			return false;
+		root = delete(root, (SchedChange)o);
+		return true;
+	}
+
+	public boolean addAll(Collection<? extends SchedChange> c) {
+		//(TreeSet's version can bypass add)
+		boolean retVal = false;
+		for (SchedChange sc : c)
+			retVal |= add(sc);
+		return retVal;
+	}
+
+	public void clear() {
+		super.clear();
+		root = null;
+	}
+
+	public SchedChange pollFirst() {
+		SchedChange retVal = super.pollFirst();
+		if (retVal != null)
+			root = delete(root, retVal);
+		return retVal;
+	}
+
+	public SchedChange pollLast() {
+		SchedChange retVal = super.pollLast();
+		if (retVal != null)
+			root = delete(root, retVal);
+		return retVal;
+	}
+
+	public Iterator<SchedChange> iterator() {
+		return new ProfileIterator(super.iterator());
+	}
+
+	public Iterator<SchedChange> descendingIterator() {
+		return new ProfileIterator(super.descendingIterator());
+	}
+
+	private class ProfileIterator implements Iterator<SchedChange> {
+		//passes removals on to the profile
+
+		private Iterator<SchedChange> it;
+		private SchedChange last = null;  //change most recently returned
+
+		public ProfileIterator(Iterator<SchedChange> it) {
+			this.it = it;
+		}
+
+		public boolean hasNext() {
+			return it.hasNext();
+		}
+
+		public SchedChange next() {
+			last = it.next();
+			return last;
+		}
+
+		public void remove() {
+			it.remove();
+			root = delete(root, last);
+		}
+	}
+
+	private Node insert(Node n, SchedChange sc) {
+		//adds sc to subtree rooted at n; returns new root
+
+		long time = sc.getTime();
+		if (n == null) {
+			n = new Node(time);
+			addChange(n, sc);
+		} else if (time == n.time) {
+			addChange(n, sc);
+		} else if (time < n.time) {
+			n.left = insert(n.left, sc);
+			if (n.left.priority > n.priority)
+				n = rotateRight(n);
+		} else {
+			n.right = insert(n.right, sc);
+			if (n.right.priority > n.priority)
+				n = rotateLeft(n);
+		}
+		update(n);
+		return n;
+	}
+
+	private Node delete(Node n, SchedChange sc) {
+		//removes sc from subtree rooted at n; returns new root
+
+		if (n == null) {
+			Main.ierror("Schedule profile has no record of " + sc);
+			return null;
+		}
+		long time = sc.getTime();
+		if (time < n.time)
+			n.left = delete(n.left, sc);
+		else if (time > n.time)
+			n.right = delete(n.right, sc);
+		else {
+			removeChange(n, sc);
+			if (n.changes.isEmpty())
+				return merge(n.left, n.right);
+		}
+		update(n);
+		return n;
+	}
+
+	private static Node merge(Node a, Node b) {
+		//joins subtrees; everything in a comes before everything in b
+
+		if (a == null)
+			return b;
+		if (b == null)
+			return a;
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			update(a);
+			return a;
+		}
+		b.left = merge(a, b.left);
+		update(b);
+		return b;
+	}
+
+	private static Node rotateRight(Node n) {
+		Node l = n.left;
+		n.left = l.right;
+		l.right = n;
+		update(n);
+		return l;
+	}
+
+	private static Node rotateLeft(Node n) {
+		Node r = n.right;
+		n.right = r.left;
+		r.left = n;
+		update(n);
+		return r;
+	}
+
+	private static void addChange(Node n, SchedChange sc) {
+		int i = 0;
+		while (i < n.changes.size() && n.changes.get(i).compareTo(sc) < 0)
+			i++;
+		n.changes.add(i, sc);
+		summarize(n);
+	}
+
+	private static void removeChange(Node n, SchedChange sc) {
+		Iterator<SchedChange> it = n.changes.iterator();
+		while (it.hasNext()) {
+			if (it.next().compareTo(sc) == 0) {
+				it.remove();
+				summarize(n);
+				return;
+			}
+		}
+		Main.ierror("Schedule profile has no record of " + sc);
+	}
+
+	private static void summarize(Node n) {
+		//recompute effect of the changes at n's time
+
+		n.delta = 0;
+		n.stepMax = -NONE;
+		n.stepDip = NONE;
+		for (SchedChange sc : n.changes) {
+			n.delta += sc.freeProcChange();
+			n.stepMax = Math.max(n.stepMax, n.delta);
+			if (sc.job.getEstimatedRunningTime() == 0)
+				n.stepDip = Math.min(n.stepDip, n.delta);
+		}
+	}
+
+	private static void update(Node n) {
+		//recompute subtree values of n from its children
+
+		long before = sum(n.left);
+		long after = before + n.delta;
+		n.sum = after + sum(n.right);
+		n.minEnd = n.maxEnd = after;
+		n.maxStep = before + n.stepMax;
+		n.minDip = before + n.stepDip;
+		if (n.left != null) {
+			n.minEnd = Math.min(n.minEnd, n.left.minEnd);
+			n.maxEnd = Math.max(n.maxEnd, n.left.maxEnd);
+			n.maxStep = Math.max(n.maxStep, n.left.maxStep);
+			n.minDip = Math.min(n.minDip, n.left.minDip);
+		}
+		if (n.right != null) {
+			n.minEnd = Math.min(n.minEnd, after + n.right.minEnd);
+			n.maxEnd = Math.max(n.maxEnd, after + n.right.maxEnd);
+			n.maxStep = Math.max(n.maxStep, after + n.right.maxStep);
+			n.minDip = Math.min(n.minDip, after + n.right.minDip);
+		}
+	}
+
+	private static long sum(Node n) {
+		return (n == null) ? 0 : n.sum;
+	}
+
+	//
+	// searching the profile
+	//
+
+	private static boolean matches(Node n, long before, int cond, int procs) {
+		//whether the changes at n's time meet cond, given # free before them
+		switch (cond) {
+		case DIP_BELOW:
+			return before + n.stepDip < procs;
+		case END_BELOW:
+			return before + n.delta < procs;
+		case END_AT_LEAST:
+			return before + n.delta >= procs;
+		case STEP_AT_LEAST:
+			return before + n.stepMax >= procs;
+		default:  //DIP_OR_END_BELOW
+			return (before + n.stepDip < procs) || (before + n.delta < procs);
+		}
+	}
+
+	private static boolean anyMatch(Node n, long before, int cond, int procs) {
+		//whether some time in subtree rooted at n meets cond,
+		//given # free before the subtree
+		switch (cond) {
+		case DIP_BELOW:
+			return before + n.minDip < procs;
+		case END_BELOW:
+			return before + n.minEnd < procs;
+		case END_AT_LEAST:
+			return before + n.maxEnd >= procs;
+		case STEP_AT_LEAST:
+			return before + n.maxStep >= procs;
+		default:  //DIP_OR_END_BELOW
+			return (before + n.minDip < procs) || (before + n.minEnd < procs);
+		}
+	}
+
+	//Searches move a finger, the path from the root to the node most
+	//recently found, so a search starting there only climbs as far as
+	//needed; nearby times are found quickly and far ones in log time.
+
+	private void push(Node n, long before) {
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, 2*depth);
+			pathBefore = Arrays.copyOf(pathBefore, 2*depth);
+		}
+		path[depth] = n;
+		pathBefore[depth] = before;
+		depth++;
+	}
+
+	private long freeAfterFinger() {
+		//returns # free after changes at time of node under finger
+		Node n = path[depth-1];
+		return pathBefore[depth-1] + sum(n.left) + n.delta;
+	}
+
+	private void seek(long time, long freeNow) {
+		//puts finger on last node with time at most the given one
+		//(or before first node if there isn't one)
+
+		depth = 0;
+		int keep = 0;
+		long before = freeNow;
+		Node n = root;
+		while (n != null) {
+			visited++;
+			push(n, before);
+			if (n.time <= time) {
+				keep = depth;
+				before += sum(n.left) + n.delta;
+				n = n.right;
+			} else
+				n = n.left;
+		}
+		depth = keep;
+	}
+
+	private Node next(int cond, long freeNow, int procs) {
+		//moves finger to first node after it meeting cond and returns it
+		//(null, leaving finger alone, if none)
+
+		if (depth == 0) {
+			if (root == null || !anyMatch(root, freeNow, cond, procs))
+				return null;
+			return descend(root, freeNow, cond, procs);
+		}
+
+		Node n = path[depth-1];
+		long after = freeAfterFinger();
+		if (n.right != null && anyMatch(n.right, after, cond, procs))
+			return descend(n.right, after, cond, procs);
+
+		//climb until a later time is under or at an ancestor
+		for (int i = depth-2; i >= 0; i--) {
+			Node a = path[i];
+			visited++;
+			if (path[i+1] == a.left) {
+				long before = pathBefore[i] + sum(a.left);
+				if (matches(a, before, cond, procs)) {
+					depth = i+1;
+					return a;
+				}
+				before += a.delta;
+				if (a.right != null && anyMatch(a.right, before, cond, procs)) {
+					depth = i+1;
+					return descend(a.right, before, cond, procs);
+				}
+			}
+		}
+		return null;
+	}
+
+	private Node descend(Node n, long before, int cond, int procs) {
+		//moves finger down to first node meeting cond in subtree rooted
+		//at n, which must have one; n is the root or a child of the node
+		//under the finger and before is # free before its subtree
+
+		while (true) {
+			visited++;
+			push(n, before);
+			if (n.left != null && anyMatch(n.left, before, cond, procs)) {
+				n = n.left;
+				continue;
+			}
+			before += sum(n.left);
+			if (matches(n, before, cond, procs))
+				return n;
+			before += n.delta;
+			n = n.right;
+		}
+	}
+
+	private Node higher(long time) {
+		//returns node for first time after given one (null if none)
+		Node retVal = null;
+		Node n = root;
+		while (n != null) {
+			visited++;
+			if (n.time > time) {
+				retVal = n;
+				n = n.left;
+			} else
+				n = n.right;
+		}
+		return retVal;
+	}
+
+	private Node ceiling(long time) {
+		//returns node for first time at or after given one (null if none)
+		return higher(time - 1);
+	}
+
+	private Node last(Node n) {
+		//returns node for last time in subtree rooted at n (null if empty)
+		if (n == null)
+			return null;
+		while (n.right != null) {
+			visited++;
+			n = n.right;
+		}
+		return n;
+	}
+}
@@ -11,8 +11,8 @@
 
 package simulator.scheduler;
 
-import java.util.PriorityQueue;
 import simulator.Event;
+import simulator.EventQueue;
 import simulator.HasSetupInfo;
 import simulator.Job;
 import simulator.Machine;
@@ -37,7 +37,7 @@ public abstract class Scheduler implements HasSetupInfo {
 	//   Event.handleArrivalsSeparately)
 
 	abstract public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-			PriorityQueue<Event> events, Statistics stats);
+			EventQueue events, Statistics stats);
 	//allows the scheduler to start a job if desired; time is current time
 	//called after calls to jobArrives and jobFinishes
 	//(either after each call or after each call occuring at same time)
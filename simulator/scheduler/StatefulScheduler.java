@@ -36,14 +36,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeSet;
-import simulator.Event;
+import simulator.EventQueue;
 import simulator.Factory;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Main;
+import simulator.Metrics;
 import simulator.Pair;
 import simulator.Statistics;
 import simulator.allocator.AllocInfo;
@@ -54,7 +54,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	private int numProcs;  //total number of processors
 	private int freeProcs; //number of currently-free processors
 
-	private TreeSet<SchedChange> estSched;  //current schedule, stored as list of changes
+	private SchedProfile estSched;  //current schedule, stored as list of changes
 
 	private static boolean debug = false;  //whether to include debug printouts
 	private static int plans=0;
@@ -76,8 +76,8 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	private boolean insideTimedRun;
 
 	private long eventsVisited;
-	//number of events examined while placing jobs during entire run
-	//(instrumentation to compare algorithm effectiveness)
+	//number of schedule profile entries examined while placing jobs
+	//during entire run (instrumentation to compare algorithm effectiveness)
 
 	public String name;
 
@@ -124,7 +124,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 				System.out.println("Beginning compression");
 
 			TreeSet<SchedChange> oldEstSched = scheduler.estSched;
-			scheduler.estSched = new TreeSet<SchedChange>();
+			scheduler.estSched = new SchedProfile();
 
 			//first pass; pick up unmatched ends (put ends with a match into a set to "mark" them)
 			//this must be done first so they appear when jobs are added
@@ -495,12 +495,12 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	//Manager for even less conservative
 	public class EvenLessManager extends Manager {
 
-		protected TreeSet<SchedChange> guarantee;
+		protected SchedProfile guarantee;
 		protected HashMap<Job,EstJobStart> guarJobToEvents;
 		protected TreeSet<Job> backfill;
 		protected int bftimes;
 
-		public void deepCopy(TreeSet<SchedChange> from,TreeSet<SchedChange> to,HashMap<Job,EstJobStart> toJ) {
+		public void deepCopy(SchedProfile from,SchedProfile to,HashMap<Job,EstJobStart> toJ) {
 			to.clear();
 			toJ.clear();
 			for (SchedChange sc : from) {
@@ -522,7 +522,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 		public EvenLessManager(StatefulScheduler scheduler,Comparator<Job> comp,int bftimes) {
 			this.scheduler = scheduler;
 			backfill = new TreeSet<Job>(comp);
-			guarantee = new TreeSet<SchedChange>();
+			guarantee = new SchedProfile();
 			guarJobToEvents = new HashMap<Job,EstJobStart>();
 			this.bftimes=bftimes;
 			//debug=true;
@@ -893,7 +893,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 				System.out.println("Beginning compression");
 
 			TreeSet<SchedChange> oldEstSched = scheduler.estSched;
-			scheduler.estSched = new TreeSet<SchedChange>();
+			scheduler.estSched = new SchedProfile();
 
 			//first pass; pick up unmatched ends (null the job field in matched ends)
 			//this must be done first so they appear when jobs are added
@@ -997,7 +997,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	public StatefulScheduler(int numProcs) {
 		//takes number of processors in machine
 		this.numProcs = freeProcs = numProcs;
-		estSched = new TreeSet<SchedChange>();
+		estSched = new SchedProfile();
 		jobToEvents = new HashMap<Job, EstJobStart>();
 		insideTimedRun = false;
 		heart = new ConservativeManager(this);
@@ -1008,7 +1008,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	public StatefulScheduler(int numProcs,
 			Comparator<Job> comp, int filltimes) {
 		this.numProcs = freeProcs = numProcs;
-		estSched = new TreeSet<SchedChange> ();
+		estSched = new SchedProfile();
 		jobToEvents = new HashMap<Job, EstJobStart>();
 		insideTimedRun = false;
 		heart = new OpportunisticManager(this, comp, filltimes);
@@ -1018,7 +1018,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	public StatefulScheduler(int numProcs,
 			Comparator<Job> comp) {
 		this.numProcs = freeProcs = numProcs;
-		estSched = new TreeSet<SchedChange> ();
+		estSched = new SchedProfile();
 		jobToEvents = new HashMap<Job, EstJobStart>();
 		insideTimedRun = false;
 		heart = new RestrictiveManager(this, comp);
@@ -1028,7 +1028,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	public StatefulScheduler(int numProcs,
 			Comparator<Job> comp, boolean maxMode) {
 		this.numProcs = freeProcs = numProcs;
-		estSched = new TreeSet<SchedChange>();
+		estSched = new SchedProfile();
 		jobToEvents = new HashMap<Job, EstJobStart>();
 		insideTimedRun = false;
 		heart = new MaxManager(this, comp);
@@ -1040,7 +1040,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	public StatefulScheduler(int numProcs,
 			Comparator<Job> comp, int filltimes,boolean dummy) {
 		this.numProcs = freeProcs = numProcs;
-		estSched = new TreeSet<SchedChange> ();
+		estSched = new SchedProfile();
 		jobToEvents = new HashMap<Job, EstJobStart>();
 		insideTimedRun = false;
 		heart = new EvenLessManager(this, comp, filltimes);
@@ -1160,7 +1160,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 		return startTime;
 	}
 
-	private long findTime(TreeSet<SchedChange> sched, Job job, long time) {
+	private long findTime(SchedProfile sched, Job job, long time) {
 		//helper function for scheduleJob
 		//finds time to add Job
 
@@ -1169,120 +1169,44 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 
 		time = Math.max(time, job.getArrivalTime());
 
-		PeekableIterator<SchedChange> it = new PeekableIterator<SchedChange>(sched.iterator());
-		//to traverse schedule
-		int currentFree = freeProcs;  //number of procs free at time being considered
-		boolean done = false;    //whether we've found working anchor point
-		long anchorTime = time;  //anchor point; possible starting time for job
-		SchedChange sc = null;   //first change we haven't looked at yet
+		long visitedBefore = sched.getVisited();
+		long anchorTime = sched.earliestStart(freeProcs, time,
+				job.getProcsNeeded(), job.getEstimatedRunningTime());
+		eventsVisited += sched.getVisited() - visitedBefore;
 
-		while (!done) {
-			//will exit because anchor point at end of schedule must work
-
-			if (it.hasNext()) {
-				sc = it.next();
-				eventsVisited++;
-				long scTime = sc.getTime();
-				if (scTime <= anchorTime)
-					currentFree += sc.freeProcChange();
-				else {  //advanced to anchor point; now test it
-
-					boolean skip = false;    //to check if current procs falls below required amount
-
-					while (!done && (currentFree >= job.getProcsNeeded())) {
-						//process this change and any occuring at the same time
-						currentFree += sc.freeProcChange();
-
-						if (sc.job.getEstimatedRunningTime() == 0
-								&& currentFree < job.getProcsNeeded())
-							skip = true;
-
-						while (it.hasNext() && (it.peek().getTime() == scTime)) {
-							sc = it.next();
-							eventsVisited++;
-							currentFree += sc.freeProcChange();
-							if (sc.job.getEstimatedRunningTime() == 0
-									&& currentFree < job.getProcsNeeded())
-								skip = true;
-						}
-
-						if (skip) {
-							if (it.hasNext() && anchorTime == scTime) {
-								sc = it.next();
-								eventsVisited++;
-							} else
-								currentFree -= sc.freeProcChange();
-							scTime = sc.getTime();
-							break;
-						}
-
-
-						//check if we've gotten to where the job would end
-						if ((scTime >= anchorTime + job.getEstimatedRunningTime()) 
-								|| !it.hasNext())//Max -- change to > ? 
-										//change because number of procs irrelevent 
-										//to completed jobs
-										done = true;    //yes; use the anchor point
-						else {
-							sc = it.next(); //no; advance the time we're looking at
-							eventsVisited++;
-						}
-						scTime = sc.getTime();
-					}
-					if (!done) {    //not enough procs; advance anchorTime
-						anchorTime = sc.getTime();
-						currentFree += sc.freeProcChange();
-					}
-				}
-			} else {  //ran out of changes before anchor point so can use it
-				if (currentFree != numProcs){
-					System.out.println("\nfree: "+currentFree+" numProcs: "+numProcs);//Max
-					printPlan();
-					Main.error("Stateful scheduler got to end of estimated schedule w/o all processors being free");
-				}
-				done = true;
+		if (!sched.hasChangeAfter(anchorTime)) {
+			//anchor point at end of schedule so all procs should be free
+			long currentFree = freeProcs + sched.totalChange();
+			if (currentFree != numProcs){
+				System.out.println("\nfree: "+currentFree+" numProcs: "+numProcs);//Max
+				printPlan();
+				Main.error("Stateful scheduler got to end of estimated schedule w/o all processors being free");
 			}
 		}
 
 		return anchorTime;
 	}
 
-	public long zeroCase(TreeSet<SchedChange> sched, Job filler, long time) {
+	public long zeroCase(SchedProfile sched, Job filler, long time) {
 		//helper for findTime that handles jobs of length 0
-		//iterate through event list to find first time where
-		//there are enough avaiable procs
+		//find first time where there are enough avaiable procs
 
-		//procs currently avaiable
-		int avaProcs = freeProcs;
-
-		long lookAtTime = time;//to keep track of time being checked
-
-		if (avaProcs >= filler.getProcsNeeded()) {
+		if (freeProcs >= filler.getProcsNeeded()) {
 			return time;
 		}
 
-		//to traverse schedule
-		SchedChange sc;//event at current time
-		Iterator<SchedChange> it = sched.iterator();
-
-		while (it.hasNext()) {
-			sc = it.next();
-			eventsVisited++;
-			if(lookAtTime > sc.getTime()) {
-				printPlan();
-				Main.error("Planned schedule has events in the past (before " + lookAtTime + ")");
-			}
-			lookAtTime = sc.getTime();
-			avaProcs += sc.freeProcChange();
-
-			if (avaProcs >= filler.getProcsNeeded()) {  //enough procs to run right away
-				return lookAtTime;
-			}
+		if (!sched.isEmpty() && sched.first().getTime() < time) {
+			printPlan();
+			Main.error("Planned schedule has events in the past (before " + time + ")");
 		}
 
-		if (avaProcs != numProcs){
+		long visitedBefore = sched.getVisited();
+		long lookAtTime = sched.firstTimeWithFree(freeProcs, filler.getProcsNeeded());
+		eventsVisited += sched.getVisited() - visitedBefore;
+
+		if (lookAtTime == SchedProfile.NEVER){
 			printPlan();
-			Main.error("Stateful scheduler got to end of estimated schedule w/o all processors being free (" + avaProcs + " free)");
+			Main.error("Stateful scheduler got to end of estimated schedule w/o all processors being free (" + (freeProcs + sched.totalChange()) + " free)");
 		}
 		return lookAtTime;
 	}
@@ -1348,7 +1272,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	}
 
 	public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		//allows the scheduler to start a job if desired; time is current time
 		//called after calls to jobArrives and jobFinishes
 		//(either after each call or after each call occuring at same time)
@@ -1377,7 +1301,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 				return null;  //don't want to allocate until later time
 			}
 			if(sc instanceof EstJobStart) {
-				AllocInfo allocInfo = alloc.allocate(sc.job);
+				AllocInfo allocInfo = Metrics.allocate(alloc, sc.job);
 				if (allocInfo == null) {
 					//not enough procs to start it now; wait for
 					//  another job to end before this one can start
@@ -1447,6 +1371,7 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 	public void done() {
 		heart.done();
 		System.out.println("Scheduler visited " + eventsVisited + " events");
+		Metrics.count(Metrics.PROFILE_VISITED, eventsVisited);
 	}
 
 	public void removeJob(Job j, long time) {
@@ -1590,6 +1515,11 @@ public class StatefulScheduler extends Scheduler implements CopyableScheduler {
 		duplicate.heart = this.heart.copy(duplicate);
 		return duplicate;
 	}
+
+	public boolean copiesAreIndependent() {
+		//(copies share the SchedChanges, which compression changes)
+		return false;
+	}
 	
 	
 	public boolean hasJobsWaiting(){
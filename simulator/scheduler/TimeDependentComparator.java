@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2007-2014, Knox College.
+ * All rights reserved.
+ *
+ * This file is part of the PReMAS software package.  For license
+ * information see the LICENSE file in the top level directory of the
+ * distribution.
+ */
+
+/**
+ * Comparator whose order depends on the current time (e.g. because it
+ * favors jobs that have waited longer).  The order is fixed between
+ * events, so schedulers keep their waiting jobs sorted as usual and
+ * re-sort them (see needsReorder) the first time they see a new time.
+ */
+
+package simulator.scheduler;
+
+import java.util.Comparator;
+
+import simulator.Job;
+import simulator.Main;
+
+public abstract class TimeDependentComparator implements Comparator<Job> {
+
+	public abstract int compare(Job j1, Job j2, long time);
+
+	public int compare(Job j1, Job j2) {
+		return compare(j1, j2, Main.getCurTime());
+	}
+
+	public static boolean needsReorder(Comparator<?> comp, long sortedAt, long time) {
+		//whether jobs sorted by comp at time sortedAt must be re-sorted at time
+		return (comp instanceof TimeDependentComparator) && (sortedAt != time);
+	}
+}
@@ -41,11 +41,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 import java.util.Set;
 import simulator.DepartureEvent;
 import simulator.Event;
+import simulator.EventQueue;
 import simulator.Factory;
+import simulator.HeapEventQueue;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Main;
@@ -158,7 +159,7 @@ public class TimedRunScheduler extends TimingScheduler {
 				+ "\topt_comp: Comparator to use, defaults to fifo";
 	}
 
-	private void jobStops(Machine mach, PriorityQueue<Event> e,
+	private void jobStops(Machine mach, EventQueue e,
 			Statistics stats, long jobNum) {
 		// helper function called when a job is stopped
 
@@ -206,7 +207,7 @@ public class TimedRunScheduler extends TimingScheduler {
 	}
 
 	public AllocInfo tryToStart(Allocator alloc, long time, Machine mach,
-			PriorityQueue<Event> events, Statistics stats) {
+			EventQueue events, Statistics stats) {
 		Iterator<Job> it = null;
 		Job job = null;
 
@@ -351,7 +352,7 @@ public class TimedRunScheduler extends TimingScheduler {
 			if ((j instanceof ShortenedJob) || (j instanceof TrialJob)) {
 				SimpleAllocator rebuildAlloc = new SimpleAllocator(
 						(SimpleMachine) baseMachine);
-				PriorityQueue<Event> rebuildEvents = new PriorityQueue<Event>();
+				EventQueue rebuildEvents = new HeapEventQueue();
 				Statistics rebuildStats = new Statistics();
 				AllocInfo ai = sched.tryToStart(rebuildAlloc, currentTime,
 						baseMachine, rebuildEvents, rebuildStats);
@@ -366,7 +367,7 @@ public class TimedRunScheduler extends TimingScheduler {
 	}
 
 	public void timerExpires(Machine mach, Allocator alloc, Scheduler sched,
-			PriorityQueue<Event> events, Statistics stats, Job j, long time) {
+			EventQueue events, Statistics stats, Job j, long time) {
 		if (debug)
 			System.err.println(time + ": timer expires for " + j);
 
@@ -379,12 +380,12 @@ public class TimedRunScheduler extends TimingScheduler {
 
 		private Allocator ralloc; // The real allocator
 		Machine mach;
-		PriorityQueue<Event> events;
+		EventQueue events;
 		Statistics stats;
 		long currentTime;
 
 		public CheatAllocator(Allocator alloc, Machine mach,
-				PriorityQueue<Event> events, Statistics stats, long currentTime) {
+				EventQueue events, Statistics stats, long currentTime) {
 			ralloc = alloc;
 			this.mach = mach;
 			this.events = events;
@@ -11,8 +11,8 @@
 
 package simulator.scheduler;
 
-import java.util.PriorityQueue;
 import simulator.Event;
+import simulator.EventQueue;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Statistics;
@@ -43,7 +43,7 @@ public class TimerEvent extends Event {
     }
     
     public void happen(Machine mach, Allocator alloc, Scheduler sched, 
-            PriorityQueue<Event> events, Statistics stats) {
+            EventQueue events, Statistics stats) {
         
         ((TimingScheduler)sched).timerExpires(mach, alloc, sched, events, stats, job, time);
         
@@ -11,8 +11,7 @@
 
 package simulator.scheduler;
 
-import java.util.PriorityQueue;
-import simulator.Event;
+import simulator.EventQueue;
 import simulator.Job;
 import simulator.Machine;
 import simulator.Statistics;
@@ -23,6 +22,6 @@ public abstract class TimingScheduler extends Scheduler {
     //Called when a job timer expires
     public abstract void timerExpires(Machine mach, Allocator alloc,
 				      Scheduler sched,
-				      PriorityQueue<Event> events,
+				      EventQueue events,
 				      Statistics stats, Job j, long time); 
 }
@@ -8,27 +8,39 @@
  */
 
 /**
- * Comparator to make a PQScheduler that runs the job requiring the
- * most processors first
+ * Comparator to make a PQScheduler that favors wide jobs that have
+ * waited a large part of their expected response time: the job with
+ * the largest (queued time / (queued time + estimate))^3 * processors
+ * goes first.  Since this depends on the current time, schedulers
+ * re-sort their jobs when the time changes (see TimeDependentComparator).
  */
 
 package simulator.scheduler;
 
-import java.util.Comparator;
-
 import simulator.Job;
-import simulator.Main;
-
-public class WidestFirstComparator implements Comparator<Job> {
-    long currentTime = Main.getCurTime();
-    public int compare(Job j1, Job j2) {
-	long queuedTime1 = currentTime - j1.getArrivalTime();
-	long queuedTime2 = currentTime - j1.getArrivalTime();
-	long wallTime1 = queuedTime1 + j1.getEstimatedRunningTime();
-	long wallTime2 = queuedTime2 + j2.getEstimatedRunningTime();
-	long val1 = (queuedTime1 / wallTime1)^3 * j1.getProcsNeeded();
-	long val2 = (queuedTime2 / wallTime2)^3 * j2.getProcsNeeded();
-	return (int)(val2 - val1);
+
+public class WidestFirstComparator extends TimeDependentComparator {
+
+    private static double priority(Job j, long time) {
+	long queuedTime = time - j.getArrivalTime();
+	long wallTime = queuedTime + j.getEstimatedRunningTime();
+	if(wallTime <= 0)
+	    return 0;
+	return Math.pow((double)queuedTime / wallTime, 3) * j.getProcsNeeded();
+    }
+
+    public int compare(Job j1, Job j2, long time) {
+	//higher priority goes first
+	int retVal = Double.compare(priority(j2, time), priority(j1, time));
+	if(retVal != 0)
+	    return retVal;
+
+	//secondary criteria: earlier arriving job first
+	if(j1.getArrivalTime() != j2.getArrivalTime())
+	    return Long.compare(j1.getArrivalTime(), j2.getArrivalTime());
+	
+	//break ties so different jobs are never equal:
+	return Long.compare(j1.getJobNum(), j2.getJobNum());
     }
     
     public boolean equals(Object other) {